@@ -0,0 +1,145 @@
+package RememberList.Codes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the item index of the shared lists (ItemSearchIndex) at 100k items: the time to build it,
+ * to add and remove a single list, to store and read it back, and the latency of queries.
+ * The items are drawn from the template pack, so the words are the ones real lists use.
+ * Results are written to logcat under the "ItemSearchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ItemSearchBenchmark
+{
+    private static final String TAG = "ItemSearchBenchmark";
+    private static final int LISTS = 5000;
+    private static final int ITEMS_PER_LIST = 20; // 100k items in total
+    private static final int BUILD_ITERATIONS = 5;
+    private static final int QUERIES = 200;
+    private static final int LIMIT = 50;
+
+    private final Map<String, List<String>> sharedLists = new LinkedHashMap<>();
+    private final List<String> queries = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<String> templateValues = new ArrayList<>();
+        try (TemplatePack pack = TemplatePack.openAsset(context))
+        {
+            pack.readAll((record, field, value) -> {
+                if (field > 0)
+                {
+                    templateValues.add(value);
+                }
+            });
+        }
+        // A fixed seed, so every run indexes the same lists
+        Random random = new Random(42);
+        for (int i = 0; i < LISTS; i++)
+        {
+            List<String> items = new ArrayList<>();
+            for (int j = 0; j < ITEMS_PER_LIST; j++)
+            {
+                items.add(templateValues.get(random.nextInt(templateValues.size())));
+            }
+            sharedLists.put("list" + i, items);
+        }
+        // Prefixes as typed, whole words, and two-word queries
+        for (int i = 0; i < QUERIES; i++)
+        {
+            String value = templateValues.get(random.nextInt(templateValues.size()));
+            switch (i % 3)
+            {
+                case 0: queries.add(value.substring(0, Math.min(2, value.length()))); break;
+                case 1: queries.add(value); break;
+                default: queries.add(value + " " + templateValues.get(random.nextInt(templateValues.size()))); break;
+            }
+        }
+    }
+
+    @Test
+    public void buildAndQuery() throws Exception
+    {
+        ItemSearchIndex index = null;
+        long[] buildTimes = new long[BUILD_ITERATIONS];
+        for (int i = 0; i < BUILD_ITERATIONS; i++)
+        {
+            long start = System.nanoTime();
+            index = new ItemSearchIndex();
+            for (Map.Entry<String, List<String>> list : sharedLists.entrySet())
+            {
+                index.addList(list.getKey(), list.getValue());
+            }
+            buildTimes[i] = System.nanoTime() - start;
+        }
+        Log.i(TAG, String.format("build: median %.1f ms for %d items, %d words",
+                median(buildTimes) / 1e6, LISTS * ITEMS_PER_LIST, index.getTermCount()));
+
+        // Adding or deleting a shared list only touches that list's words
+        long[] updateTimes = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++)
+        {
+            String listId = "list" + i;
+            long start = System.nanoTime();
+            index.removeList(listId);
+            index.addList(listId, sharedLists.get(listId));
+            updateTimes[i] = System.nanoTime() - start;
+        }
+        Log.i(TAG, String.format("remove and add one list: median %.3f ms", median(updateTimes) / 1e6));
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        index.writeTo(stored);
+        long writeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        ItemSearchIndex read = ItemSearchIndex.readFrom(new ByteArrayInputStream(stored.toByteArray()));
+        long readNanos = System.nanoTime() - start;
+        Log.i(TAG, String.format("stored: %d bytes, written in %.1f ms, read in %.1f ms",
+                stored.size(), writeNanos / 1e6, readNanos / 1e6));
+        assertEquals(index.getListIds(), read.getListIds());
+        assertEquals(index.getTermCount(), read.getTermCount());
+
+        long[] queryTimes = new long[QUERIES];
+        int hits = 0;
+        for (int i = 0; i < QUERIES; i++)
+        {
+            start = System.nanoTime();
+            hits += index.search(queries.get(i), LIMIT).size();
+            queryTimes[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(queryTimes);
+        Log.i(TAG, String.format("query: median %.3f ms, 95th percentile %.3f ms, %d hits",
+                queryTimes[QUERIES / 2] / 1e6, queryTimes[QUERIES * 95 / 100] / 1e6, hits));
+        // A whole item is always found
+        assertFalse(index.search(queries.get(1), LIMIT).isEmpty());
+    }
+
+    private static long median(long[] times)
+    {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,187 @@
+package RememberList.Codes;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import RememberList.Core.TemplateReader;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the time to build a new user's seed data from the compiled template pack
+ * against parsing "lists.txt" and "values.txt", both with the old split loop and with TemplateReader.
+ * Every variant generates the same database keys, so only the parsing differs.
+ * Results are written to logcat under the "TemplateSeedBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TemplateSeedBenchmark
+{
+    private static final String TAG = "TemplateSeedBenchmark";
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 30;
+
+    private Context context;
+    private DatabaseReference keys; // Push IDs are generated locally, no network is used
+
+    // One way of building the seed data
+    private interface Seeder
+    {
+        void seed(Map<String, Object> seedData) throws Exception;
+    }
+
+    @Before
+    public void setUp()
+    {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        keys = FirebaseDatabase.getInstance().getReference("benchmark");
+    }
+
+    @Test
+    public void seedFromPackAndText()
+    {
+        Map<String, Object> legacy = new HashMap<>();
+        Map<String, Object> text = new HashMap<>();
+        Map<String, Object> pack = new HashMap<>();
+        long legacyNanos = measure("split loop", legacy, this::seedWithSplit);
+        long textNanos = measure("TemplateReader", text, this::seedWithReader);
+        long packNanos = measure("template pack", pack, this::seedWithPack);
+
+        // All the variants seed the same number of lists and values
+        assertEquals(legacy.size(), text.size());
+        assertEquals(text.size(), pack.size());
+        Log.i(TAG, String.format("pack is %.1fx faster than the split loop and %.1fx faster than TemplateReader",
+                (double) legacyNanos / packNanos, (double) textNanos / packNanos));
+    }
+
+    // Runs the seeder and returns its median time; the last result is left in seedData
+    private long measure(String name, Map<String, Object> seedData, Seeder seeder)
+    {
+        long[] times = new long[ITERATIONS];
+        try
+        {
+            for (int i = 0; i < WARMUP + ITERATIONS; i++)
+            {
+                seedData.clear();
+                long start = System.nanoTime();
+                seeder.seed(seedData);
+                if (i >= WARMUP)
+                {
+                    times[i - WARMUP] = System.nanoTime() - start;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(name + " failed", e);
+        }
+        Arrays.sort(times);
+        long median = times[ITERATIONS / 2];
+        Log.i(TAG, String.format("%s: median %.3f ms, %d paths", name, median / 1e6, seedData.size()));
+        return median;
+    }
+
+    // The loop the app used before: available()-sized buffers, whole-file decoding and chained splits
+    private void seedWithSplit(Map<String, Object> seedData) throws Exception
+    {
+        List<String> listIds = new ArrayList<>();
+        for (String name : new String(readWhole("lists.txt"), "windows-1255").split(","))
+        {
+            String listId = keys.push().getKey();
+            listIds.add(listId);
+            seedData.put("lists/" + listId, name);
+        }
+        String[] records = new String(readWhole("values.txt"), "windows-1255").split("#");
+        for (int i = 0; i < records.length && i < listIds.size(); i++)
+        {
+            String[] fields = records[i].split(",");
+            for (int j = 1; j < fields.length; j++)
+            {
+                putValue(seedData, listIds.get(i), fields[j], j - 1);
+            }
+        }
+    }
+
+    private void seedWithReader(Map<String, Object> seedData) throws Exception
+    {
+        List<String> listIds = new ArrayList<>();
+        try (TemplateReader reader = openTemplate("lists.txt"))
+        {
+            reader.readAll((record, field, value) -> {
+                String listId = keys.push().getKey();
+                listIds.add(listId);
+                seedData.put("lists/" + listId, value);
+            });
+        }
+        try (TemplateReader reader = openTemplate("values.txt"))
+        {
+            reader.readAll((record, field, value) -> {
+                if (field > 0 && record < listIds.size())
+                {
+                    putValue(seedData, listIds.get(record), value, field - 1);
+                }
+            });
+        }
+    }
+
+    private void seedWithPack(Map<String, Object> seedData) throws Exception
+    {
+        List<String> listIds = new ArrayList<>();
+        try (TemplatePack pack = TemplatePack.openAsset(context))
+        {
+            pack.readAll((record, field, value) -> {
+                if (field == 0)
+                {
+                    String listId = keys.push().getKey();
+                    listIds.add(listId);
+                    seedData.put("lists/" + listId, value);
+                }
+                else if (record < listIds.size())
+                {
+                    putValue(seedData, listIds.get(record), value, field - 1);
+                }
+            });
+        }
+    }
+
+    private TemplateReader openTemplate(String fileName) throws Exception
+    {
+        return new TemplateReader(new InputStreamReader(context.getAssets().open(fileName), TemplateReader.CHARSET));
+    }
+
+    private void putValue(Map<String, Object> seedData, String listId, String value, int order)
+    {
+        Map<String, Object> valueWithBoolean = new HashMap<>();
+        valueWithBoolean.put("value", value);
+        valueWithBoolean.put("isChecked", false);
+        valueWithBoolean.put("order", order);
+        seedData.put("values/" + listId + "/" + keys.push().getKey(), valueWithBoolean);
+    }
+
+    private byte[] readWhole(String fileName) throws Exception
+    {
+        try (InputStream input = context.getAssets().open(fileName))
+        {
+            byte[] buffer = new byte[input.available()];
+            input.read(buffer);
+            return buffer;
+        }
+    }
+}
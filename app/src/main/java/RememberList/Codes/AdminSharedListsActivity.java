@@ -7,23 +7,23 @@ import android.widget.*;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class AdminSharedListsActivity extends AppCompatActivity implements View.OnClickListener {
     private AdminSharedListsViewModel viewModel;
-    private ListView listView;
+    private RecyclerView listView;
     private ProgressBar progressBar;
     private ImageButton backButton;
     private ImageButton refreshButton;
     private ImageButton deleteButton;
     private ListProductsAdapter adapter;
-    private HashMap<Integer, Integer> positionMap;
-    private List<ListSharedObject> originalList;
-    private List<Integer> indexesLists = new ArrayList<>();
-    private List<String> selectedLists = new ArrayList<>();
+    private Map<String, ListSharedObject> sharedLists = new HashMap<>(); // The shown shared lists by their permanent ID
+    private List<ListSharedObject> selectedLists = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -32,10 +32,26 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
 
         // Initialize UI elements
         listView = findViewById(R.id.listView);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        listView.setLayoutManager(layoutManager);
         progressBar = findViewById(R.id.progressBar);
         backButton = findViewById(R.id.back);
         refreshButton = findViewById(R.id.refresh);
         deleteButton = findViewById(R.id.delete);
+        // The adapter is created once; every load of the lists is submitted to it, so only changed rows are rebound
+        adapter = new ListProductsAdapter(this, new ArrayList<>(), false);
+        adapter.setOnProductClickListener(this::openSharedList);
+        listView.setAdapter(adapter);
+
+        // Leave the admin screen as soon as the admin role is removed
+        AppContainer.from(this).getAdminStatus().getIsAdminLiveData().observe(this, isAdmin -> {
+            if (Boolean.FALSE.equals(isAdmin))
+            {
+                Toast.makeText(this, "הרשאות הניהול הוסרו", Toast.LENGTH_SHORT).show();
+                // MyListsActivity is still below this screen
+                finish();
+            }
+        });
 
         // Initialize ViewModel
         viewModel = new ViewModelProvider(this).get(AdminSharedListsViewModel.class);
@@ -50,44 +66,77 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
         viewModel.getListsLiveData().observe(this, lists -> { // Observe LiveData from the ViewModel
             if (lists != null)
             {
-                positionMap = new HashMap<>();
-                originalList = new ArrayList<>(lists);
-                Collections.sort(lists, (a, b) -> Integer.compare(b.getSaves(), a.getSaves())); //  // Sort the list in descending order based on the number of saves
+                // The lists arrive in descending order based on the number of saves
+                sharedLists = new HashMap<>();
                 ArrayList<Product> adapterList = new ArrayList<>();
-                for (ListSharedObject list: lists)
-                {
-                    adapterList.add(new Product(list.toString(), false)); // Convert each list object to a Product and add it to the adapter list
-                }
-                 // Initialize the adapter with the sorted list
-                adapter = new ListProductsAdapter(this, "SharedLists/", adapterList, false);
-                // Store new indexes as keys and original indexes as values
-                for (int newIndex = 0; newIndex < lists.size(); newIndex++)
+                addRows(lists, adapterList);
+                adapter.submitProducts(adapterList);
+            }
+        });
+        // Append every further page to the shown lists
+        viewModel.getNextPageLiveData().observe(this, page -> {
+            if (page != null)
+            {
+                // Keep the rows the adapter shows, with the lists the admin already checked
+                List<Product> adapterList = new ArrayList<>(adapter.getProducts());
+                addRows(page, adapterList);
+                adapter.submitProducts(adapterList);
+            }
+        });
+        // Load the next page when the user scrolls near the end of the loaded lists
+        listView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount > 0 && layoutManager.findLastVisibleItemPosition() >= totalItemCount - 5)
                 {
-                    int originalIndex = originalList.indexOf(lists.get(newIndex));
-                    positionMap.put(newIndex, originalIndex);
+                    viewModel.loadNextPage();
                 }
-                listView.setAdapter(adapter);
             }
         });
         // Set button listeners
         backButton.setOnClickListener(this);
-        refreshButton.setOnClickListener(v -> viewModel.getSharedLists());
+        refreshButton.setOnClickListener(v -> viewModel.refreshSharedLists());
+        // Long-press on refresh rebuilds the category index of the shared lists
+        refreshButton.setOnLongClickListener(v -> {
+            viewModel.rebuildCategoryIndex();
+            Toast.makeText(this, "בונה מחדש את אינדקס הקטגוריות", Toast.LENGTH_SHORT).show();
+            return true;
+        });
         deleteButton.setOnClickListener(v -> confirmDeleteLists());
-        // ListView item click listener
-        listView.setOnItemClickListener((parent, view, position, id) -> {
-            Product product = adapter.getProduct(position);
+        // Long-press on the title opens the hidden diagnostics screen
+        findViewById(R.id.title).setOnLongClickListener(v -> {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
+            return true;
+        });
+    }
 
-            if (product != null)
+    // Adds a row for each list, keyed by the list's permanent ID so lists with the same name stay apart
+    private void addRows(List<ListSharedObject> lists, List<Product> rows)
+    {
+        for (ListSharedObject list: lists)
+        {
+            if (sharedLists.put(list.getId(), list) == null) // A list moved to a later page is shown once
             {
-                String listName = product.name.substring(0, product.name.indexOf(",")); // Extract list name
-                Intent intent = new Intent(AdminSharedListsActivity.this, SharedListsProductsActivity.class);
-                intent.putExtra("IS_ADMIN", true); // Sending admin flag
-                intent.putExtra("LIST_NAME", listName);
-                intent.putExtra("LIST_KEY", String.valueOf(positionMap.get(position))); // Add list ID to intent
-                intent.putExtra("From_AdminMode", true);
-                startActivity(intent);
+                rows.add(new Product(list.getId(), list.toString(), false)); // Convert each list object to a Product and add it to the adapter list
             }
-        });
+        }
+    }
+
+    // Opens the shared list shown in the clicked row
+    private void openSharedList(Product product)
+    {
+        ListSharedObject list = sharedLists.get(product.getId());
+
+        if (list != null)
+        {
+            Intent intent = new Intent(AdminSharedListsActivity.this, SharedListsProductsActivity.class);
+            intent.putExtra("LIST_NAME", list.getListName());
+            intent.putExtra("LIST_KEY", list.getId()); // Add list ID to intent
+            intent.putExtra("LIST_CATEGORIES", list.getCategories());
+            intent.putExtra("From_AdminMode", true);
+            startActivity(intent);
+        }
     }
 
     @Override
@@ -95,9 +144,8 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
     {
         if (view.getId() == R.id.back)
         {
-            Intent intent = new Intent(this, MyListsActivity.class);
-            intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            startActivity(intent);
+            // Return to MyListsActivity, which is still below this screen
+            finish();
         }
     }
     private void confirmDeleteLists()
@@ -109,13 +157,15 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
                 {
                     Boolean getToast = false;
                     // Collect selected products
-                    for (int i = 0; i < adapter.getCount(); i++)
+                    for (Product product : adapter.getProducts())
                     {
-                        Product product = adapter.getProduct(i);
                         if (product.box) // Check if the product is selected (box checked)
                         {
-                            String listName = product.name.substring(0, product.name.indexOf(","));
-                            String keyPrefix =  listName + positionMap.get(i);
+                            ListSharedObject list = sharedLists.get(product.getId());
+                            String listName = list.getListName();
+                            String listId = list.getId();
+                            // The initial shared lists kept their original index as their permanent ID
+                            String keyPrefix =  listName + listId;
                             if (keyPrefix.equals("רשימת ספקים לחתונה4") ||
                                     keyPrefix.equals("רשימת ציוד לחו\"ל1") ||
                                     keyPrefix.equals("רשימת ציוד למתגייס2") ||
@@ -127,8 +177,7 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
                             }
                             else
                             {
-                                selectedLists.add(listName);
-                                indexesLists.add(positionMap.get(i));
+                                selectedLists.add(list);
                             }
 
 
@@ -144,7 +193,7 @@ public class AdminSharedListsActivity extends AppCompatActivity implements View.
                     }
                     else
                     {
-                        viewModel.deleteSharedLists(selectedLists, indexesLists, adapter.getCount());
+                        viewModel.deleteSharedLists(selectedLists);
                         selectedLists.clear();
                     }
                 })
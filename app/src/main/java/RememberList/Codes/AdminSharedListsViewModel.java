@@ -12,13 +12,17 @@ import java.util.List;
 public class AdminSharedListsViewModel extends AndroidViewModel {
     private final Repository repository;
     private final MutableLiveData<List<ListSharedObject>> listsLiveData = new MutableLiveData<>();
+    private final MutableLiveData<List<ListSharedObject>> nextPageLiveData = new MutableLiveData<>();
     private final MutableLiveData<Boolean> loadingLiveData = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> pageLoadingLiveData = new MutableLiveData<>();
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
+    private final SharedListsPager pager;
 
     public AdminSharedListsViewModel(@NonNull Application application) {
         super(application);
         // Initialize the repository with the application context.
-        repository = new Repository(application);
+        repository = AppContainer.from(application).getRepository();
+        pager = new SharedListsPager(repository, listsLiveData, nextPageLiveData, loadingLiveData, pageLoadingLiveData, errorLiveData);
     }
     
      /**
@@ -30,6 +34,15 @@ public class AdminSharedListsViewModel extends AndroidViewModel {
         return listsLiveData;
     }
     
+    /**
+     * Returns the LiveData containing the pages loaded after the first one.
+     *
+     * @return LiveData of the last loaded page of shared lists.
+     */
+    public LiveData<List<ListSharedObject>> getNextPageLiveData() {
+        return nextPageLiveData;
+    }
+
     /**
      * Returns the LiveData indicating the loading status.
      *
@@ -49,26 +62,54 @@ public class AdminSharedListsViewModel extends AndroidViewModel {
     }
 
     /**
-     * Fetches the shared lists from Firebase.
+     * Fetches the first page of the shared lists, from the cache when it holds it.
      */
     public void getSharedLists() {
+        getSharedLists(false);
+    }
+
+    /**
+     * Fetches the first page of the shared lists again from the server.
+     */
+    public void refreshSharedLists() {
+        getSharedLists(true);
+    }
+
+    private void getSharedLists(boolean fresh) {
         if (Boolean.TRUE.equals(loadingLiveData.getValue())) {
             return;
         }
 
         loadingLiveData.setValue(true);
         try {
-            repository.getSharedLists(listsLiveData, loadingLiveData, errorLiveData);
+            pager.loadFirstPage(fresh);
         } catch (Exception e) {
             errorLiveData.setValue("Failed to load lists: " + e.getMessage());
             loadingLiveData.setValue(false);
         }
     }
 
+    /**
+     * Fetches the next page of the shared lists, if there is one.
+     */
+    public void loadNextPage() {
+        pager.loadNextPage();
+    }
+
+    /**
+     * Rebuilds the category index of the shared lists from the lists themselves.
+     */
+    public void rebuildCategoryIndex()
+    {
+        repository.rebuildCategoryIndex(loadingLiveData, errorLiveData);
+    }
+
     /**
      * Deletes selected shared lists.
+     *
+     * @param listsToDelete The shared lists to delete.
      */
-    public void deleteSharedLists(List<String> listsToDelete, List<Integer> indexesToDelete, int sharedListsSize)
+    public void deleteSharedLists(List<ListSharedObject> listsToDelete)
     {
         if (listsToDelete.isEmpty()) {
             return;
@@ -77,7 +118,7 @@ public class AdminSharedListsViewModel extends AndroidViewModel {
         loadingLiveData.setValue(true);
         try
         {
-            repository.deleteSharedLists(indexesToDelete, listsToDelete, loadingLiveData, errorLiveData);
+            repository.deleteSharedLists(listsToDelete, loadingLiveData, errorLiveData);
             // Observe the loading state and reload the lists after the add operation completes
             loadingLiveData.observeForever(new Observer<Boolean>()
             {
@@ -0,0 +1,121 @@
+package RememberList.Codes;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * Caches whether the signed-in user is an admin, so screens can read it synchronously
+ * instead of passing it from screen to screen or asking the server on every start.
+ * The cached role is stored with the user's email and trusted for TTL_MILLIS after it was last confirmed.
+ * While watched, the role is revalidated in the background and any change (such as the role
+ * being removed) is published through getIsAdminLiveData.
+ */
+public class AdminStatusCache
+{
+    // How long a confirmed role is trusted without asking the server again
+    static final long TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final String PREFS_NAME = "admin_status";
+    private static final String KEY_EMAIL = "email";
+    private static final String KEY_IS_ADMIN = "isAdmin";
+    private static final String KEY_CHECKED_AT = "checkedAt";
+
+    private final Repository repository;
+    private final SharedPreferences prefs;
+    // Null until the role is known: from a fresh cache entry or from the server
+    private final MutableLiveData<Boolean> isAdminLiveData = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> serverLiveData = new MutableLiveData<>();
+    private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
+    private final Observer<Boolean> serverObserver = this::onServerValue;
+    private ValueEventListener adminListener;
+
+    AdminStatusCache(Context context, Repository repository)
+    {
+        this.repository = repository;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        serverLiveData.observeForever(serverObserver);
+    }
+
+    /**
+     * Returns the cached role of the signed-in user, without any network access.
+     * A missing or expired entry counts as not admin.
+     */
+    public boolean isAdmin()
+    {
+        return isFresh() && prefs.getBoolean(KEY_IS_ADMIN, false);
+    }
+
+    /**
+     * Returns whether the cache holds a role of the signed-in user that is still within its TTL.
+     */
+    public boolean isFresh()
+    {
+        if (repository.getCurrentUser() == null)
+        {
+            return false;
+        }
+        String email = repository.getCurrentUser().getEmail();
+        long age = System.currentTimeMillis() - prefs.getLong(KEY_CHECKED_AT, 0);
+        return email != null && email.equals(prefs.getString(KEY_EMAIL, null)) && age >= 0 && age < TTL_MILLIS;
+    }
+
+    /**
+     * Publishes the role whenever it becomes known or changes; null while it is unknown.
+     */
+    public LiveData<Boolean> getIsAdminLiveData()
+    {
+        return isAdminLiveData;
+    }
+
+    /**
+     * Starts revalidating the role of the signed-in user in the background and keeps watching it.
+     * A fresh cached role is published at once, so callers do not wait for the server.
+     */
+    public void startWatching()
+    {
+        stopWatching();
+        isAdminLiveData.setValue(isFresh() ? isAdmin() : null);
+        adminListener = repository.listenToAdminStatus(serverLiveData, errorLiveData);
+    }
+
+    /**
+     * Stops watching the role and forgets it, for example when the user signs out.
+     */
+    public void clear()
+    {
+        stopWatching();
+        prefs.edit().clear().apply();
+        isAdminLiveData.setValue(null);
+    }
+
+    private void stopWatching()
+    {
+        if (adminListener != null)
+        {
+            repository.stopListeningToAdminStatus(adminListener);
+            adminListener = null;
+        }
+    }
+
+    // Stores a role confirmed by the server and publishes it if it changed
+    private void onServerValue(Boolean isAdmin)
+    {
+        if (isAdmin == null || repository.getCurrentUser() == null)
+        {
+            return;
+        }
+        prefs.edit()
+                .putString(KEY_EMAIL, repository.getCurrentUser().getEmail())
+                .putBoolean(KEY_IS_ADMIN, isAdmin)
+                .putLong(KEY_CHECKED_AT, System.currentTimeMillis())
+                .apply();
+        if (!isAdmin.equals(isAdminLiveData.getValue()))
+        {
+            isAdminLiveData.setValue(isAdmin);
+        }
+    }
+}
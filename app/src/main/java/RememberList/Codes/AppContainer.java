@@ -0,0 +1,78 @@
+package RememberList.Codes;
+
+import android.content.Context;
+
+import RememberList.Core.MetricsRegistry;
+
+/**
+ * Holds the objects that live as long as the app process and are shared by every screen.
+ * ViewModels and adapters take the repository from here instead of creating their own,
+ * so its references, caches and buffered writes are kept across screens.
+ */
+public class AppContainer
+{
+    private final StartupTrace startupTrace;
+    private final MetricsRegistry metrics;
+    private final Repository repository;
+    private final AdminStatusCache adminStatus;
+    private final StartupOrchestrator startup;
+    private final SharedItemIndexStore sharedItemIndex;
+
+    AppContainer(Context context)
+    {
+        // The trace starts first, so it measures the whole startup
+        startupTrace = new StartupTrace();
+        metrics = new MetricsRegistry();
+        LocalCache.setMetrics(metrics);
+        repository = new Repository(context.getApplicationContext(), metrics);
+        adminStatus = new AdminStatusCache(context.getApplicationContext(), repository);
+        startup = new StartupOrchestrator(repository, adminStatus, startupTrace);
+        sharedItemIndex = new SharedItemIndexStore(context.getApplicationContext(), repository);
+    }
+
+    /**
+     * Returns the container of the app.
+     *
+     * @param context Any context of the app.
+     */
+    public static AppContainer from(Context context)
+    {
+        return ((RememberListApplication) context.getApplicationContext()).getContainer();
+    }
+
+    // Returns the repository shared by the whole app
+    public Repository getRepository()
+    {
+        return repository;
+    }
+
+    // Returns the cached admin status of the signed-in user
+    public AdminStatusCache getAdminStatus()
+    {
+        return adminStatus;
+    }
+
+    // Returns the index of the shared lists' items kept on the device
+    public SharedItemIndexStore getSharedItemIndex()
+    {
+        return sharedItemIndex;
+    }
+
+    // Returns the orchestrator of the cold start
+    public StartupOrchestrator getStartup()
+    {
+        return startup;
+    }
+
+    // Returns the trace of the cold start phases
+    public StartupTrace getStartupTrace()
+    {
+        return startupTrace;
+    }
+
+    // Returns the metrics of the repository's operations
+    public MetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+}
@@ -0,0 +1,154 @@
+package RememberList.Codes;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.widget.ImageButton;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import RememberList.Core.LatencyHistogram;
+import RememberList.Core.MetricsRegistry;
+import RememberList.Core.OperationStats;
+
+/**
+ * A hidden admin screen that shows the metrics of the repository's operations since the app started:
+ * calls, errors, bytes and latency percentiles per operation, and the share of reads the cache answered.
+ * The metrics can be exported as a JSON file for offline analysis. Opened by a long press on the title
+ * of the admin screen.
+ */
+public class DiagnosticsActivity extends AppCompatActivity
+{
+    private static final int REQUEST_EXPORT = 200;
+
+    private MetricsRegistry metrics;
+    private TextView metricsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState)
+    {
+        super.onCreate(savedInstanceState);
+        AppContainer container = AppContainer.from(this);
+        // Only admins may see the diagnostics
+        if (!container.getAdminStatus().isAdmin())
+        {
+            finish();
+            return;
+        }
+        setContentView(R.layout.activity_diagnostics);
+        metrics = container.getMetrics();
+        metricsText = findViewById(R.id.metricsText);
+        ImageButton backButton = findViewById(R.id.back);
+        ImageButton refreshButton = findViewById(R.id.refresh);
+        ImageButton exportButton = findViewById(R.id.export);
+
+        // Leave the screen as soon as the admin role is removed
+        container.getAdminStatus().getIsAdminLiveData().observe(this, isAdmin -> {
+            if (Boolean.FALSE.equals(isAdmin))
+            {
+                finish();
+            }
+        });
+
+        backButton.setOnClickListener(v -> finish());
+        refreshButton.setOnClickListener(v -> showMetrics());
+        // Long-press on refresh starts measuring from zero
+        refreshButton.setOnLongClickListener(v -> {
+            metrics.reset();
+            showMetrics();
+            Toast.makeText(this, "המדדים אופסו", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+        exportButton.setOnClickListener(v -> {
+            // Let the user choose where to save the file, so no storage permission is needed
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("application/json");
+            intent.putExtra(Intent.EXTRA_TITLE, "rememberlist-metrics-" + System.currentTimeMillis() + ".json");
+            startActivityForResult(intent, REQUEST_EXPORT);
+        });
+    }
+
+    @Override
+    protected void onResume()
+    {
+        super.onResume();
+        if (metrics != null)
+        {
+            showMetrics();
+        }
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data)
+    {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_EXPORT && resultCode == RESULT_OK && data != null && data.getData() != null)
+        {
+            export(data.getData());
+        }
+    }
+
+    // Writes the metrics as JSON to the file the user chose
+    private void export(Uri uri)
+    {
+        try (OutputStream out = getContentResolver().openOutputStream(uri))
+        {
+            if (out == null)
+            {
+                throw new IOException("No output stream for " + uri);
+            }
+            out.write(metrics.toJson(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+            Toast.makeText(this, "המדדים יוצאו", Toast.LENGTH_SHORT).show();
+        }
+        catch (IOException e)
+        {
+            Toast.makeText(this, "הייצוא נכשל: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void showMetrics()
+    {
+        List<OperationStats> operations = metrics.getOperations();
+        if (operations.isEmpty())
+        {
+            metricsText.setText("עדיין לא נמדדו פעולות");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        double hitRatio = LocalCache.getHitRatio(metrics);
+        if (hitRatio >= 0)
+        {
+            text.append(String.format(Locale.US, "קריאות שנענו מהמטמון: %.0f%%%n%n", hitRatio * 100));
+        }
+        for (OperationStats operation : operations)
+        {
+            LatencyHistogram latency = operation.getLatency();
+            text.append(operation.getName()).append('\n')
+                    .append(String.format(Locale.US, "  קריאות %d  שגיאות %d  %s%n",
+                            operation.getCalls(), operation.getErrors(), formatBytes(operation.getBytes())))
+                    .append(String.format(Locale.US, "  p50 %s  p90 %s  p99 %s  max %s%n%n",
+                            formatMicros(latency.getValueAtPercentile(50)), formatMicros(latency.getValueAtPercentile(90)),
+                            formatMicros(latency.getValueAtPercentile(99)), formatMicros(latency.getMax())));
+        }
+        metricsText.setText(text.toString());
+    }
+
+    private static String formatMicros(long micros)
+    {
+        return String.format(Locale.US, "%.1fms", micros / 1000.0);
+    }
+
+    private static String formatBytes(long bytes)
+    {
+        return bytes < 1024 ? bytes + " B" : String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+    }
+}
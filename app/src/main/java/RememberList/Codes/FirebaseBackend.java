@@ -0,0 +1,201 @@
+package RememberList.Codes;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import RememberList.Core.Database;
+import RememberList.Core.ListStore;
+
+/**
+ * The core module's Database over the Firebase Realtime Database, for the data operations of DatabaseListStore.
+ * Reads go through LocalCache, so they are served from the disk cache and reported to the metrics like every other read.
+ * Callbacks are called on the main thread.
+ */
+public class FirebaseBackend implements Database
+{
+    private final DatabaseReference root;
+
+    /**
+     * @param root The node the paths start from ("Lists").
+     */
+    public FirebaseBackend(DatabaseReference root)
+    {
+        this.root = root;
+    }
+
+    @Override
+    public void read(String path, ListStore.Callback<Object> callback)
+    {
+        LocalCache.read(root.child(path), valueListener(callback));
+    }
+
+    @Override
+    public void readFresh(String path, ListStore.Callback<Object> callback)
+    {
+        LocalCache.readFresh(root.child(path), valueListener(callback));
+    }
+
+    @Override
+    public void readLast(String path, String field, Long beforeValue, String beforeKey, int limit, boolean fresh,
+                         ListStore.Callback<Map<String, Object>> callback)
+    {
+        Query query = root.child(path).orderByChild(field);
+        if (beforeKey != null)
+        {
+            // The key breaks ties between children with the same value
+            query = query.endBefore(beforeValue != null ? beforeValue.doubleValue() : 0, beforeKey);
+        }
+        ValueEventListener listener = new ValueEventListener()
+        {
+            @Override
+            public void onDataChange(DataSnapshot snapshot)
+            {
+                // The snapshot's children are in the query's order
+                Map<String, Object> children = new LinkedHashMap<>();
+                for (DataSnapshot child : snapshot.getChildren())
+                {
+                    children.put(child.getKey(), child.getValue());
+                }
+                callback.onResult(children);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error)
+            {
+                callback.onError(error.getMessage());
+            }
+        };
+        if (fresh)
+        {
+            LocalCache.readFresh(query.limitToLast(limit), listener);
+        }
+        else
+        {
+            LocalCache.read(query.limitToLast(limit), listener);
+        }
+    }
+
+    @Override
+    public Registration listen(String path, ValueListener listener)
+    {
+        DatabaseReference node = root.child(path);
+        ValueEventListener valueListener = node.addValueEventListener(new ValueEventListener()
+        {
+            @Override
+            public void onDataChange(DataSnapshot snapshot)
+            {
+                listener.onValue(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error)
+            {
+                listener.onError(error.getMessage());
+            }
+        });
+        return () -> node.removeEventListener(valueListener);
+    }
+
+    @Override
+    public Registration listenToChildren(String path, String field, ChildListener listener)
+    {
+        Query query = root.child(path).orderByChild(field);
+        ChildEventListener childListener = query.addChildEventListener(new ChildEventListener()
+        {
+            @Override
+            public void onChildAdded(DataSnapshot child, String previousChildName)
+            {
+                listener.onChildAdded(child.getKey(), child.getValue(), previousChildName);
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot child, String previousChildName)
+            {
+                listener.onChildChanged(child.getKey(), child.getValue(), previousChildName);
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot child, String previousChildName)
+            {
+                listener.onChildMoved(child.getKey(), child.getValue(), previousChildName);
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot child)
+            {
+                listener.onChildRemoved(child.getKey());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error)
+            {
+                listener.onError(error.getMessage());
+            }
+        });
+        return () -> query.removeEventListener(childListener);
+    }
+
+    @Override
+    public void update(String path, Map<String, Object> children, ListStore.Callback<Void> callback)
+    {
+        DatabaseReference node = path.isEmpty() ? root : root.child(path);
+        node.updateChildren(children, (error, ref) -> {
+            if (error != null)
+            {
+                callback.onError(error.getMessage());
+            }
+            else
+            {
+                callback.onResult(null);
+            }
+        });
+    }
+
+    /**
+     * Returns a push ID, generated locally without touching the network.
+     */
+    @Override
+    public String newKey()
+    {
+        return root.push().getKey();
+    }
+
+    @Override
+    public Object timestamp()
+    {
+        return ServerValue.TIMESTAMP;
+    }
+
+    @Override
+    public Object increment(long delta)
+    {
+        return ServerValue.increment(delta);
+    }
+
+    // Passes the value of a snapshot, as plain Java values, to the callback
+    private static ValueEventListener valueListener(ListStore.Callback<Object> callback)
+    {
+        return new ValueEventListener()
+        {
+            @Override
+            public void onDataChange(DataSnapshot snapshot)
+            {
+                callback.onResult(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error)
+            {
+                callback.onError(error.getMessage());
+            }
+        };
+    }
+}
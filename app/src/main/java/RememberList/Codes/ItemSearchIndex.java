@@ -0,0 +1,333 @@
+package RememberList.Codes;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the items of the shared lists, so lists can be found by what they contain.
+ * Items are normalized like list names (see SharedListSearchIndex.normalize) and split into words.
+ * Lists are added and removed one at a time, so the index is kept up to date without rebuilding it.
+ * A query matches the lists that have, for every word of the query, an item word starting with it;
+ * lists are ranked by how many of their items match, weighting rare words higher.
+ * Used from one thread at a time.
+ */
+public class ItemSearchIndex
+{
+    // The version of the stored format; stored indexes of another version are discarded
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * A list that matched a query.
+     */
+    public static class Hit
+    {
+        private final String listId;
+        private final double score;
+
+        Hit(String listId, double score)
+        {
+            this.listId = listId;
+            this.score = score;
+        }
+
+        public String getListId()
+        {
+            return listId;
+        }
+
+        public double getScore()
+        {
+            return score;
+        }
+    }
+
+    // Words mapped to the lists that contain them and how many of each list's items contain them
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // Lists mapped to their words and counts, to remove a list without scanning every word
+    private final Map<String, Map<String, Integer>> lists = new HashMap<>();
+
+    /**
+     * Adds a list's items, replacing the items indexed for it before.
+     *
+     * @param listId The permanent ID of the shared list.
+     * @param items The items of the list.
+     */
+    public void addList(String listId, Collection<String> items)
+    {
+        removeList(listId);
+        Map<String, Integer> terms = new HashMap<>();
+        Set<String> itemTerms = new HashSet<>();
+        for (String item : items)
+        {
+            if (item == null)
+            {
+                continue;
+            }
+            // A word counts once per item, so an item repeating a word does not outrank two items
+            itemTerms.clear();
+            tokenize(item, itemTerms);
+            for (String term : itemTerms)
+            {
+                Integer count = terms.get(term);
+                terms.put(term, count == null ? 1 : count + 1);
+            }
+        }
+        putTerms(listId, terms);
+    }
+
+    /**
+     * Removes a list from the index.
+     *
+     * @param listId The permanent ID of the shared list.
+     */
+    public void removeList(String listId)
+    {
+        Map<String, Integer> terms = lists.remove(listId);
+        if (terms == null)
+        {
+            return;
+        }
+        for (String term : terms.keySet())
+        {
+            Map<String, Integer> posting = postings.get(term);
+            posting.remove(listId);
+            if (posting.isEmpty())
+            {
+                postings.remove(term);
+            }
+        }
+    }
+
+    public boolean containsList(String listId)
+    {
+        return lists.containsKey(listId);
+    }
+
+    // Returns the IDs of the indexed lists
+    public Set<String> getListIds()
+    {
+        return Collections.unmodifiableSet(lists.keySet());
+    }
+
+    // Returns the number of distinct words in the index
+    public int getTermCount()
+    {
+        return postings.size();
+    }
+
+    /**
+     * Finds the lists with items matching every word of the query, best first.
+     *
+     * @param query The text the user typed.
+     * @param limit The maximum number of lists to return.
+     */
+    public List<Hit> search(String query, int limit)
+    {
+        Set<String> queryTerms = new HashSet<>();
+        tokenize(query, queryTerms);
+        List<Hit> hits = new ArrayList<>();
+        if (queryTerms.isEmpty() || lists.isEmpty())
+        {
+            return hits;
+        }
+        Map<String, Double> scores = null;
+        for (String queryTerm : queryTerms)
+        {
+            Map<String, Double> termScores = new HashMap<>();
+            // Every indexed word starting with the query word matches it
+            SortedMap<String, Map<String, Integer>> matching = postings.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+            for (Map.Entry<String, Map<String, Integer>> term : matching.entrySet())
+            {
+                Map<String, Integer> posting = term.getValue();
+                double idf = Math.log(1 + (double) lists.size() / posting.size());
+                for (Map.Entry<String, Integer> list : posting.entrySet())
+                {
+                    // Lists dropped by an earlier query word cannot match any more
+                    if (scores != null && !scores.containsKey(list.getKey()))
+                    {
+                        continue;
+                    }
+                    Double score = termScores.get(list.getKey());
+                    termScores.put(list.getKey(), (score == null ? 0 : score) + list.getValue() * idf);
+                }
+            }
+            if (scores != null)
+            {
+                for (Map.Entry<String, Double> list : termScores.entrySet())
+                {
+                    list.setValue(list.getValue() + scores.get(list.getKey()));
+                }
+            }
+            scores = termScores;
+            if (scores.isEmpty())
+            {
+                return hits;
+            }
+        }
+        for (Map.Entry<String, Double> list : scores.entrySet())
+        {
+            hits.add(new Hit(list.getKey(), list.getValue()));
+        }
+        Collections.sort(hits, (a, b) -> Double.compare(b.score, a.score));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Writes the index in a compact form: every word is written once, and each list refers to
+     * its words by their position, as variable-length numbers.
+     */
+    public void writeTo(OutputStream output) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(FORMAT_VERSION);
+        Map<String, Integer> termIndexes = new HashMap<>();
+        writeVarInt(out, postings.size());
+        for (String term : postings.keySet())
+        {
+            termIndexes.put(term, termIndexes.size());
+            out.writeUTF(term);
+        }
+        writeVarInt(out, lists.size());
+        for (Map.Entry<String, Map<String, Integer>> list : lists.entrySet())
+        {
+            out.writeUTF(list.getKey());
+            writeVarInt(out, list.getValue().size());
+            for (Map.Entry<String, Integer> term : list.getValue().entrySet())
+            {
+                writeVarInt(out, termIndexes.get(term.getKey()));
+                writeVarInt(out, term.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads an index written by writeTo.
+     *
+     * @throws IOException If the data is damaged or was written in another format version.
+     */
+    public static ItemSearchIndex readFrom(InputStream input) throws IOException
+    {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported item index version");
+        }
+        // The counts are not trusted to size arrays, so a damaged count fails on the missing data instead
+        int termCount = readCount(in);
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < termCount; i++)
+        {
+            terms.add(in.readUTF());
+        }
+        ItemSearchIndex index = new ItemSearchIndex();
+        int listCount = readCount(in);
+        for (int i = 0; i < listCount; i++)
+        {
+            String listId = in.readUTF();
+            int listTermCount = readCount(in);
+            Map<String, Integer> listTerms = new HashMap<>();
+            for (int j = 0; j < listTermCount; j++)
+            {
+                int term = readCount(in);
+                if (term >= terms.size())
+                {
+                    throw new IOException("Unknown word in item index");
+                }
+                int count = readCount(in);
+                if (count == 0)
+                {
+                    throw new IOException("Empty word count in item index");
+                }
+                listTerms.put(terms.get(term), count);
+            }
+            index.putTerms(listId, listTerms);
+        }
+        return index;
+    }
+
+    // A list without words is still recorded, so it is not fetched again
+    private void putTerms(String listId, Map<String, Integer> terms)
+    {
+        lists.put(listId, terms);
+        for (Map.Entry<String, Integer> term : terms.entrySet())
+        {
+            Map<String, Integer> posting = postings.get(term.getKey());
+            if (posting == null)
+            {
+                posting = new HashMap<>();
+                postings.put(term.getKey(), posting);
+            }
+            posting.put(listId, term.getValue());
+        }
+    }
+
+    // Splits normalized text into words of letters and digits
+    static void tokenize(String text, Set<String> terms)
+    {
+        String normalized = SharedListSearchIndex.normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++)
+        {
+            boolean inWord = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (inWord && start == -1)
+            {
+                start = i;
+            }
+            else if (!inWord && start != -1)
+            {
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // Reads a number that cannot be negative, such as a count or a position
+    private static int readCount(DataInputStream in) throws IOException
+    {
+        int value = readVarInt(in);
+        if (value < 0)
+        {
+            throw new IOException("Negative number in item index");
+        }
+        return value;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in item index");
+    }
+}
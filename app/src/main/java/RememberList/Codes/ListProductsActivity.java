@@ -9,7 +9,6 @@ import android.os.Bundle;
 import android.speech.RecognizerIntent;
 import android.view.View;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -19,6 +18,8 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,12 +31,12 @@ import java.util.Collections;
 public class ListProductsActivity extends AppCompatActivity implements View.OnClickListener
 {
     private ListProductsViewModel viewModel; // ViewModel for managing data
-    private ListProductsAdapter boxAdapter; // Adapter for the ListView
+    private ListProductsAdapter boxAdapter; // Adapter for the RecyclerView
     private EditText editText; // Input field for adding products
-    private ListView lvMain; // ListView for displaying products
+    private RecyclerView lvMain; // RecyclerView for displaying products
     private ArrayList<Product> selectedProducts = new ArrayList<>(); // List to hold selected products for deletion
     private String listName; // The name of the list being managed
-    private String listKey; // The key of the list being managed
+    private String listKey; // The permanent ID of the list being managed
 
 
     private ArrayList<String> valuesList; // Data list for the adapter
@@ -46,7 +47,6 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
 
 
     private ArrayList<String> categories = new ArrayList<>();
-    private boolean isAdmin = false; // Track if user is admin
 
     @Override
     protected void onCreate(Bundle savedInstanceState)
@@ -61,6 +61,7 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
         // Initialize UI elements
         editText = findViewById(R.id.editText);
         lvMain = findViewById(R.id.listView);
+        lvMain.setLayoutManager(new LinearLayoutManager(this));
 
         valuesList = new ArrayList<>();
 
@@ -68,24 +69,16 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
         // Initialize ViewModel
         viewModel = new ViewModelProvider(this).get(ListProductsViewModel.class);
         listName = getIntent().getStringExtra("LIST_NAME"); // Get the list name passed via Intent
-        listKey = getIntent().getStringExtra("LIST_KEY"); // Get the key of the list passed via Intent
-        isAdmin = getIntent().getBooleanExtra("IS_ADMIN",false); // Get the key of the list passed via Intent
+        listKey = getIntent().getStringExtra("LIST_KEY"); // Get the permanent ID of the list passed via Intent
         TextView title = findViewById(R.id.textview);
         title.setText(listName);
         viewModel.init(listName,listKey); // Initialize ViewModel with the list name
-        // Observe products LiveData to update the UI when data changes
-        viewModel.getProducts().observe(this, products ->
-        {
-            if (products != null && !products.get(0).name.equals(""))
-            {
-                boxAdapter = new ListProductsAdapter(ListProductsActivity.this, listName+listKey, new ArrayList<>(products),true); // Ensure a fresh ArrayList
-            }
-            else
-            {
-                boxAdapter = new ListProductsAdapter(ListProductsActivity.this, listName + listKey, new ArrayList<>(), true);
-            }
-            lvMain.setAdapter(boxAdapter); // Set the adapter for the ListView
-        });
+        // Build the adapter once from the current products; later changes are applied to it one by one
+        boxAdapter = new ListProductsAdapter(ListProductsActivity.this, new ArrayList<>(viewModel.takeProducts()), true);
+        boxAdapter.setOnProductCheckedListener(viewModel::changeProductBox);
+        lvMain.setAdapter(boxAdapter); // Set the adapter for the RecyclerView
+        // Apply the changes streamed from the database (including edits made on other devices)
+        viewModel.getPendingChanges().observe(this, count -> boxAdapter.applyChanges(viewModel.takeChanges()));
 
         // Create the Notification Channel (Only for Android 8.0+)
         createNotificationChannel();
@@ -133,13 +126,8 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
         else if (view.getId() == R.id.back)
         {
             checkAndShowNotification();
-            // Navigate back to MyListsActivity
-            Intent intent = new Intent(this, MyListsActivity.class);
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            }
-            startActivity(intent);
+            // Return to MyListsActivity, which is still below this screen and only re-checks its version
+            finish();
         }
         else if (view.getId() == R.id.share)
         {
@@ -287,6 +275,8 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
     @Override
     protected void onStop() {
         super.onStop();
+        // Send the buffered checkbox changes before the app may be killed in the background
+        viewModel.flushPendingWrites();
         checkAndShowNotification();
     }
 
@@ -311,7 +301,7 @@ public class ListProductsActivity extends AppCompatActivity implements View.OnCl
                     // Delete selected products via ViewModel
                     if(selectedProducts.size() > 0)
                     {
-                        viewModel.deleteProducts(selectedProducts, boxAdapter.getCount());
+                        viewModel.deleteProducts(selectedProducts);
                         selectedProducts.clear(); // Clear the selected products list
                         Toast.makeText(this, "נמחקו הערכים המסומנים", Toast.LENGTH_SHORT).show(); // Show confirmation
                     }
@@ -5,115 +5,298 @@ import android.graphics.Paint;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.CompoundButton.OnCheckedChangeListener;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-// ListAdapter extends BaseAdapter to manage the list of Product objects
-public class ListProductsAdapter extends BaseAdapter
+// ListProductsAdapter shows Product rows in a RecyclerView; list updates are diffed off the main thread
+public class ListProductsAdapter extends ListAdapter<Product, ListProductsAdapter.ProductViewHolder>
 {
-    Context ctx;  // Context to access resources and system services
-    LayoutInflater lInflater;  // Inflater to create views from XML layouts
-    ArrayList<Product> objects;  // List of products to display
-    ArrayList<TextView> arr;  // Array list to hold TextView references
-    private final Repository repository; // Repository to manage data operations
-    String keyPrefix;
+    // Callback for clicks on a row
+    public interface OnProductClickListener
+    {
+        void onProductClick(Product product);
+    }
+
+    // Callback for checkbox changes of a row
+    public interface OnProductCheckedListener
+    {
+        void onProductChecked(Product product);
+    }
+
+    // Two rows show the same item if they have the same ID; they look the same if name and checkbox match
+    private static final DiffUtil.ItemCallback<Product> DIFF_CALLBACK = new DiffUtil.ItemCallback<Product>()
+    {
+        @Override
+        public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem)
+        {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem)
+        {
+            return oldItem.name.equals(newItem.name) && oldItem.box == newItem.box;
+        }
+    };
+
+    // Rebinds only the checkbox of a row, for a tap that changed it
+    private static final Object PAYLOAD_CHECKED = new Object();
+
+    private final LayoutInflater lInflater;  // Inflater to create views from XML layouts
     // <-- Add a field to control strike-through
-    private boolean enableStrikeThrough;
+    private final boolean enableStrikeThrough;
+    private final Map<String, Long> stableIds = new HashMap<>(); // Item IDs mapped to their stable row IDs, assigned on submit
+    private long nextStableId = 0; // Row IDs are never reused, so a removed item's ID is not given to another
+    private List<Product> latest; // The last submitted list, which the diff may not have reached yet
+    private boolean diffing; // True until the last submitted list is shown
+    private OnProductClickListener clickListener;
+    private OnProductCheckedListener checkedListener;
+
     // Constructor to initialize the adapter with context and product list
-    public ListProductsAdapter(Context context, String keyPrefix, ArrayList<Product> products, boolean enableStrikeThrough)
-    {
-        ctx = context;
-        objects = products;
-        arr = new ArrayList<>();
-        lInflater = (LayoutInflater) ctx.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        repository = new Repository(context); // Initialize the repository
-        this.keyPrefix = keyPrefix;
+    public ListProductsAdapter(Context context, ArrayList<Product> products, boolean enableStrikeThrough)
+    {
+        super(DIFF_CALLBACK);
+        lInflater = LayoutInflater.from(context);
         // Save the parameter
         this.enableStrikeThrough = enableStrikeThrough;
+        setHasStableIds(true);
+        submitProducts(products);
     }
-    // Returns the total number of items in the list
+
+    // Sets the listener that is called when a row is clicked
+    public void setOnProductClickListener(OnProductClickListener clickListener)
+    {
+        this.clickListener = clickListener;
+    }
+
+    // Sets the listener that is called when a row's checkbox changes; rows without one are not saved
+    public void setOnProductCheckedListener(OnProductCheckedListener checkedListener)
+    {
+        this.checkedListener = checkedListener;
+    }
+
+    // Replaces the shown products; only the rows that differ are rebound. Every product must have an ID
+    public void submitProducts(List<Product> products)
+    {
+        submit(new ArrayList<>(products));
+    }
+
+    // Applies streamed changes to the shown products in one update
+    void applyChanges(List<ProductChange> changes)
+    {
+        if (changes.isEmpty())
+        {
+            return;
+        }
+        List<Product> next = new ArrayList<>(latest);
+        for (ProductChange change : changes)
+        {
+            change.applyTo(next);
+        }
+        submit(next);
+    }
+
+    private void submit(List<Product> products)
+    {
+        // Row IDs are assigned here, once per item, so binding only looks them up
+        for (Product product : products)
+        {
+            if (!stableIds.containsKey(product.getId()))
+            {
+                stableIds.put(product.getId(), nextStableId++);
+            }
+        }
+        latest = products;
+        diffing = true;
+        // The row IDs of removed items are dropped once the list is shown, while their rows may still be bound
+        submitList(products, () -> {
+            if (latest == products)
+            {
+                diffing = false;
+                pruneStableIds();
+            }
+        });
+    }
+
+    private void pruneStableIds()
+    {
+        Set<String> shown = new HashSet<>();
+        for (Product product : latest)
+        {
+            shown.add(product.getId());
+        }
+        stableIds.keySet().retainAll(shown);
+    }
+
+    // Returns the number of submitted products, including those the diff did not show yet
+    public int getCount()
+    {
+        return latest.size();
+    }
+
+    // Returns a stable ID for the item at the specified position, so rows keep their views across updates
     @Override
-    public int getCount() {
-        return objects.size();
+    public long getItemId(int position)
+    {
+        Long id = stableIds.get(getItem(position).getId());
+        return id != null ? id : RecyclerView.NO_ID;
     }
 
-    // Returns the item at the specified position
+    @NonNull
     @Override
-    public Object getItem(int position) {
-        return objects.get(position);
+    public ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
+    {
+        View view = lInflater.inflate(R.layout.activity_listproductsadapter, parent, false);  // Inflate custom layout
+        return new ProductViewHolder(view);
     }
 
-    // Returns the ID of the item at the specified position (in this case, the position itself)
+    // Binds a row to its product; nothing is allocated here
     @Override
-    public long getItemId(int position) {
-        return position;
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position)
+    {
+        holder.bind(getItem(position));
     }
 
-    // This method is responsible for creating the view for each item in the list
+    // A tapped checkbox only rebinds the checkbox of its row
     @Override
-    public View getView(int position, View convertView, ViewGroup parent)
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position, @NonNull List<Object> payloads)
     {
-        View view = convertView;
-        if (view == null)
-        {  // If no view is provided, inflate a new view
-            view = lInflater.inflate(R.layout.activity_listproductsadapter, parent, false);  // Inflate custom layout
+        if (payloads.contains(PAYLOAD_CHECKED))
+        {
+            holder.bindChecked(getItem(position).box);
         }
+        else
+        {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
 
-        // Get the Product object at the specified position
-        Product p = getProduct(position);
-
-        // Initialize the TextView to display the product name
-        arr.add(position, (TextView) view.findViewById(R.id.tvDescr));
-        arr.get(position).setText(p.name);  // Set the product name in the TextView
-
-        // Initialize the CheckBox for the product
-        CheckBox cbBuy = (CheckBox) view.findViewById(R.id.cbBox);
-        cbBuy.setOnCheckedChangeListener(myCheckChangList);  // Set listener for CheckBox state changes
-        cbBuy.setTag(position);  // Set the position as a tag to identify the CheckBox
-        cbBuy.setChecked(p.box);  // Set the initial checked state of the CheckBox based on the product
-
-        return view;  // Return the view for this item
+    // Returns the submitted products, including those the diff did not show yet
+    List<Product> getProducts()
+    {
+        return Collections.unmodifiableList(latest);
     }
 
-    // Helper method to get the Product object at a specific position
+    // Helper method to get the submitted Product object at a specific position
     Product getProduct(int position)
     {
-        return ((Product) getItem(position));
+        return latest.get(position);
     }
 
-    // CheckBox state change listener to update the product's box status and apply strike-through to the TextView
-    OnCheckedChangeListener myCheckChangList = new OnCheckedChangeListener() {
-        public void onCheckedChanged(CompoundButton buttonView, boolean isChecked)
+    // Replaces the product at a shown position with a copy that has the given checkbox state.
+    // The shown list is the last submitted one unless a diff is running, so the row is updated in place;
+    // during a diff the change is submitted with the latest list instead.
+    private Product setChecked(int position, boolean isChecked)
+    {
+        Product product = getItem(position);
+        Product checked = new Product(product.getId(), product.name, isChecked);
+        if (!diffing)
         {
-            int position = (Integer) buttonView.getTag();
-            Product product = getProduct(position);
+            latest.set(position, checked);
+            notifyItemChanged(position, PAYLOAD_CHECKED);
+            return checked;
+        }
+        List<Product> next = new ArrayList<>(latest);
+        for (int i = 0; i < next.size(); i++)
+        {
+            if (next.get(i).getId().equals(product.getId()))
+            {
+                next.set(i, checked);
+                submit(next);
+                break;
+            }
+        }
+        return checked;
+    }
 
-            if (product != null) {
+    // Holds the views of one row and its listeners, which are created once per row view
+    class ProductViewHolder extends RecyclerView.ViewHolder
+    {
+        private final TextView tvDescr;
+        private final CheckBox cbBuy;
 
-                product.setChecked(isChecked); // Update the local object state using setter method
+        // CheckBox state change listener to update the product's box status and apply strike-through to the TextView
+        private final OnCheckedChangeListener myCheckChangList = new OnCheckedChangeListener()
+        {
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked)
+            {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION)
+                {
+                    return;
+                }
+                Product product = setChecked(position, isChecked);
                 // Update the 'isChecked' field in Firebase
-                if (!product.name.contains("שמירות"))
+                if (checkedListener != null)
                 {
-                    repository.ChangeProductBox(product, position, keyPrefix);
+                    checkedListener.onProductChecked(product);
                 }
+                applyStrikeThrough(isChecked);
             }
+        };
 
-            // Apply or remove strike-through if enabled
-            if (enableStrikeThrough) {
-                View row = (View) buttonView.getParent();
-                TextView textView = row.findViewById(R.id.tvDescr);
+        ProductViewHolder(View view)
+        {
+            super(view);
+            tvDescr = view.findViewById(R.id.tvDescr);
+            cbBuy = view.findViewById(R.id.cbBox);
+            view.setOnClickListener(v -> onRowClick());
+            tvDescr.setOnClickListener(v -> onRowClick());
+        }
+
+        void bind(Product p)
+        {
+            tvDescr.setText(p.name);  // Set the product name in the TextView
+            bindChecked(p.box);
+        }
+
+        void bindChecked(boolean isChecked)
+        {
+            // Detach the listener while restoring the state, so binding never writes to the database
+            cbBuy.setOnCheckedChangeListener(null);
+            cbBuy.setChecked(isChecked);  // Set the checked state of the CheckBox based on the product
+            cbBuy.setOnCheckedChangeListener(myCheckChangList);  // Set listener for CheckBox state changes
+            applyStrikeThrough(isChecked);
+        }
 
-                if (isChecked) {
-                    textView.setPaintFlags(textView.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
-                } else {
-                    textView.setPaintFlags(textView.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
+        // Apply or remove strike-through if enabled
+        private void applyStrikeThrough(boolean isChecked)
+        {
+            if (enableStrikeThrough)
+            {
+                if (isChecked)
+                {
+                    tvDescr.setPaintFlags(tvDescr.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+                }
+                else
+                {
+                    tvDescr.setPaintFlags(tvDescr.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
                 }
             }
         }
-    };
+
+        private void onRowClick()
+        {
+            int position = getBindingAdapterPosition();
+            if (clickListener != null && position != RecyclerView.NO_POSITION)
+            {
+                clickListener.onProductClick(getItem(position));
+            }
+        }
+    }
 }
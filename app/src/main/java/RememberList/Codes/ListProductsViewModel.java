@@ -13,57 +13,97 @@ import java.util.List;
 public class ListProductsViewModel extends AndroidViewModel {
 
     private final Repository repository; // Repository to manage data operations
-    private final MutableLiveData<List<Product>> productsLiveData = new MutableLiveData<>(); // LiveData for the list of products
+    private final MutableLiveData<ProductChange> valueChangesLiveData = new MutableLiveData<>(); // Changes streamed by the repository
+    private final MutableLiveData<Integer> pendingChangesLiveData = new MutableLiveData<>(); // Number of changes the UI has not applied yet
     private final MutableLiveData<Boolean> loadingLiveData = new MutableLiveData<>(); // LiveData for the loading state
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>(); // LiveData for error messages
     private String listName; // The name of the list being managed
-    private String listKey; // The key of the list being managed
+    private String listKey; // The permanent ID of the list being managed
+    private final List<Product> products = new ArrayList<>(); // The items of the list, kept up to date by the streamed changes
+    private final List<ProductChange> pendingChanges = new ArrayList<>(); // Changes waiting to be applied by the UI
+    private ValuesStream valuesListener; // The stream of the changes of the list
+    // Applies every streamed change to the items and queues it for the UI, so no change is lost while the UI is stopped
+    private final Observer<ProductChange> valueChangesObserver = change ->
+    {
+        change.applyTo(products);
+        pendingChanges.add(change);
+        pendingChangesLiveData.setValue(pendingChanges.size());
+    };
     /**
      * ViewModel for managing and interacting with a list of products.
      * Provides data to the UI and handles interactions with the repository.
      */
     public ListProductsViewModel(@NonNull Application application) {
         super(application);
-        repository = new Repository(application); // Initialize the repository
+        repository = AppContainer.from(application).getRepository(); // Initialize the repository
     }
 
     /**
-     * Initializes the ViewModel with the name of the list to manage.
+     * Initializes the ViewModel with the name of the list to manage and starts streaming its items.
+     * Calling it again for the same list (for example after a rotation) keeps the running stream.
      *
      * @param listName the name of the list
      */
     public void init(String listName, String listKey)
     {
+        if (valuesListener != null && listKey.equals(this.listKey))
+        {
+            return;
+        }
         this.listName = listName;
         this.listKey = listKey;
-        loadProducts(); // Load products from the repository
+        listenToProducts(); // Stream the products from the repository
     }
 
     /**
-     * Loads products from the repository for the specified list.
+     * Starts streaming the products of the specified list from the repository.
      */
-    private void loadProducts()
+    private void listenToProducts()
     {
-        loadingLiveData.setValue(true); // Indicate loading started
         try
         {
-            repository.getValues("UserValues" ,(listName+listKey) ,productsLiveData, loadingLiveData, errorLiveData);
+            valueChangesLiveData.observeForever(valueChangesObserver);
+            valuesListener = repository.listenToValues(listKey, valueChangesLiveData, loadingLiveData, errorLiveData);
         }
         catch (Exception e)
         {
             errorLiveData.setValue("Failed to load lists: " + e.getMessage()); // Set error message
+            loadingLiveData.setValue(false); // Indicate loading finished
         }
-        loadingLiveData.setValue(false); // Indicate loading finished
     }
 
     /**
-     * Returns LiveData for the list of products.
+     * Returns the current products and discards the pending changes, which they already include.
+     * Used to fill a new adapter before applying the changes that follow.
+     *
+     * @return A copy of the current products of the list
+     */
+    public List<Product> takeProducts()
+    {
+        pendingChanges.clear();
+        return new ArrayList<>(products);
+    }
+
+    /**
+     * Returns the changes that were not applied to the UI yet, in order, and clears them.
      *
-     * @return LiveData containing the list of products
+     * @return The pending changes
      */
-    public LiveData<List<Product>> getProducts()
+    public List<ProductChange> takeChanges()
     {
-        return productsLiveData;
+        List<ProductChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        return changes;
+    }
+
+    /**
+     * Returns LiveData that is updated whenever there are changes to apply.
+     *
+     * @return LiveData containing the number of pending changes
+     */
+    public LiveData<Integer> getPendingChanges()
+    {
+        return pendingChangesLiveData;
     }
 
     /**
@@ -94,21 +134,8 @@ public class ListProductsViewModel extends AndroidViewModel {
         loadingLiveData.setValue(true); // Set loading state to true
         ArrayList<String> valuesToAdd = new ArrayList<>();
         valuesToAdd.add(productName);
-        repository.addValues((listName+listKey), valuesToAdd, loadingLiveData, errorLiveData); // Add the product to the repository
-        // Observe the loading state and reload the lists after the add operation completes
-        loadingLiveData.observeForever(new Observer<Boolean>() {
-            @Override
-            public void onChanged(Boolean isLoading)
-            {
-                if (Boolean.FALSE.equals(isLoading))
-                {
-                    // Load the lists only after the add operation completes
-                    loadProducts();
-                    // Remove the observer to avoid memory leaks
-                    loadingLiveData.removeObserver(this);
-                }
-            }
-        });
+        // The new product reaches the UI through the stream of changes
+        repository.addValues(listKey, valuesToAdd, loadingLiveData, errorLiveData); // Add the product to the repository
     }
 
     /**
@@ -116,32 +143,27 @@ public class ListProductsViewModel extends AndroidViewModel {
      *
      * @param selectedProducts the list of products to delete
      */
-    public void deleteProducts(List<Product> selectedProducts, int listSize)
+    public void deleteProducts(List<Product> selectedProducts)
     {
         loadingLiveData.setValue(true); // Set loading state to true
-        // Reverse loop to avoid index shifting issues
-        int[] indexes = new int[selectedProducts.size()];
-        for (int i = 0; i < selectedProducts.size(); i++)
+        // Collect the stable keys of the products to delete
+        List<String> ids = new ArrayList<>();
+        for (Product product : selectedProducts)
         {
-            Product product = selectedProducts.get(i);
-            indexes[i] = productsLiveData.getValue() != null ? productsLiveData.getValue().indexOf(product) : -1;
+            ids.add(product.getId());
         }
-        repository.deleteValues((listName+listKey), indexes, listSize, loadingLiveData, errorLiveData); // Delete the products from the repository
-        // Observe the loading state and reload the lists after the add operation completes
-        loadingLiveData.observeForever(new Observer<Boolean>()
-        {
-            @Override
-            public void onChanged(Boolean isLoading)
-            {
-                if (Boolean.FALSE.equals(isLoading))
-                {
-                    // Load the lists only after the add operation completes
-                    loadProducts();
-                    // Remove the observer to avoid memory leaks
-                    loadingLiveData.removeObserver(this);
-                }
-            }
-        });
+        // The removals reach the UI through the stream of changes
+        repository.deleteValues(listKey, ids, loadingLiveData, errorLiveData); // Delete the products from the repository
+    }
+
+    /**
+     * Updates the checkbox state of a product; the write is buffered by the repository.
+     *
+     * @param product the product whose state changed
+     */
+    public void changeProductBox(Product product)
+    {
+        repository.ChangeProductBox(product, listKey, errorLiveData);
     }
 
     public void shareList(String listName, ArrayList<String> valuesList,ArrayList<String> categories)
@@ -162,5 +184,24 @@ public class ListProductsViewModel extends AndroidViewModel {
         });
     }
 
+    /**
+     * Sends the buffered checkbox changes now instead of at the end of their window.
+     */
+    public void flushPendingWrites()
+    {
+        repository.flushPendingWrites();
+    }
 
+    @Override
+    protected void onCleared()
+    {
+        super.onCleared();
+        // Stop streaming when the list screen is closed for good
+        if (valuesListener != null)
+        {
+            repository.stopListeningToValues(valuesListener);
+            valuesListener = null;
+        }
+        valueChangesLiveData.removeObserver(valueChangesObserver);
+    }
 }
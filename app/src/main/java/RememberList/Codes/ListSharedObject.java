@@ -2,18 +2,25 @@ package RememberList.Codes;
 
 public class ListSharedObject
 {
+    private final String id; // The permanent key of the shared list in the database
     private final int saves;
     private final String listName;
 
     private final String[] categories;
 
-    public ListSharedObject(int saves, String listName, String[] categories)
+    public ListSharedObject(String id, int saves, String listName, String[] categories)
     {
+        this.id = id;
         this.saves = saves;
         this.listName = listName;
         this.categories = categories;
     }
 
+    public String getId()
+    {
+        return id;
+    }
+
     public int getSaves()
     {
         return saves;
@@ -32,17 +32,8 @@ public class LoadingActivity extends AppCompatActivity
 			{
 				if (user != null) // If a user is logged in
 				{
-					viewModel.checkIfUserIsAdmin();
-					viewModel.getIsAdminLiveData().observe(LoadingActivity.this, isAdmin -> {
-						if (isAdmin) {
-							Intent intent = new Intent(LoadingActivity.this, MyListsActivity.class);
-							intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-							startActivity(intent);// Start the main activity
-							finish();  // Close the current activity to prevent going back
-						} else {
-							navigateToMainScreen(); // Navigate to the main activity
-						}
-					});
+					// The admin status is read from its cache by the screens that need it
+					navigateToMainScreen(); // Navigate to the main activity
 				}
 				else// If no user is logged in
 				{
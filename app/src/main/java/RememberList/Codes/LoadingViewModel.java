@@ -3,6 +3,7 @@ package RememberList.Codes;
 import android.content.Context;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
 import com.google.firebase.auth.FirebaseAuth;
@@ -19,20 +20,18 @@ public class LoadingViewModel extends ViewModel
     private final MutableLiveData<Boolean> loadingLiveData = new MutableLiveData<>();
     // LiveData to observe error messages
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
-    private final MutableLiveData<Boolean> isAdminLiveData = new MutableLiveData<>();
     // Repository for handling data operations
     private Repository repository;
+    // Runs the startup phases concurrently
+    private StartupOrchestrator startup;
 
 
     // Initialize the ViewModel
-    public LiveData<Boolean> getIsAdminLiveData()
-    {
-        return isAdminLiveData;
-    }
     public void init(Context context)
     {
         // Create the repository with the given context (e.g., for SharedPreferences or database access)
-        repository = new Repository(context);
+        repository = AppContainer.from(context).getRepository();
+        startup = AppContainer.from(context).getStartup();
 
         // Check the current user's authentication state
         checkUserState();
@@ -46,18 +45,30 @@ public class LoadingViewModel extends ViewModel
 
         if (currentUser != null) // If a user is signed in
         {
-            // Reload user data to ensure it is up-to-date
-            currentUser.reload().addOnCompleteListener(task -> {
-                loadingLiveData.setValue(false);  // Indicate that loading has completed
-                if (task.isSuccessful()) // If reload was successful
-                {
-                    userLiveData.setValue(currentUser);  // Update user state with the current user
-                }
-                else // If reload failed
+            // Validate the user, check the user's data and prefetch the lists, all at once
+            startup.start(currentUser);
+            // Wait for the user data reload to ensure it is up-to-date
+            startup.getUserValidLiveData().observeForever(new Observer<Boolean>()
+            {
+                @Override
+                public void onChanged(Boolean isValid)
                 {
-                    mAuth.signOut();  // Sign out the user
-                    userLiveData.setValue(null);// Clear the user state
-                    errorLiveData.setValue("Failed to reload user data. Signing out.");// Notify about the error
+                    if (isValid == null)
+                    {
+                        return; // Still validating
+                    }
+                    startup.getUserValidLiveData().removeObserver(this);
+                    loadingLiveData.setValue(false);  // Indicate that loading has completed
+                    if (Boolean.TRUE.equals(isValid)) // If reload was successful
+                    {
+                        userLiveData.setValue(currentUser);  // Update user state with the current user
+                    }
+                    else // If reload failed
+                    {
+                        mAuth.signOut();  // Sign out the user
+                        userLiveData.setValue(null);// Clear the user state
+                        errorLiveData.setValue("Failed to reload user data. Signing out.");// Notify about the error
+                    }
                 }
             });
         }
@@ -67,11 +78,6 @@ public class LoadingViewModel extends ViewModel
             userLiveData.setValue(null);  // Clear the user state
         }
     }
-    public void checkIfUserIsAdmin()
-    {
-        loadingLiveData.setValue(true); // Set loading state to true
-        repository.checkIfUserIsAdmin(isAdminLiveData, loadingLiveData, errorLiveData);
-    }
     // Expose the user state as LiveData so it can be observed by the UI
     public LiveData<FirebaseUser> getUserLiveData()
     {
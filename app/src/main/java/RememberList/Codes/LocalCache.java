@@ -0,0 +1,168 @@
+package RememberList.Codes;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import RememberList.Core.MetricsRegistry;
+
+/**
+ * The on-device copy of the database.
+ * Firebase keeps every location that was read (and every pending write) in a disk cache,
+ * so screens open with the last known data, even without reception, instead of waiting for the network.
+ * The user's own subtree is kept in sync, so its cached copy is also fresh whenever the app is online.
+ * Every read is reported to the metrics registry with its latency, under one operation name for reads
+ * answered while connected and another for reads answered while offline. Firebase does not tell whether
+ * a read came from the disk cache, but an offline answer always did, and the latencies of the connected
+ * reads show the cached answers apart from the server round-trips.
+ * Each answered read is also counted by its outcome (see {@link #getHitRatio}), so the share of reads
+ * the cache answered can be compared between versions of the app.
+ */
+public final class LocalCache
+{
+    private static final String TAG = "LocalCache";
+
+    private static volatile boolean connected = false;
+    private static volatile MetricsRegistry metrics; // Null until the container is created
+
+    private LocalCache()
+    {
+    }
+
+    /**
+     * Enables the disk cache. Must be called once, before any other use of the database.
+     * The cache size cap is read from the "database_cache_size_mb" resource.
+     *
+     * @param context The application context.
+     */
+    public static void enable(Context context)
+    {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        long cacheSizeBytes = context.getResources().getInteger(R.integer.database_cache_size_mb) * 1024L * 1024L;
+        database.setPersistenceCacheSizeBytes(cacheSizeBytes);
+        database.setPersistenceEnabled(true);
+        // Track the connection, so reads answered while offline are reported apart
+        database.getReference(".info/connected").addValueEventListener(new ValueEventListener()
+        {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot)
+            {
+                connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error)
+            {
+                Log.w(TAG, "Connection state unavailable: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sets the registry the reads are reported to.
+     */
+    public static void setMetrics(MetricsRegistry registry)
+    {
+        metrics = registry;
+    }
+
+    /**
+     * Keeps the given subtree synced with the server in the background, so reads of it are served
+     * from the cache and are still up to date.
+     *
+     * @param ref The subtree to keep synced, normally "UsersDatabase/{emailNode}".
+     * @param synced True to keep the subtree synced, false to stop (for example on logout).
+     */
+    public static void keepSynced(DatabaseReference ref, boolean synced)
+    {
+        ref.keepSynced(synced);
+    }
+
+    /**
+     * Reads a location once, from the cache when it holds the location.
+     * Reported as "localRead", or "localReadOffline" if it was answered while offline.
+     *
+     * @param query The location to read.
+     * @param listener The listener to receive the snapshot.
+     */
+    public static void read(Query query, ValueEventListener listener)
+    {
+        long start = System.nanoTime();
+        query.addListenerForSingleValueEvent(new ValueEventListener()
+        {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot)
+            {
+                record("localRead", start, false);
+                listener.onDataChange(snapshot);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error)
+            {
+                record("localRead", start, true);
+                listener.onCancelled(error);
+            }
+        });
+    }
+
+    /**
+     * Reads a location from the server, bypassing the cache, for an explicit refresh.
+     * When the device is offline the cached copy is returned instead.
+     * Reported as "freshRead", or "freshReadOffline" if the cached copy was returned.
+     *
+     * @param query The location to read.
+     * @param listener The listener to receive the snapshot.
+     */
+    public static void readFresh(Query query, ValueEventListener listener)
+    {
+        long start = System.nanoTime();
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    record("freshRead", start, false);
+                    listener.onDataChange(snapshot);
+                })
+                .addOnFailureListener(e -> {
+                    record("freshRead", start, true);
+                    listener.onCancelled(DatabaseError.fromException(e));
+                });
+    }
+
+    /**
+     * Returns the share of the answered reads that the cache answered: local reads, which Firebase answers
+     * from the cache whenever it holds the location, and fresh reads answered offline from the cached copy.
+     * Fresh reads answered by the server are the misses.
+     *
+     * @param registry The registry the reads were counted in.
+     * @return The ratio between 0 and 1, or -1 if no read was answered yet.
+     */
+    public static double getHitRatio(MetricsRegistry registry)
+    {
+        long hits = registry.getCount("localRead") + registry.getCount("localReadOffline")
+                + registry.getCount("freshReadOffline");
+        long reads = hits + registry.getCount("freshRead");
+        return reads == 0 ? -1 : (double) hits / reads;
+    }
+
+    // Reports a read that started at the given time, by whether the device was connected when it was answered,
+    // and counts its outcome if it was answered
+    private static void record(String operation, long startNanos, boolean failed)
+    {
+        MetricsRegistry registry = metrics;
+        if (registry != null)
+        {
+            String outcome = connected ? operation : operation + "Offline";
+            registry.stats(outcome).record((System.nanoTime() - startNanos) / 1000, 0, failed);
+            if (!failed)
+            {
+                registry.count(outcome);
+            }
+        }
+    }
+}
@@ -75,7 +75,6 @@ public class LoginActivity extends AppCompatActivity
             else
             {
                 Intent intent = new Intent(LoginActivity.this, MyListsActivity.class); // Create an intent for the main screen
-                intent.putExtra("IS_ADMIN", false); // Sending boolean extra
                 startActivity(intent); // Start the main screen activity
                 finish(); // Close the current activity// Navigate to regular user screen
             }
@@ -154,7 +153,6 @@ public class LoginActivity extends AppCompatActivity
         {
             // Proceed with regular login
             Intent intent = new Intent(LoginActivity.this, MyListsActivity.class); // Create an intent for the main screen
-            intent.putExtra("IS_ADMIN", true); // Sending boolean extra
             startActivity(intent); // Start the main screen activity
             finish(); // Close the current activity
         });
@@ -5,6 +5,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.firebase.auth.FirebaseUser;
@@ -14,7 +15,8 @@ public class LoginViewModel extends AndroidViewModel
 {
     // Repository instance for handling data operations
     private final Repository repository;
-
+    // Cached admin status of the signed-in user
+    private final AdminStatusCache adminStatus;
 
     // LiveData variables to observe changes in user, errors, and loading state:
     private final MutableLiveData<FirebaseUser> userLiveData; // Holds the current logged-in user
@@ -25,7 +27,8 @@ public class LoginViewModel extends AndroidViewModel
     public LoginViewModel(@NonNull Application application)
     {
         super(application);
-        repository = new Repository(application);  // Initialize the repository with the application context
+        repository = AppContainer.from(application).getRepository();  // Initialize the repository with the application context
+        adminStatus = AppContainer.from(application).getAdminStatus();
         userLiveData = new MutableLiveData<>();// Initialize user LiveData
         errorLiveData = new MutableLiveData<>(); // Initialize error LiveData
         loadingLiveData = new MutableLiveData<>(); // Initialize loading LiveData
@@ -87,10 +90,24 @@ public class LoginViewModel extends AndroidViewModel
         repository.loginWithGoogle(account, userLiveData, errorLiveData, loadingLiveData);
     }
 
-    // Method to check if a user is already logged in
+    // Method to check if the logged-in user is an admin; the result is cached for the other screens
     public void checkIfUserIsAdmin()
     {
         loadingLiveData.setValue(true); // Set loading state to true
-        repository.checkIfUserIsAdmin(isAdminLiveData, loadingLiveData, errorLiveData);
+        adminStatus.startWatching();
+        adminStatus.getIsAdminLiveData().observeForever(new Observer<Boolean>()
+        {
+            @Override
+            public void onChanged(Boolean isAdmin)
+            {
+                if (isAdmin == null)
+                {
+                    return; // Still checking
+                }
+                adminStatus.getIsAdminLiveData().removeObserver(this);
+                loadingLiveData.setValue(false);
+                isAdminLiveData.setValue(isAdmin);
+            }
+        });
     }
 }
@@ -20,15 +20,13 @@ import java.util.ArrayList;
 public class MyListsActivity extends AppCompatActivity implements View.OnClickListener {
 
     private MyListsViewModel viewModel; // ViewModel instance
-    private ArrayAdapter<String> adapter; // Adapter to display the lists
+    private ArrayAdapter<UserListObject> adapter; // Adapter to display the lists
     private ListView list; // ListView for displaying lists
     private EditText editText; // EditText for user input
     private Button sharelists, add, signOutButton; // Buttons for actions
     private ImageButton recordButton;
-    private String selectedList; // Currently selected list for deletion
-    private int positionToDelete;
+    private UserListObject selectedList; // Currently selected list for deletion
     private Button adminModeButton; // Admin mode button
-    private boolean isAdmin = false; // Track if user is admin
     @Override
     protected void onCreate(Bundle savedInstanceState)
     {
@@ -46,11 +44,15 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
 
         // Initialize ViewModel
         viewModel = new ViewModelProvider(this).get(MyListsViewModel.class);
-        isAdmin = getIntent().getBooleanExtra("IS_ADMIN",false); // Get the key of the list passed via Intent
-        if (isAdmin)
-        {
-            adminModeButton.setVisibility(View.VISIBLE); // Show the button only if admin
-        }
+        // Show the admin button only to admins, from the cached status, and hide it if the role is removed
+        AdminStatusCache adminStatus = AppContainer.from(this).getAdminStatus();
+        adminModeButton.setVisibility(adminStatus.isAdmin() ? View.VISIBLE : View.GONE);
+        adminStatus.getIsAdminLiveData().observe(this, isAdmin -> {
+            if (isAdmin != null)
+            {
+                adminModeButton.setVisibility(isAdmin ? View.VISIBLE : View.GONE);
+            }
+        });
 
         // Observe error messages to display them as Toast messages
         viewModel.getErrorLiveData().observe(this, error -> {
@@ -74,6 +76,8 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
                     adapter.clear();
                     if (lists != null) {
                         adapter.addAll(lists);
+                        // Record the time until the user first sees their lists
+                        AppContainer.from(this).getStartupTrace().mark("firstList");
                     }
                     adapter.notifyDataSetChanged(); // Refresh ListView
                 });
@@ -97,6 +101,14 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
         recordButton.setOnClickListener(this);
         adminModeButton.setOnClickListener(this);
     }
+    @Override
+    protected void onRestart()
+    {
+        super.onRestart();
+        // Back from another screen: only the lists' version is checked, and the lists are read again if it changed
+        viewModel.loadLists();
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -116,19 +128,14 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
         list.setOnItemClickListener((parent, view, position, id) -> {
             selectedList = adapter.getItem(position);
             Intent intent = new Intent(this, ListProductsActivity.class);
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            }
-            intent.putExtra("LIST_NAME", selectedList); // Pass the list name to the next activity
-            intent.putExtra("LIST_KEY", String.valueOf(position));
+            intent.putExtra("LIST_NAME", selectedList.getListName()); // Pass the list name to the next activity
+            intent.putExtra("LIST_KEY", selectedList.getId()); // Pass the permanent ID of the list
             startActivity(intent);
         });
 
         // Handle long item clicks to show a delete confirmation dialog
         list.setOnItemLongClickListener((parent, view, position, id) -> {
             selectedList = adapter.getItem(position);
-            positionToDelete = position;
             showDeleteConfirmationDialog();
             return true;
         });
@@ -141,7 +148,7 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
                 .setPositiveButton("מחק", (dialog, which) -> {
                     if (selectedList != null)
                     {
-                        viewModel.deleteList(selectedList,String.valueOf(positionToDelete)); // Delete the list using ViewModel
+                        viewModel.deleteList(selectedList.getId()); // Delete the list using ViewModel
                         Toast.makeText(this, "הרשימה נמחקה בהצלחה", Toast.LENGTH_SHORT).show();
                     }
                 })
@@ -166,14 +173,8 @@ public class MyListsActivity extends AppCompatActivity implements View.OnClickLi
         }
         else if (view == sharelists)
         {
-            // Navigate to SharedListsActivity
+            // Navigate to SharedListsActivity, keeping this screen below it for the way back
             Intent intent = new Intent(this, SharedListsActivity.class);
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            }
-            intent.putExtra("LIST_COUNT", String.valueOf(adapter.getCount()));
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK); // Clear activity stack
             startActivity(intent);
         } else if (view == signOutButton) {
             // Handle user sign-out
@@ -11,17 +11,17 @@ import androidx.lifecycle.Observer;
 import java.util.List;
 public class MyListsViewModel extends AndroidViewModel {
 
-    private final MutableLiveData<List<String>> listsLiveData = new MutableLiveData<>();
+    private final MutableLiveData<List<UserListObject>> listsLiveData = new MutableLiveData<>();
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
     private final MutableLiveData<Boolean> loadingLiveData = new MutableLiveData<>();
     private final Repository repository;
 
     public MyListsViewModel(@NonNull Application application) {
         super(application);
-        repository = new Repository(application);
+        repository = AppContainer.from(application).getRepository();
     }
 
-    public LiveData<List<String>> getLists() {
+    public LiveData<List<UserListObject>> getLists() {
         return listsLiveData;
     }
 
@@ -40,6 +40,34 @@ public class MyListsViewModel extends AndroidViewModel {
         // Indicate loading has started
         loadingLiveData.setValue(true);
 
+        StartupOrchestrator startup = AppContainer.from(getApplication()).getStartup();
+        if (startup.isHandOffPending())
+        {
+            // The cold start already checked the data and prefetched the lists concurrently; wait for both
+            startup.getDataLoadingLiveData().observeForever(new Observer<Boolean>() {
+                @Override
+                public void onChanged(Boolean isLoading)
+                {
+                    if (Boolean.FALSE.equals(isLoading)) {
+                        startup.getDataLoadingLiveData().removeObserver(this);
+                        if (startup.getErrorLiveData().getValue() != null) {
+                            errorLiveData.setValue(startup.getErrorLiveData().getValue());
+                        }
+                        List<UserListObject> prefetched = startup.takePrefetchedLists();
+                        if (prefetched != null) {
+                            listsLiveData.setValue(prefetched);
+                            loadingLiveData.setValue(false);
+                        } else {
+                            // Nothing usable was prefetched, so load the lists now
+                            loadingLiveData.setValue(false);
+                            loadLists();
+                        }
+                    }
+                }
+            });
+            return;
+        }
+
         // Use the repository to check and load data
         repository.checkAndLoadData(loadingLiveData, errorLiveData);
 
@@ -112,14 +140,14 @@ public class MyListsViewModel extends AndroidViewModel {
     /**
      * Deletes a list from the repository and reloads lists.
      *
-     * @param listName The name of the list to delete.
+     * @param listId The permanent ID of the list to delete.
      */
-    public void deleteList(String listName,String key)
+    public void deleteList(String listId)
     {
         loadingLiveData.setValue(true); // Set loading state to true
 
-        // Add the list to the repository
-        repository.deleteList(listName, key, loadingLiveData, errorLiveData);
+        // Delete the list from the repository
+        repository.deleteList(listId, loadingLiveData, errorLiveData);
 
         // Observe the loading state and reload the lists after the add operation completes
         loadingLiveData.observeForever(new Observer<Boolean>() {
@@ -137,6 +165,8 @@ public class MyListsViewModel extends AndroidViewModel {
     }
 
     public void logout() {
+        // Stop watching and forget the admin status while the user is still signed in
+        AppContainer.from(getApplication()).getAdminStatus().clear();
         repository.logout();
     }
 }
@@ -2,6 +2,7 @@ package RememberList.Codes;
 
 public class Product
 {
+    String id; // The stable database key of the product (null for rows that are not stored items)
     String name; // The name of the product
     boolean box; // The checkbox state for the product (checked or unchecked)
 
@@ -11,6 +12,18 @@ public class Product
         this.name = _describe; // Set the name of the product
         this.box = _box; // Set the checkbox state for the product
     }
+
+    // Constructor for a product that is stored in the database under the given key
+    Product(String _id, String _describe, boolean _box)
+    {
+        this(_describe, _box);
+        this.id = _id; // Set the database key of the product
+    }
+
+    // Getter for the database key
+    public String getId() {
+        return id;
+    }
     // Getter for isChecked
     public boolean isChecked() {
         return box;
@@ -0,0 +1,113 @@
+package RememberList.Codes;
+
+import java.util.List;
+
+/**
+ * A single change to the items of a list, as streamed from "values/{listKey}".
+ * The changes are applied one by one to the shown items instead of reloading the whole list.
+ */
+public class ProductChange
+{
+    public enum Type { ADDED, CHANGED, MOVED, REMOVED }
+
+    private final Type type;
+    private final Product product; // The item after the change (only its ID for REMOVED)
+    private final String previousId; // The ID of the item right before it, or null if it is first
+
+    public ProductChange(Type type, Product product, String previousId)
+    {
+        this.type = type;
+        this.product = product;
+        this.previousId = previousId;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public Product getProduct()
+    {
+        return product;
+    }
+
+    public String getPreviousId()
+    {
+        return previousId;
+    }
+
+    /**
+     * Applies the change to a list of items ordered like the database.
+     *
+     * @param products The items to update.
+     * @return The position the item was removed from, or the position it is at after the change;
+     *         -1 if the change does not concern any of the items.
+     */
+    public int applyTo(List<Product> products)
+    {
+        int index = indexOf(products, product.getId());
+        switch (type)
+        {
+            case ADDED:
+                if (index != -1)
+                {
+                    return -1;
+                }
+                index = positionAfter(products, previousId);
+                products.add(index, product);
+                return index;
+            case CHANGED:
+                if (index == -1)
+                {
+                    // An item that was empty until now is shown from now on
+                    index = positionAfter(products, previousId);
+                    products.add(index, product);
+                }
+                else
+                {
+                    products.set(index, product);
+                }
+                return index;
+            case MOVED:
+                if (index == -1)
+                {
+                    return -1;
+                }
+                Product moved = products.remove(index);
+                index = positionAfter(products, previousId);
+                products.add(index, moved);
+                return index;
+            case REMOVED:
+                if (index != -1)
+                {
+                    products.remove(index);
+                }
+                return index;
+            default:
+                return -1;
+        }
+    }
+
+    // Returns the position right after the item with the given ID (the end if it is not shown)
+    private static int positionAfter(List<Product> products, String previousId)
+    {
+        if (previousId == null)
+        {
+            return 0;
+        }
+        int previousIndex = indexOf(products, previousId);
+        return previousIndex == -1 ? products.size() : previousIndex + 1;
+    }
+
+    private static int indexOf(List<Product> products, String id)
+    {
+        for (int i = 0; i < products.size(); i++)
+        {
+            if (id.equals(products.get(i).getId()))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,37 @@
+package RememberList.Codes;
+
+import android.app.Application;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * The application class, set up before any activity is created.
+ */
+public class RememberListApplication extends Application
+{
+    private static final String TAG = "RememberListApplication";
+
+    private AppContainer container;
+
+    @Override
+    public void onCreate()
+    {
+        super.onCreate();
+        // The disk cache must be enabled before the database is used for the first time
+        LocalCache.enable(this);
+        // Measure what building the shared objects costs at startup
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = SystemClock.elapsedRealtime();
+        container = new AppContainer(this);
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        Log.d(TAG, "Container created in " + (SystemClock.elapsedRealtime() - start) + " ms, heap "
+                + heapBefore / 1024 + " KB -> " + heapAfter / 1024 + " KB");
+    }
+
+    // Returns the container of the objects shared by the whole app
+    public AppContainer getContainer()
+    {
+        return container;
+    }
+}
@@ -1,21 +1,35 @@
 package RememberList.Codes;
 
 import android.content.Context;
+import android.util.Log;
 import androidx.lifecycle.MutableLiveData;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
 import com.google.firebase.database.*;
-import java.io.InputStream;
+import RememberList.Core.DatabaseListStore;
+import RememberList.Core.Item;
+import RememberList.Core.ListStore;
+import RememberList.Core.MetricsRegistry;
+import RememberList.Core.PayloadSize;
+import RememberList.Core.SharedList;
+import RememberList.Core.TemplateReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Repository {
 
+    private static final String TAG = "Repository";
+
     // Firebase Authentication instance for managing auth operations
     private final FirebaseAuth mAuth;
     // Firebase Realtime Database reference (pointing to the "Posts" node)
@@ -23,13 +37,38 @@ public class Repository {
     // Map to store list IDs (or keys) to titles (for filtering, etc.)
 
     private final Context context;
-    public Repository(Context context)
+    // Buffer that coalesces frequent small writes
+    private final WriteBehindBuffer writeBehind;
+    // Latency, size and outcome of every operation, shown on the diagnostics screen
+    private final MetricsRegistry metrics;
+    // The database the data operations of the core module run on
+    private final FirebaseBackend backend;
+    // The current user's node and its children, resolved once per signed-in email
+    private String cachedEmail;
+    private String emailNode;
+    private DatabaseReference userRef;
+    private DatabaseReference listsRef;
+    private DatabaseReference valuesRef;
+    private DatabaseReference categoriesRef;
+    // The data operations of the current user: their paths, updates, version stamps and local copies
+    private DatabaseListStore store;
+
+    /**
+     * Creates the repository. The app uses a single instance, provided by AppContainer.
+     *
+     * @param context The application context.
+     * @param metrics The registry the operations are timed into.
+     */
+    Repository(Context context, MetricsRegistry metrics)
     {
         this.context = context;
+        this.metrics = metrics;
         // Initialize Firebase Authentication
         mAuth = FirebaseAuth.getInstance();
         // Initialize Firebase Database reference pointing to the "Posts" node
         databaseReference = FirebaseDatabase.getInstance().getReference("Lists");
+        backend = new FirebaseBackend(databaseReference);
+        writeBehind = new WriteBehindBuffer(context, backend);
     }
 
     // ---------------- Authentication Logic ----------------
@@ -50,7 +89,7 @@ public class Repository {
          // Set loading indicator to true before starting the login process.
         loadingLiveData.setValue(true);
         // Attempt to sign in using Firebase Authentication with the provided email and password.
-        mAuth.signInWithEmailAndPassword(email, password)
+        timed(metrics.start("loginWithEmail"), null, mAuth.signInWithEmailAndPassword(email, password))
                 .addOnCompleteListener(task -> {
                      // After the task completes, disable the loading indicator.
                     loadingLiveData.setValue(false);
@@ -81,7 +120,7 @@ public class Repository {
         // Set loading indicator to true before starting the registration process.
         loadingLiveData.setValue(true);
         // Attempt to create a new user with the provided email and password using Firebase Authentication.
-        mAuth.createUserWithEmailAndPassword(email, password)
+        timed(metrics.start("registerWithEmail"), null, mAuth.createUserWithEmailAndPassword(email, password))
                 .addOnCompleteListener(task -> {
                      // Disable the loading indicator once the registration task is complete.
                     loadingLiveData.setValue(false);
@@ -113,7 +152,7 @@ public class Repository {
         // Get the credentials from the GoogleSignInAccount's ID token.
         AuthCredential credential = GoogleAuthProvider.getCredential(account.getIdToken(), null);
         // Sign in with the obtained credential using Firebase Authentication.
-        mAuth.signInWithCredential(credential)
+        timed(metrics.start("loginWithGoogle"), null, mAuth.signInWithCredential(credential))
                 .addOnCompleteListener(task -> {
                     // Once the sign-in task is complete, disable the loading indicator.
                     loadingLiveData.setValue(false);
@@ -131,6 +170,13 @@ public class Repository {
      * Logs out the currently signed-in user.
      */
     public void logout() {
+        // Send the buffered writes while they still belong to the signed-in user
+        flushPendingWrites();
+        // Stop syncing the signed-out user's data in the background
+        if (getCurrentUser() != null)
+        {
+            LocalCache.keepSynced(getUserRef(), false);
+        }
         mAuth.signOut();
     }
 
@@ -147,123 +193,223 @@ public class Repository {
 // ---------------- Check and Load Data ----------------
 
     /**
-     * Checks if the data exists in Firebase under "UsersDatabase/{userEmail}".
-     * If not, it loads the data from asset files and uploads them.
+     * Checks that the data exists in Firebase under "UsersDatabase/{userEmail}" and has the current schema.
+     * A new user gets the default lists and categories, and data written by an older version of the app
+     * is migrated, each with a single multi-path update. The loading indicator is cleared only once that
+     * write has landed, so callers waiting on it never read a half-seeded user node.
      */
     public void checkAndLoadData(final MutableLiveData<Boolean> loadingLiveData, final MutableLiveData<String> errorLiveData) {
         loadingLiveData.setValue(true);
-        // Replace '.' in email with '_' to make it a valid Firebase node
         if(getCurrentUser() != null)
         {
-            String userEmail = mAuth.getCurrentUser().getEmail();
-            String emailNode = userEmail.replace(".", "_");
-            // Check if the user's node exists in "UsersDatabase"
-            databaseReference.child("UsersDatabase").child(emailNode).addListenerForSingleValueEvent(new ValueEventListener() {
+            // Keep the user's own data and the templates its lists point at synced, so every screen can read them from the cache
+            LocalCache.keepSynced(getUserRef(), true);
+            LocalCache.keepSynced(getTemplatesRef(), true);
+            getStore().checkUserData(this::seedUserData, new ListStore.Callback<Void>()
+            {
                 @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    if (!snapshot.exists()) {
-                        // If user's node does not exist, load data from asset files
-                        readFromFile1();
-                        readFromFile2();
-                        InitialCategories();
-                    }
+                public void onResult(Void result)
+                {
                     loadingLiveData.setValue(false); // Indicate loading is done
                 }
 
                 @Override
-                public void onCancelled(DatabaseError error) {
+                public void onError(String message)
+                {
                     // Disable the loading indicator as the operation is now finished (even though it failed).
                     loadingLiveData.setValue(false);
-                    // Update the errorLiveData with a descriptive error message containing the error details.
-                    errorLiveData.setValue("Failed to load user data: " + error.getMessage());
+                    errorLiveData.setValue(message);
                 }
             });
+            // Move legacy shared-list keys in the background; it does not block the user's screen
+            migrateSharedLists();
         }
     }
 
-    // ---------------- Reading Data from Asset Files and Uploading to Firebase ----------------
-
     /**
-     * Reads the "lists.txt" file from the assets folder, splits the content by commas,
-     * and uploads the lists to the "UsersDatabase/{userEmail}" node in Firebase.
+     * Fills the data of a new user: the default lists, pointing at the shared templates compiled into the app,
+     * and the default categories.
      */
-    public void readFromFile1()
+    private void seedUserData(Map<String, Object> seedData, Map<String, Object> templates, List<String> listIds)
     {
-        try {
-            InputStream input = context.getAssets().open("lists.txt");
-            int size = input.available();
-            byte[] buffer = new byte[size];
-            input.read(buffer); // Read file content into buffer
-            input.close();
-            // Convert byte array to String using "windows-1255" encoding (for Hebrew)
-            String st = new String(buffer, "windows-1255");
-            // Split the string by commas to get individual list names
-            String[] lists = st.split(",");
-            // Replace '.' in email with '_' to make it a valid Firebase node
-            for (int i = 0; i < lists.length; i++)
+        if (!readTemplatePack(seedData, templates, listIds))
+        {
+            // Fall back to private copies read from the text files the pack is compiled from
+            if (readFromFile1(seedData, listIds))
             {
-                // Save each list under its index as the key
-                getListsRef().child(String.valueOf(i)).setValue(lists[i]);
+                readFromFile2(seedData, listIds);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        InitialCategories(seedData);
     }
 
     /**
-     * Reads the "values.txt" file from the assets folder, splits the content by "#" to separate different lists,
-     * then splits each list by commas to get individual values, and uploads the values
-     * to the "UsersDatabase/{userEmail}/values" node in Firebase.
+     * Migrates the "SharedLists" node to the current schema if no client has done it yet.
+     * Only the schema version is read when the node is already up to date.
      */
-    public void readFromFile2()
+    public void migrateSharedLists()
     {
-        try {
-            InputStream input = context.getAssets().open("values.txt");
-            int size = input.available();
-            byte[] buffer = new byte[size];
-            input.read(buffer); // Read file content into buffer
-            input.close();
-            // Convert byte array to String using "windows-1255" encoding
-            String st = new String(buffer, "windows-1255");
-            // Split the file content by "#" to separate different lists
-            String[] list = st.split("#");
-            for (int i = 0; i < list.length; i++)
+        getStore().migrateSharedLists(new ListStore.Callback<Void>()
+        {
+            @Override
+            public void onResult(Void result)
+            {
+            }
+
+            @Override
+            public void onError(String message)
             {
-                String str = list[i];
-                // Split each list by commas to get individual values
-                String[] list2 = str.split(",");
-                // Use the first element as the key (list name)
-                DatabaseReference listValuesRef = getValuesRef().child(list2[0]+String.valueOf(i));
-                for (int j = 1; j < list2.length; j++)
+                Log.w(TAG, "Failed to migrate shared lists: " + message);
+            }
+        });
+    }
+
+    // ---------------- Reading Data from Asset Files ----------------
+
+    /**
+     * Streams the template pack compiled at build time. Each default list is added to the seed data
+     * under a new permanent ID, with a pointer to its shared template instead of a copy of its values;
+     * the shared templates themselves are collected separately, to be published before the seed data is written.
+     * The pack holds the same lists as "lists.txt" and "values.txt".
+     *
+     * @param seedData Paths (relative to "UsersDatabase/{userEmail}") mapped to the values to write.
+     * @param templates Paths (relative to "Templates") mapped to the values to publish.
+     * @param listIds Receives the permanent ID allocated for each list, in template order.
+     * @return False if the pack could not be read, in which case the text files should be read instead.
+     */
+    public boolean readTemplatePack(Map<String, Object> seedData, Map<String, Object> templates, List<String> listIds)
+    {
+        try (TemplatePack pack = TemplatePack.openAsset(context))
+        {
+            pack.readAll((record, field, value) -> {
+                // Templates are keyed by their index, so every user and every device uses the same keys
+                String templateId = "t" + record;
+                if (field == 0)
                 {
-                    Map<String, Object> valueWithBoolean = new HashMap<>();
-                    valueWithBoolean.put("value", list2[j]);
-                    valueWithBoolean.put("isChecked", false);
-                    listValuesRef.child(String.valueOf(j-1)).setValue(valueWithBoolean);
+                    // The lists come first, in template order
+                    String listId = newKey(getListsRef());
+                    listIds.add(listId);
+                    seedData.put("lists/" + listId, value);
+                    seedData.put("templates/" + listId, templateId);
+                    templates.put(templateId + "/name", value);
+                    // The values of a template are replaced as a whole, so values dropped from the pack disappear
+                    templates.put(templateId + "/values", new HashMap<String, Object>());
+                    return;
                 }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+                if (record >= listIds.size())
+                {
+                    return;
+                }
+                Map<String, Object> valueWithBoolean = new HashMap<>();
+                valueWithBoolean.put("value", value);
+                valueWithBoolean.put("isChecked", false);
+                valueWithBoolean.put("order", field - 1);
+                @SuppressWarnings("unchecked")
+                Map<String, Object> templateValues = (Map<String, Object>) templates.get(templateId + "/values");
+                // The private copy of a list keeps these keys, so items stay the same rows after the copy
+                templateValues.put("i" + (field - 1), valueWithBoolean);
+            });
+            templates.put("version", pack.getVersion());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // A missing or malformed pack must not leave the user half seeded
+            Log.w(TAG, "Failed to read the template pack", e);
+            seedData.clear();
+            templates.clear();
+            listIds.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Streams the "lists.txt" file from the assets folder and adds each list name
+     * to the seed data under the "lists" path.
+     *
+     * @param seedData Paths (relative to "UsersDatabase/{userEmail}") mapped to the values to write.
+     * @param listIds Receives the permanent ID allocated for each list, in file order.
+     * @return False if the file could not be read, in which case no list is added.
+     */
+    public boolean readFromFile1(Map<String, Object> seedData, List<String> listIds)
+    {
+        try (TemplateReader reader = openTemplate("lists.txt"))
+        {
+            reader.readAll((record, field, value) -> {
+                // Save each list under a new permanent ID (generated locally, in creation order)
+                String listId = newKey(getListsRef());
+                listIds.add(listId);
+                seedData.put("lists/" + listId, value);
+            });
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read lists.txt", e);
+            seedData.clear();
+            listIds.clear();
+            return false;
+        }
+    }
+
+    // Opens a template file from the assets folder
+    private TemplateReader openTemplate(String fileName) throws IOException
+    {
+        return new TemplateReader(new InputStreamReader(context.getAssets().open(fileName), TemplateReader.CHARSET));
+    }
+
+    /**
+     * Streams the "values.txt" file from the assets folder, where every record ('#') holds
+     * a list name followed by its values, and adds the values to the seed data under the "values" path.
+     *
+     * @param seedData Paths (relative to "UsersDatabase/{userEmail}") mapped to the values to write.
+     * @param listIds The list IDs allocated by {@link #readFromFile1}, in file order.
+     * @return False if the file could not be read, in which case no list is added, not even without its values.
+     */
+    public boolean readFromFile2(Map<String, Object> seedData, List<String> listIds)
+    {
+        try (TemplateReader reader = openTemplate("values.txt"))
+        {
+            reader.readAll((record, field, value) -> {
+                // The first field of a record is the list name; the values of the i-th list are stored under the ID of the i-th list
+                if (field == 0 || record >= listIds.size())
+                {
+                    return;
+                }
+                String listKey = listIds.get(record);
+                Map<String, Object> valueWithBoolean = new HashMap<>();
+                valueWithBoolean.put("value", value);
+                valueWithBoolean.put("isChecked", false);
+                valueWithBoolean.put("order", field - 1);
+                // Push IDs are generated locally, so this does not touch the network
+                seedData.put("values/" + listKey + "/" + newKey(getValuesRef().child(listKey)), valueWithBoolean);
+            });
+            return true;
+        } catch (IOException e) {
+            // A half-read file must not leave the user with some of the lists' values
+            Log.w(TAG, "Failed to read values.txt", e);
+            seedData.clear();
+            listIds.clear();
+            return false;
         }
     }
 
     /**
-     * Creates initial categories for each user who connects.
+     * Adds the initial categories for each user who connects to the seed data.
+     *
+     * @param seedData Paths (relative to "UsersDatabase/{userEmail}") mapped to the values to write.
      */
-    public void InitialCategories()
+    public void InitialCategories(Map<String, Object> seedData)
     {
         // Create the default category with key "0" and value "כל הקטגוריות" (All categories).
-        getCategoriesRef().child(String.valueOf(0)).setValue("כל הקטגוריות");
+        seedData.put("Categories/0", "כל הקטגוריות");
         // Create a category with key "1" and value "טיולים" (Trips).
-        getCategoriesRef().child(String.valueOf(1)).setValue("טיולים");
+        seedData.put("Categories/1", "טיולים");
         // Create a category with key "2" and value "קניות" (Shopping).
-        getCategoriesRef().child(String.valueOf(2)).setValue("קניות");
+        seedData.put("Categories/2", "קניות");
         // Create a category with key "3" and value "אירועים מיוחדים" (Special events).
-        getCategoriesRef().child(String.valueOf(3)).setValue("אירועים מיוחדים");
+        seedData.put("Categories/3", "אירועים מיוחדים");
     }
 
  /**
  * Retrieves the categories from the database and posts them to the provided LiveData objects.
+ * The categories are only read again when their version stamp changed since the last read.
  *
  * @param CategoriesLiveData LiveData to post the list of categories.
  * @param loadingLiveData LiveData to indicate the loading status.
@@ -274,195 +420,87 @@ public class Repository {
                               final MutableLiveData<String> errorLiveData) {
         // Set loading indicator to true to show that data retrieval has started.
         loadingLiveData.setValue(true);
-        // Attach a single event listener to fetch the categories from the database.
-        getCategoriesRef().addListenerForSingleValueEvent(new ValueEventListener()
-        {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                // Initialize a list to hold the retrieved category names.
-                List<String> Categories = new ArrayList<>();
-                 // Iterate through each child node (each category) in the snapshot.
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    // Retrieve the value of the category as a String.
-                    String CategoryStr = child.getValue(String.class);
-                    // If the category value is not null, add it to the list.
-                    if (CategoryStr != null)
-                    {
-                        Categories.add(CategoryStr);
-                    }
-                }
-                // Post the list of categories to the LiveData.
-                CategoriesLiveData.setValue(Categories);
-                 // Set loading indicator to false as data retrieval is complete.
-                loadingLiveData.setValue(false);
-            }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError)
-            {
-                // In case of an error, set loading indicator to false.
-                loadingLiveData.setValue(false);
-                // Post an error message with the details from the DatabaseError.
-                errorLiveData.setValue("Failed to fetch content: " + databaseError.getMessage());
-            }
-        });
+        getStore().getCategories(posting(CategoriesLiveData, loadingLiveData, errorLiveData));
     }
 
     /**
      * Retrieves all saved lists from Firebase under the "lists" node
      * and posts them to the provided LiveData.
+     * The node is only read again when its version stamp changed since the last read.
      */
-    public void getUserLists(final MutableLiveData<List<String>> listsLiveData,
+    public void getUserLists(final MutableLiveData<List<UserListObject>> listsLiveData,
                          final MutableLiveData<Boolean> loadingLiveData,
                          final MutableLiveData<String> errorLiveData)
     {
         // Set the loading indicator to true as the retrieval process starts.
         loadingLiveData.setValue(true);
-        // Get the DatabaseReference for the user's lists.
-        DatabaseReference getListsRef = getListsRef();
-        // Attach a single event listener to fetch the data from Firebase.
-        getListsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        getStore().getUserLists(new ListStore.Callback<Map<String, String>>()
+        {
             @Override
-            public void onDataChange(DataSnapshot snapshot)
+            public void onResult(Map<String, String> result)
             {
-                // Initialize a list to store the retrieved lists.
-                List<String> lists = new ArrayList<>();
-                // Iterate over each child snapshot, which represents an individual list.
-                for (DataSnapshot child : snapshot.getChildren())
+                // Pair every list's name with its permanent ID, in creation order.
+                List<UserListObject> lists = new ArrayList<>();
+                for (Map.Entry<String, String> list : result.entrySet())
                 {
-                    // Convert the snapshot's value to a String.
-                    String listStr = child.getValue(String.class);
-                    // If the list string is not null, add it to the list.
-                    if (listStr != null)
-                    {
-                        lists.add(listStr);
-                    }
+                    lists.add(new UserListObject(list.getKey(), list.getValue()));
                 }
-                 // Post the retrieved lists to the provided LiveData.
                 listsLiveData.setValue(lists);
                 // Disable the loading indicator as data retrieval is complete.
                 loadingLiveData.setValue(false);
             }
+
             @Override
-            public void onCancelled(DatabaseError databaseError)
+            public void onError(String message)
             {
-                // Disable the loading indicator since the operation has ended.
                 loadingLiveData.setValue(false);
-                // Post an error message with details about the failure.
-                errorLiveData.setValue("Failed to fetch content: " + databaseError.getMessage());
+                errorLiveData.setValue(message);
             }
         });
     }
-    public void getSharedLists(final MutableLiveData<List<ListSharedObject>> listsLiveData, final MutableLiveData<Boolean> loadingLiveData, final MutableLiveData<String> errorLiveData)
+
+    /**
+     * Retrieves one page of the shared lists, ordered from the most saved to the least saved.
+     * The query is ordered by "saveCount" on the server and limited to the last pageSize lists,
+     * so only the lists that are shown are downloaded.
+     *
+     * @param after The last list of the previous page, or null to fetch the first page.
+     * @param pageSize The maximum number of lists in the page.
+     * @param fresh True to read the page from the server instead of the cache (an explicit refresh).
+     * @param pageLiveData LiveData to post the page; a page shorter than pageSize is the last one.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void getSharedListsPage(ListSharedObject after, int pageSize, boolean fresh,
+                                   final MutableLiveData<List<ListSharedObject>> pageLiveData,
+                                   final MutableLiveData<Boolean> loadingLiveData,
+                                   final MutableLiveData<String> errorLiveData)
     {
-        // Set the loading indicator to true as we start fetching shared lists.
         loadingLiveData.setValue(true);
-        // Get the DatabaseReference for the shared lists.
-        DatabaseReference getListsRef = getSharedListsRef();
-         // Attach a listener to retrieve the shared lists data as a single event.
-        getListsRef.addListenerForSingleValueEvent(new ValueEventListener()
-        {
-            @Override
-            public void onDataChange(DataSnapshot snapshot)
-            {
-                // Initialize a list to hold the ListSharedObject items.
-                List<ListSharedObject> lists = new ArrayList<>();
-                // Iterate over each child node under the shared lists.
-                for (DataSnapshot child : snapshot.getChildren())
-                {
-                    // Retrieve the list's name from the "Name" child node.
-                    String listStr = child.child("Name").getValue(String.class);
-                    // Retrieve the list of users who have saved the list.
-                    List<String> userSaves = child.child("savedUsers").getValue(new GenericTypeIndicator<List<String>>() {});
-                    // Get the count of saved users.
-                    int listSaveCount = userSaves.size();
-                    // If there is only one entry and it's an empty string, treat the count as zero.
-                    if(listSaveCount == 1 && userSaves.get(0).equals(""))
-                    {
-                        listSaveCount = 0;
-                    }
-                    // Retrieve the list of categories associated with the list.
-                    List<String> listCategoriesList = child.child("Categories").getValue(new GenericTypeIndicator<List<String>>() {});
-                    // Convert the list of categories to an array.
-                    String[] listCategories = listCategoriesList != null ? listCategoriesList.toArray(new String[0]) : new String[0];
-                    // If the list name is not null, create a new ListSharedObject and add it to the list.
-                    if (listStr != null)
-                    {
-                        lists.add(new ListSharedObject(listSaveCount, listStr, listCategories));
-                    }
-                }
-                // Post the retrieved shared lists to the provided LiveData.
-                listsLiveData.setValue(lists);
-                // Disable the loading indicator as data retrieval is complete.
-                loadingLiveData.setValue(false);
-            }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError)
-            {
-                // Disable the loading indicator since the operation has ended.
-                loadingLiveData.setValue(false);
-                // Post an error message with details about the failure.
-                errorLiveData.setValue("Failed to fetch content: " + databaseError.getMessage());
-            }
-        });
+        getStore().getSharedListsPage(toSharedList(after), pageSize, fresh, postingSharedLists(pageLiveData, loadingLiveData, errorLiveData));
     }
 
     /**
-     * Retrieves the values for a specific list from the "values/{keyPrefix}" node in Firebase
-     * and updates the provided LiveData.
+     * Retrieves the values for a specific shared list and updates the provided LiveData.
+     * The lists of the user are streamed instead (see listenToValues).
      *
-     * @param keyPrefix The key for the list (usually the list name).
+     * @param keyPrefix The ID of the shared list.
      */
-    public void getValues(String valuesKind, final String keyPrefix,
+    public void getSharedValues(final String keyPrefix,
                           final MutableLiveData<List<Product>> valuesLiveData,
                           final MutableLiveData<Boolean> loadingLiveData,
                           final MutableLiveData<String> errorLiveData) {
         // Set the loading indicator to true at the start of data retrieval.
         loadingLiveData.setValue(true);
-        // Determine the correct DatabaseReference based on the type of values.
-        DatabaseReference getValuesRef;
-        if(valuesKind.equals("SharedValues"))
-        {
-             // Use the shared values reference if valuesKind equals "SharedValues".
-            getValuesRef = getSharedValuesRef();
-        }
-        else
-        {
-            // Otherwise, use the user-specific values reference.
-            getValuesRef = getValuesRef();
-        }
-        // Attach a listener to retrieve the values for the given keyPrefix.
-        getValuesRef.child(keyPrefix).addListenerForSingleValueEvent(new ValueEventListener()
+        getStore().getSharedItems(keyPrefix, new ListStore.Callback<List<Item>>()
         {
             @Override
-            public void onDataChange(DataSnapshot snapshot)
+            public void onResult(List<Item> items)
             {
-                // Create a list to hold the retrieved Product objects.
                 List<Product> values = new ArrayList<>();
-                // Iterate over each child in the node
-                for (DataSnapshot child : snapshot.getChildren())
+                for (Item item : items)
                 {
-                    String value;
-                    // Default isChecked to false.
-                    Boolean isChecked = false;
-                    if(valuesKind.equals("UserValues"))
-                    {
-                        // If using user-specific values, retrieve both "isChecked" and "value" fields.
-                        isChecked = child.child("isChecked").getValue(Boolean.class);
-                        
-                        value = child.child("value").getValue(String.class);
-                    }
-                    else
-                    {
-                        // For shared values, only retrieve the value.
-                        value = child.getValue(String.class);
-                    }
-                    // Only add the product if the value is not null and isChecked is available.
-                    if (value != null && isChecked != null)
-                    {
-                        values.add(new Product(value, isChecked));
-                    }
+                    values.add(new Product(item.getId(), item.getValue(), item.isChecked()));
                 }
                 // Update the LiveData with the fetched values
                 valuesLiveData.setValue(values);
@@ -471,187 +509,104 @@ public class Repository {
             }
 
             @Override
-            public void onCancelled(DatabaseError error)
+            public void onError(String message)
             {
                 // Update error LiveData and stop loading state
                 loadingLiveData.setValue(false);
-                errorLiveData.setValue("Failed to fetch values: " + error.getMessage());
+                errorLiveData.setValue(message);
             }
         });
     }
+
+    /**
+     * Streams the changes to the items of a user list, starting with every existing item as an addition.
+     * Writes made on this device are reported immediately, and writes of other members of the household
+     * as soon as they reach the server, so mutations never need to reload the list.
+     * A list that still points at a shared template is streamed from the template until it is copied.
+     *
+     * @param keyPrefix The permanent ID of the list.
+     * @param changesLiveData LiveData to post each change to, in the order they happen.
+     * @param loadingLiveData LiveData to indicate the loading state of the existing items.
+     * @param errorLiveData LiveData to capture error messages.
+     * @return The stream, to be passed to stopListeningToValues when the list is closed.
+     */
+    public ValuesStream listenToValues(String keyPrefix,
+                                       final MutableLiveData<ProductChange> changesLiveData,
+                                       final MutableLiveData<Boolean> loadingLiveData,
+                                       final MutableLiveData<String> errorLiveData)
+    {
+        ValuesStream stream = new ValuesStream(changesLiveData, loadingLiveData, errorLiveData);
+        stream.start(getStore(), keyPrefix);
+        return stream;
+    }
+
+    /**
+     * Stops streaming the changes to the items of a user list.
+     *
+     * @param stream The stream returned by listenToValues.
+     */
+    public void stopListeningToValues(ValuesStream stream)
+    {
+        stream.stop();
+    }
+
 // ---------------- Firebase "Add" Methods ----------------
 
     /**
-     * Adds a new list to Firebase under the "lists" node.
-     * We use the list name as the key (assuming list names are unique).
+     * Adds a new, empty list to Firebase under the "lists" node.
      *
      * @param listName The name of the list to add.
      * @param errorLiveData LiveData to capture error messages.
      */
-    public void addList(String listName, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
-        try
-        {
-            // Set loading state to true before starting the operation
-            loadingLiveData.setValue(true);
-            DatabaseReference getListsRef = getListsRef();
-            // Determine the next available index by reading the current children count
-            getListsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    long count = snapshot.getChildrenCount();
-                    // Next index = count + 1 (assuming keys start at 1)
-                    Map<String, Object> valueWithBoolean = new HashMap<>();
-                    valueWithBoolean.put("value", "");
-                    valueWithBoolean.put("isChecked", false);
-                    getValuesRef().child(listName + String.valueOf(count)).child(String.valueOf(0)).setValue(valueWithBoolean);
-                    getListsRef.child(String.valueOf(count)).setValue(listName)
-                            .addOnSuccessListener(unused -> {
-                                // Set loading state to false after the operation is successful
-                                loadingLiveData.setValue(false);
-                            })
-                            .addOnFailureListener(e -> {
-                                // Set an error message and loading state to false if the operation fails
-                                errorLiveData.setValue("Failed to add list: " + e.getMessage());
-                                loadingLiveData.setValue(false);
-                            });
-                }
+    public void addList(String listName, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    {
+        addList(listName, new ArrayList<>(), loadingLiveData, errorLiveData);
+    }
 
-                @Override
-                public void onCancelled(DatabaseError error)
-                {
-                    // Set an error message and loading state to false if the listener is cancelled
-                    errorLiveData.setValue("Failed to add value: " + error.getMessage());
-                    loadingLiveData.setValue(false);
-                }
-            });
-        }
-        catch (Exception e)
-        {
-            // Set an error message and loading state to false if an exception occurs
-            errorLiveData.setValue("Failed to add value: " + e.getMessage());
-            loadingLiveData.setValue(false);
-        }
+    /**
+     * Adds a new list with its values to Firebase.
+     * The list gets a permanent ID at creation; its name is stored under "lists/{listId}" and
+     * its values under "values/{listId}", both in a single update with their version stamps.
+     *
+     * @param listName The name of the list to add.
+     * @param valuesList The values of the new list.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void addList(String listName, List<String> valuesList, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
+        // Set loading state to true before starting the operation
+        loadingLiveData.setValue(true);
+        getStore().addList(listName, valuesList, completing(loadingLiveData, errorLiveData));
     }
+    /**
+     * Shares a list with every user, indexing it by name and by each of its categories.
+     */
     public void addSharedList(String listName,ArrayList<String> categories, ArrayList<String> valuesList, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
-        try
-        {
-            // Set loading state to true before starting the operation
-            loadingLiveData.setValue(true);
-            DatabaseReference getListsRef = getSharedListsRef();
-            DatabaseReference getValuesRef = getSharedValuesRef();
-            // Determine the next available index by reading the current children count
-            getListsRef.addListenerForSingleValueEvent(new ValueEventListener()
-            {
-                @Override
-                public void onDataChange(DataSnapshot snapshot)
-                {
-                    long count = snapshot.getChildrenCount();
-                    // Next index = count + 1 (assuming keys start at 1)
-                    Map<String, Object> sharedObject = new HashMap<>();
-                    sharedObject.put("Categories",categories);
-                    String userEmail = mAuth.getCurrentUser().getEmail();
-                    String emailNode = userEmail.replace(".", "_");
-                    sharedObject.put("CreatedBy", emailNode);
-                    sharedObject.put("Name",listName);
-                    ArrayList<String> listSaves = new ArrayList<>();
-                    listSaves.add("");
-                    sharedObject.put("savedUsers", listSaves);
-                    getListsRef.child(String.valueOf(count)).setValue(sharedObject)
-                            .addOnSuccessListener(unused -> {
-                                // Set loading state to false after the operation is successful
-                                loadingLiveData.setValue(false);
-                                int i = 0;
-                                for (String value : valuesList)
-                                {
-                                    getValuesRef.child(listName + String.valueOf(count)).child(String.valueOf(i)).setValue(value);
-                                    i++;
-                                }
-
-                            })
-                            .addOnFailureListener(e -> {
-                                // Set an error message and loading state to false if the operation fails
-                                errorLiveData.setValue("Failed to add list: " + e.getMessage());
-                                loadingLiveData.setValue(false);
-                            });
-                }
-
-                @Override
-                public void onCancelled(DatabaseError error)
-                {
-                    // Set an error message and loading state to false if the listener is cancelled
-                    errorLiveData.setValue("Failed to add value: " + error.getMessage());
-                    loadingLiveData.setValue(false);
-                }
-            });
-        }
-        catch (Exception e)
-        {
-            // Set an error message and loading state to false if an exception occurs
-            errorLiveData.setValue("Failed to add value: " + e.getMessage());
-            loadingLiveData.setValue(false);
-        }
+        // Set loading state to true before starting the operation
+        loadingLiveData.setValue(true);
+        getStore().addSharedList(listName, categories, valuesList, completing(loadingLiveData, errorLiveData));
     }
 
     /**
-     * Adds a new value under a specific list in Firebase.
-     * Values are stored under "values/{listName}" with keys formatted as listName1, listName2, etc.
+     * Adds new values under a specific list in Firebase.
+     * Each value is stored under "values/{keyPrefix}/{pushId}" with an "order" field, so no read
+     * is needed to find the next free key and all the values are written in one update.
      *
-     * @param keyPrefix The list name (used as the key prefix).
+     * @param keyPrefix The permanent ID of the list.
      * @param valuesList The values to add.
      * @param errorLiveData LiveData to capture error messages.
      */
     public void addValues(String keyPrefix, ArrayList<String> valuesList, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
-        try
-        {
-            // Set loading state to true before starting the operation
-            loadingLiveData.setValue(true);
-            final DatabaseReference listValuesRef = getValuesRef().child(keyPrefix);
-            // Determine the next available index by reading the current children count
-            listValuesRef.addListenerForSingleValueEvent(new ValueEventListener()
-            {
-                @Override
-                public void onDataChange(DataSnapshot snapshot)
-                {
-                    long count = snapshot.getChildrenCount();
-                    // Next index = count + 1 (assuming keys start at 1)
-                    if(count == 1)
-                    {
-                        DataSnapshot child = snapshot.getChildren().iterator().next();
-                        if (child.getValue() != null && child.child("value").getValue().equals(""))
-                        {
-                            count = 0;
-                        }
-                    }
-                    int i = 0;
-                    for(String value : valuesList)
-                    {
-                        Map<String, Object> valueWithBoolean = new HashMap<>();
-                        valueWithBoolean.put("value", value);
-                        valueWithBoolean.put("isChecked", false);
-                        listValuesRef.child(String.valueOf(count+i)).setValue(valueWithBoolean);
-                        i++;
-                    }
-                    // Set loading state to false after the operation is successful
-                    loadingLiveData.setValue(false);
-                }
-                @Override
-                public void onCancelled(DatabaseError error)
-                {
-                    errorLiveData.setValue("Failed to add value: " + error.getMessage());
-                    loadingLiveData.setValue(false);
-                }
-            });
-        }
-        catch (Exception e) {
-            errorLiveData.setValue("Failed to add value: " + e.getMessage());
-            loadingLiveData.setValue(false);
-        }
+        // Set loading state to true before starting the operation
+        loadingLiveData.setValue(true);
+        getStore().addItems(keyPrefix, valuesList, reporting(errorLiveData));
+        // Local listeners see the write as soon as it is made, so the list is not reloaded
+        loadingLiveData.setValue(false);
     }
     /**
-     * Adds a new category to Firebase under the "categories" node.
-     * The category name is used as the value, and keys are generated incrementally.
+     * Adds a new category to Firebase under the "categories" node, under a new key,
+     * so concurrent adds from different devices never overwrite each other.
      *
      * @param categoryName  The name of the category to add.
      * @param loadingLiveData LiveData to indicate the loading state.
@@ -659,606 +614,533 @@ public class Repository {
      */
     public void addCategory(String categoryName, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
-        try {
-            // Set loading state to true before starting the operation
-            loadingLiveData.setValue(true);
-            DatabaseReference getCategoriesRef = getCategoriesRef();
-            // Determine the next available index by reading the current children count
-            getCategoriesRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot snapshot)
-                {
-                    long count = snapshot.getChildrenCount(); // Get the number of existing categories
-                    if(count == 1)
-                    {
-                        DataSnapshot child = snapshot.getChildren().iterator().next();
-                        if (child.getValue() != null && child.getValue().equals(""))
-                        {
-                            count = 0;
-                        }
-                    }
-                    // Add the new category at the next available index
-                    getCategoriesRef.child(String.valueOf(count)).setValue(categoryName)
-                            .addOnSuccessListener(unused -> {
-                                // Set loading state to false after the operation is successful
-                                loadingLiveData.setValue(false);
-                            })
-                            .addOnFailureListener(e -> {
-                                // Set an error message and loading state to false if the operation fails
-                                errorLiveData.setValue("Failed to add category: " + e.getMessage());
-                                loadingLiveData.setValue(false);
-                            });
-                }
-
-                @Override
-                public void onCancelled(DatabaseError error) {
-                    // Set an error message and loading state to false if the listener is cancelled
-                    errorLiveData.setValue("Failed to add category: " + error.getMessage());
-                    loadingLiveData.setValue(false);
-                }
-            });
-        } catch (Exception e) {
-            // Set an error message and loading state to false if an exception occurs
-            errorLiveData.setValue("Failed to add category: " + e.getMessage());
-            loadingLiveData.setValue(false);
-        }
+        // Set loading state to true before starting the operation
+        loadingLiveData.setValue(true);
+        getStore().addCategory(categoryName, completing(loadingLiveData, errorLiveData));
     }
 
     // ---------------- Firebase "Delete" Methods ----------------
 
     /**
      * Deletes a list and its associated values from Firebase.
+     * Lists are keyed by permanent IDs, so no other list is touched.
      *
-     * @param listName The name of the list to delete.
+     * @param listId The permanent ID of the list to delete.
      * @param errorLiveData LiveData to capture error messages.
      */
-    public void deleteList(String listName, String key, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
+    public void deleteList(String listId, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
         // Set loading state to true before starting the operation
         loadingLiveData.setValue(true);
-        DatabaseReference ListsRef = getListsRef();
-        DatabaseReference valuesRef = getValuesRef();
-        ListsRef.child(key).removeValue();
-        valuesRef.child(listName + key).removeValue();
-        ListsRef.addListenerForSingleValueEvent(new ValueEventListener()
-        {
-            @Override
-            public void onDataChange(DataSnapshot snapshot)
-            {
-                if (snapshot.exists())
-                {
-                    int counter = 0; // Keeps track of how many gaps exist (null values)
-                    // Iterate through the remaining items
-                    for (int i = Integer.valueOf(key); i < snapshot.getChildrenCount() + 1; i++)
-                    {
-                        String listName = snapshot.child(String.valueOf(i)).getValue(String.class);
-                        if (listName == null)
-                        {
-                            // Increment the counter for null (deleted) values
-                            counter++;
-                        }
-                        else
-                        {
-                            // Move the current value to fill the gap
-                            ListsRef.child(String.valueOf(i - counter)).setValue(listName);
-
-                            // Move the values from sharedValuesRef as well
-                            String oldValuesKey = listName + i;
-                            String newValuesKey = listName + (i - counter);
-
-                            valuesRef.child(oldValuesKey).addListenerForSingleValueEvent(new ValueEventListener()
-                            {
-                                @Override
-                                public void onDataChange(DataSnapshot valueSnapshot)
-                                {
-                                    if (valueSnapshot.exists())
-                                    {
-                                        valuesRef.child(newValuesKey).setValue(valueSnapshot.getValue(), (databaseError, databaseReference) -> {
-                                            if (databaseError == null)
-                                            {
-                                                // Remove the old key to avoid duplicates
-                                                valuesRef.child(oldValuesKey).removeValue();
-                                            }
-                                        });
-                                    }
-                                }
-                                @Override
-                                public void onCancelled(DatabaseError databaseError)
-                                {
-                                    // Notify completion of loading
-                                    loadingLiveData.setValue(false);
-                                    System.out.println("Error moving shared values: " + databaseError.getMessage());
-                                }
-                            });
-                            // Remove the old key to avoid duplicates
-                            ListsRef.child(String.valueOf(i)).removeValue();
-                        }
-                    }
-                    // Notify completion of loading
-                    loadingLiveData.setValue(false);
-                }
-            }
-            @Override
-            public void onCancelled(DatabaseError error)
-            {
-                // Notify completion of loading
-                loadingLiveData.setValue(false);
-                System.out.println("Error: " + error.getMessage());
-            }
-        });
+        DatabaseListStore store = getStore();
+        // Checkbox changes still waiting to be sent would bring back parts of the deleted items
+        writeBehind.drop(store.valuesPath(listId));
+        store.deleteList(listId, reporting(errorLiveData));
+        // Local listeners see the removal immediately, so the lists can be reloaded right away
+        loadingLiveData.setValue(false);
     }
     /**
-     * Deletes a value from a specific list in Firebase and shifts subsequent keys to maintain a continuous sequence.
+     * Deletes values from a specific list in Firebase.
+     * Values are keyed by stable IDs, so only the deleted entries are touched.
      *
-     * @param keyPrefix The list name used as the key prefix.
-     * @param indexes The 1-based indexes of the values to delete.
+     * @param keyPrefix The permanent ID of the list.
+     * @param ids The keys of the values to delete.
      * @param errorLiveData LiveData to capture error messages.
      */
-    public void deleteValues(String keyPrefix, int[] indexes, int listSize, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    public void deleteValues(String keyPrefix, List<String> ids, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
         // Set loading state to true before starting the operation
         loadingLiveData.setValue(true);
-        DatabaseReference listValuesRef = getValuesRef().child(keyPrefix);
-        Boolean listEmpty = false;
-        // Remove the values at the given indexes
-        for (int i = 0; i < indexes.length; i++)
+        DatabaseListStore store = getStore();
+        // Checkbox changes still waiting to be sent would bring back parts of the deleted items
+        for (String id : ids)
         {
-            if (listSize == indexes.length && i == indexes.length-1)
-            {
-                Map<String, Object> valueWithBoolean = new HashMap<>();
-                valueWithBoolean.put("value", "");
-                valueWithBoolean.put("isChecked", false);
-                listValuesRef.child(String.valueOf(indexes[i])).setValue(valueWithBoolean);
-                listEmpty = true;
-                loadingLiveData.setValue(false);
-            }
-            else
-            {
-                listValuesRef.child(String.valueOf(indexes[i])).removeValue();
-            }
-        }
-        if(!listEmpty)
-        {
-            // Add a listener to handle re-indexing after deletion
-            listValuesRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        int counter = 0; // Keeps track of how many gaps exist (null values)
-
-                        // Iterate through the remaining items
-                        for (int i = indexes[0]; i < snapshot.getChildrenCount() + indexes.length; i++) {
-                            String value = snapshot.child(String.valueOf(i)).child("value").getValue(String.class);
-                            if (value == null)
-                            {
-                                // Increment the counter for null (deleted) values
-                                counter++;
-                            }
-                            else
-                            {
-                                Map<String, Object> valueWithBoolean = new HashMap<>();
-                                valueWithBoolean.put("value", value);
-                                valueWithBoolean.put("isChecked", snapshot.child(String.valueOf(i)).child("isChecked").getValue(Boolean.class));
-                                // Move the current value to fill the gap
-                                listValuesRef.child(String.valueOf(i - counter)).setValue(valueWithBoolean);
-                                // Remove the old key to avoid duplicates
-                                listValuesRef.child(String.valueOf(i)).removeValue();
-                            }
-                        }
-
-                        // Notify completion of loading
-                        loadingLiveData.setValue(false);
-                    } else {
-                        // If the snapshot doesn't exist, notify error
-                        errorLiveData.setValue("No data found in the list.");
-                        loadingLiveData.setValue(false);
-                    }
-                }
-
-                @Override
-                public void onCancelled(DatabaseError error)
-                {
-                    // Handle database access errors
-                    errorLiveData.setValue("Failed to access database: " + error.getMessage());
-                }
-            });
+            writeBehind.drop(store.valuesPath(keyPrefix) + "/" + id);
         }
+        store.deleteItems(keyPrefix, ids, reporting(errorLiveData));
+        // Local listeners see the removal as soon as it is made, so the list is not reloaded
+        loadingLiveData.setValue(false);
     }
     /**
      * Deletes the categories and its associated data from Firebase.
+     * Categories keep their keys, so only the deleted entries are removed and nothing is shifted.
      *
-     * @param indexes   The inedexes of the categories to delete.
+     * @param categoryNames The names of the categories to delete.
      * @param loadingLiveData LiveData to indicate the loading state.
      * @param errorLiveData   LiveData to capture error messages.
      */
-    public void deleteCategories(ArrayList<Integer> indexes, int categoriesSize, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    public void deleteCategories(List<String> categoryNames, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
         // Set loading state to true before starting the operation
         loadingLiveData.setValue(true);
-        DatabaseReference categoriesRef = getCategoriesRef();
-        Boolean categoriesEmpty = false;
-        // Remove the values at the given indexes
-        for (int i = 0; i < indexes.size(); i++)
+        getStore().deleteCategories(categoryNames, completing(loadingLiveData, errorLiveData));
+    }
+    /**
+     * Retrieves one page of the shared lists that belong to all of the given categories, the most saved first.
+     * Each entry of the "byCategory" index holds the list's name, categories and save count, so a page is
+     * read with one query of the first category's entries, ordered by "saveCount" on the server and limited
+     * to pageSize. Entries missing another selected category are skipped, and the query continues below the
+     * last entry read until the page is full or the category has no more lists.
+     *
+     * @param filteredCategories The categories every returned list must belong to.
+     * @param after The last list of the previous page, or null to fetch the first page.
+     * @param pageSize The maximum number of lists in the page.
+     * @param pageLiveData LiveData to post the page; a page shorter than pageSize is the last one.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void getFilteredListsPage(List<String> filteredCategories, ListSharedObject after, int pageSize,
+                                     MutableLiveData<List<ListSharedObject>> pageLiveData,
+                                     MutableLiveData<Boolean> loadingLiveData,
+                                     MutableLiveData<String> errorLiveData)
+    {
+        // Start by setting the loading indicator to true.
+        loadingLiveData.setValue(true);
+        if (filteredCategories == null)
         {
-            if (categoriesSize == indexes.size() && i == indexes.size()-1)
-            {
-
-                categoriesRef.child(String.valueOf(indexes.get(i))).setValue("");
-                categoriesEmpty = true;
-                loadingLiveData.setValue(false);
-            }
-            else
+            // Nothing was selected, so no list matches.
+            pageLiveData.setValue(new ArrayList<>());
+            loadingLiveData.setValue(false);
+            return;
+        }
+        // "כל הקטגוריות" (meaning "All categories") does not restrict the result.
+        List<String> categories = new ArrayList<>();
+        for (String category : filteredCategories)
+        {
+            if (!category.equals("כל הקטגוריות") && !categories.contains(category))
             {
-                categoriesRef.child(String.valueOf(indexes.get(i))).removeValue();
+                categories.add(category);
             }
         }
-        categoriesRef.addListenerForSingleValueEvent(new ValueEventListener()
+        getStore().getFilteredLists(categories, toSharedList(after), pageSize, postingSharedLists(pageLiveData, loadingLiveData, errorLiveData));
+    }
+
+    /**
+     * Streams the "names" index of the shared lists into a search index, starting with every name.
+     * Each entry holds the fields a row of the list shows, so the found lists are shown from the
+     * entries without reading each list. The index is kept synced, so after the first load it is
+     * read from the device and searching never waits for the network.
+     *
+     * @param searchIndex The search index to keep up to date.
+     * @param indexedLists The rows of the indexed lists by ID, kept up to date.
+     * @param loadingLiveData LiveData to indicate the loading state of the existing names.
+     * @param errorLiveData LiveData to capture error messages.
+     * @return The listener, to be passed to stopListeningToSharedListNames.
+     */
+    public ChildEventListener listenToSharedListNames(SharedListSearchIndex searchIndex,
+                                                      Map<String, ListSharedObject> indexedLists,
+                                                      MutableLiveData<Boolean> loadingLiveData,
+                                                      MutableLiveData<String> errorLiveData)
+    {
+        loadingLiveData.setValue(true);
+        DatabaseReference namesRef = getSharedNameIndexRef();
+        LocalCache.keepSynced(namesRef, true);
+        ChildEventListener listener = namesRef.addChildEventListener(new ChildEventListener()
         {
             @Override
-            public void onDataChange(DataSnapshot snapshot)
+            public void onChildAdded(DataSnapshot child, String previousChildName)
             {
-                if (snapshot.exists())
-                {
-                    int counter = 0; // Keeps track of how many gaps exist (null values)
-
-                    // Iterate through the remaining items
-                    for (int i = indexes.get(0); i < snapshot.getChildrenCount() + indexes.size(); i++)
-                    {
-                        String value = snapshot.child(String.valueOf(i)).getValue(String.class);
-                        if (value == null)
-                        {
-                            // Increment the counter for null (deleted) values
-                            counter++;
-                        }
-                        else
-                        {
-                            // Move the current value to fill the gap
-                            categoriesRef.child(String.valueOf(i - counter)).setValue(value);
-                            // Remove the old key to avoid duplicates
-                            categoriesRef.child(String.valueOf(i)).removeValue();
-                        }
-                    }
+                onChildChanged(child, previousChildName);
+            }
 
-                    // Notify completion of loading
-                    loadingLiveData.setValue(false);
-                }
-                else
+            @Override
+            public void onChildChanged(DataSnapshot child, String previousChildName)
+            {
+                // Entries written before the index held rows are the list's name only
+                Object value = child.getValue();
+                ListSharedObject sharedList = value instanceof String
+                        ? new ListSharedObject(child.getKey(), 0, (String) value, new String[0])
+                        : toSharedListObject(child);
+                if (sharedList != null)
                 {
-                    // If the snapshot doesn't exist, notify error
-                    errorLiveData.setValue("No data found in the category.");
-                    loadingLiveData.setValue(false);
+                    searchIndex.put(child.getKey(), sharedList.getListName());
+                    indexedLists.put(child.getKey(), sharedList);
                 }
             }
+
+            @Override
+            public void onChildRemoved(DataSnapshot child)
+            {
+                searchIndex.remove(child.getKey());
+                indexedLists.remove(child.getKey());
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot child, String previousChildName)
+            {
+            }
+
             @Override
             public void onCancelled(DatabaseError error)
             {
-                // Handle database access errors
-                errorLiveData.setValue("Failed to access database: " + error.getMessage());
+                errorLiveData.setValue("Failed to fetch list names: " + error.getMessage());
             }
         });
-    }
-    public void getFilteredLists(List<String> filteredCategories,
-                                 MutableLiveData<Boolean> loadingLiveData,
-                                 MutableLiveData<List<ListSharedObject>> listsLiveData,
-                                 MutableLiveData<String> errorLiveData)
-    {
-        // Start by setting the loading indicator to true.
-        loadingLiveData.setValue(true);
-        // Retrieve the shared lists from Firebase.
-        getSharedListsRef().addListenerForSingleValueEvent(new ValueEventListener()
+        // Value events are raised after the child events of the same data, so this marks the end of the existing names
+        LocalCache.read(namesRef, new ValueEventListener()
         {
             @Override
             public void onDataChange(DataSnapshot snapshot)
             {
-                // Initialize a list to store the filtered ListSharedObject items.
-                List<ListSharedObject> lists = new ArrayList<>();
-                // Check if the snapshot contains data.
-                if (snapshot.exists())
-                {
-                    // Iterate through each shared list node.
-                    for (DataSnapshot child : snapshot.getChildren())
-                    {
-                        // Retrieve the list of categories for the current list.
-                        GenericTypeIndicator<List<String>> t = new GenericTypeIndicator<List<String>>() {};
-                        List<String> categoriesOfList = child.child("Categories").getValue(t);
-                        // If no categories are found, initialize an empty list.
-                        if (categoriesOfList == null)
-                        {
-                            categoriesOfList = new ArrayList<>();
-                        }
-                        // If filteredCategories is not null, perform filtering.
-                        if (filteredCategories != null) {
-                            // Assume the current list contains all filtered categories.
-                            Boolean containsCategories = true;
-                            // Check each category in the filtered list.
-                            for (String category : filteredCategories) {
-                                // If the current list's categories do not contain this category
-                            // and the category is not "כל הקטגוריות" (meaning "All categories"),
-                            // mark it as not containing all required categories.
-                                if (!categoriesOfList.contains(category) && !category.equals("כל הקטגוריות")) {
-                                    containsCategories = false;
-                                    break;
-                                }
-                            }
-                            // If the list contains all the required filtered categories.
-                            if (containsCategories)
-                            {
-                                // Retrieve the list's name.
-                                String listName = child.child("Name").getValue(String.class);
-                                 // Retrieve the list of users who have saved this list.
-                                List<String> userSaves = child.child("savedUsers").getValue(new GenericTypeIndicator<List<String>>() {});
-                                // Calculate the number of users who saved the list.
-                                int listSaveCount = userSaves.size();
-                                // If there's only one entry and it is an empty string, treat it as zero.
-                                if(listSaveCount == 1 && userSaves.get(0).equals(""))
-                                {
-                                    listSaveCount = 0;
-                                }
-                                // Retrieve the categories associated with the list.
-                                List<String> listCategoriesList = child.child("Categories").getValue(new GenericTypeIndicator<List<String>>() {
-                                });
-                                // Convert the list of categories to an array.
-                                String[] listCategories = listCategoriesList != null ? listCategoriesList.toArray(new String[0]) : new String[0];
-                                // If the list name is not null, create a new ListSharedObject and add it to the list.
-                                if (listName != null) {
-                                    lists.add(new ListSharedObject(listSaveCount, listName, listCategories));
-                                }
-                            }
-                        }
-                    }
-                }
-                // Post the filtered lists to the LiveData.
-                listsLiveData.setValue(lists);
-                // Stop the loading indicator.
                 loadingLiveData.setValue(false);
             }
 
             @Override
-            public void onCancelled(DatabaseError error) {
-                // In case of an error, post the error message.
-                errorLiveData.setValue("Failed to fetch lists categories: " + error.getMessage());
-                // Stop the loading indicator.
+            public void onCancelled(DatabaseError error)
+            {
                 loadingLiveData.setValue(false);
+                errorLiveData.setValue("Failed to fetch list names: " + error.getMessage());
             }
         });
+        return listener;
     }
-    public void updateListSaves(String key, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
-        try {
-            // Set loading state to true before starting the operation
-            loadingLiveData.setValue(true);
-
-            // Get reference to "listSaveCount"
-            DatabaseReference savesReference = getSharedListsRef().child(key).child("savedUsers");
-            // Read the current value asynchronously
-            savesReference.addListenerForSingleValueEvent(new ValueEventListener() {
+
+    /**
+     * Stops streaming the "names" index of the shared lists.
+     *
+     * @param listener The listener returned by listenToSharedListNames.
+     */
+    public void stopListeningToSharedListNames(ChildEventListener listener)
+    {
+        getSharedNameIndexRef().removeEventListener(listener);
+    }
+
+    /**
+     * Fetches the items of the shared lists with the given IDs and posts them once all of them have arrived.
+     * A list without items, or one deleted meanwhile, is posted with an empty list of items.
+     *
+     * @param ids The permanent IDs of the shared lists.
+     * @param valuesLiveData LiveData to receive the list IDs mapped to their items.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void getSharedValuesByIds(Set<String> ids,
+                                     MutableLiveData<Map<String, List<String>>> valuesLiveData,
+                                     MutableLiveData<Boolean> loadingLiveData,
+                                     MutableLiveData<String> errorLiveData)
+    {
+        MetricsRegistry.Call call = metrics.start("getSharedValuesByIds");
+        Map<String, List<String>> values = new HashMap<>();
+        if (ids.isEmpty())
+        {
+            call.succeed();
+            valuesLiveData.setValue(values);
+            loadingLiveData.setValue(false);
+            return;
+        }
+        int[] remaining = {ids.size()};
+        for (String id : ids)
+        {
+            getSharedValuesRef().child(id).addListenerForSingleValueEvent(sizedRead(call, new ValueEventListener()
+            {
                 @Override
                 public void onDataChange(DataSnapshot snapshot)
                 {
-                    List<String> userSaves = snapshot.getValue(new GenericTypeIndicator<List<String>>() {});
-                    int listSaveCount = userSaves.size();
-                    if(listSaveCount == 1 && userSaves.get(0).equals(""))
+                    List<String> items = new ArrayList<>();
+                    for (DataSnapshot child : snapshot.getChildren())
                     {
-                        listSaveCount = 0;
+                        String value = child.getValue(String.class);
+                        if (value != null && !value.isEmpty())
+                        {
+                            items.add(value);
+                        }
                     }
-                    String userEmail = mAuth.getCurrentUser().getEmail();
-                    String emailNode = userEmail.replace(".", "_");
-                    if(!userSaves.contains(emailNode))
+                    values.put(id, items);
+                    if (--remaining[0] == 0)
                     {
-                        // Increment the count and update the database
-                        savesReference.child(String.valueOf(listSaveCount)).setValue(emailNode)
-                                .addOnSuccessListener(aVoid -> {
-                                    // Successfully updated the value
-                                    loadingLiveData.setValue(false);
-                                })
-                                .addOnFailureListener(e -> {
-                                    // Handle failure
-                                    errorLiveData.setValue("Failed to update value: " + e.getMessage());
-                                    loadingLiveData.setValue(false);
-                                });
+                        call.succeed();
+                        valuesLiveData.setValue(values);
+                        loadingLiveData.setValue(false);
                     }
                 }
 
                 @Override
-                public void onCancelled(DatabaseError databaseError) {
-                    // Handle read error
-                    errorLiveData.setValue("Database read failed: " + databaseError.getMessage());
-                    loadingLiveData.setValue(false);
+                public void onCancelled(DatabaseError error)
+                {
+                    errorLiveData.setValue("Failed to fetch values: " + error.getMessage());
+                    if (--remaining[0] == 0)
+                    {
+                        valuesLiveData.setValue(values);
+                        loadingLiveData.setValue(false);
+                    }
                 }
-            });
-
-        } catch (Exception e) {
-            errorLiveData.setValue("Unexpected error: " + e.getMessage());
-            loadingLiveData.setValue(false);
+            }));
         }
     }
 
-
-    public void ChangeProductBox(Product product,int position, String keyPrefix)
+    /**
+     * Rebuilds the "byCategory" index of the shared lists from their "Categories" fields.
+     * Used for data written before the index existed or if the index ever drifts.
+     *
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void rebuildCategoryIndex(MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
-
-        getValuesRef().child(keyPrefix).child(String.valueOf(position)).child("isChecked").setValue(product.isChecked());
+        loadingLiveData.setValue(true);
+        getStore().rebuildCategoryIndex(completing(loadingLiveData, errorLiveData));
     }
-    public void checkIfUserIsAdmin(MutableLiveData<Boolean> isAdminLiveData, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
-        // Start loading state to indicate an ongoing process
+
+    /**
+     * Records that the current user saved a shared list.
+     * The savers of a list are kept as a set under "savers/{listId}/{emailNode}". Adding the user to that
+     * set and incrementing the list's "saveCount" on the server are one multi-path update, so the server
+     * applies both or neither, and a list the user already saved is not counted again.
+     * The list's entries in the "byCategory" index are counted in the same update, so they stay ordered like the list.
+     *
+     * @param key The permanent ID of the shared list.
+     * @param categories The categories of the shared list.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void updateListSaves(String key, List<String> categories, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData) {
+        // Set loading state to true before starting the operation
         loadingLiveData.setValue(true);
+        // Only the ID and the categories of the list are needed to count the save
+        getStore().saveSharedList(new SharedList(key, null, categories, 0), completing(loadingLiveData, errorLiveData));
+    }
 
-        // Get the currently authenticated user
-        FirebaseAuth mAuth = FirebaseAuth.getInstance();
-        FirebaseUser currentUser = mAuth.getCurrentUser();
 
-        if (currentUser == null) {
-            // If no user is logged in, return false and stop loading
-            isAdminLiveData.setValue(false);
-            loadingLiveData.setValue(false);
-            errorLiveData.setValue("No user logged in.");
-            return;
+    /**
+     * Updates the checkbox state of a product.
+     * The write is buffered for a short time, so repeated toggles of an item are sent once
+     * and toggles of several items are sent together in one update.
+     *
+     * @param product The product whose state changed.
+     * @param keyPrefix The permanent ID of the list.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void ChangeProductBox(Product product, String keyPrefix, MutableLiveData<String> errorLiveData)
+    {
+        // Only products that are stored in the database have a key to update
+        if (product.getId() != null)
+        {
+            // The state is read when the write is buffered, so quick toggles made during the copy keep their order
+            boolean isChecked = product.isChecked();
+            DatabaseListStore store = getStore();
+            // A list that still points at its template gets its own copy first
+            store.withPrivateCopy(keyPrefix, new ListStore.Callback<Void>()
+            {
+                @Override
+                public void onResult(Void result)
+                {
+                    writeBehind.put(store.checkedPath(keyPrefix, product.getId()), isChecked);
+                }
+
+                @Override
+                public void onError(String message)
+                {
+                    errorLiveData.setValue(message);
+                }
+            });
         }
+    }
 
-        // Retrieve the user's email and format it for Firebase
-        String userEmail = currentUser.getEmail();
-        if (userEmail == null || userEmail.isEmpty()) {
+    /**
+     * Sends the buffered writes now, for example when the screen that made them is stopped.
+     */
+    public void flushPendingWrites()
+    {
+        writeBehind.flush();
+    }
+    /**
+     * Streams the admin status of the signed-in user, which lives under "adminUsers/{emailNode}".
+     * The current status is published once it is read, and again whenever it is granted or removed.
+     *
+     * @param isAdminLiveData LiveData to publish the admin status.
+     * @param errorLiveData LiveData to capture error messages.
+     * @return The listener, to be passed to stopListeningToAdminStatus, or null if no user is signed in.
+     */
+    public ValueEventListener listenToAdminStatus(MutableLiveData<Boolean> isAdminLiveData, MutableLiveData<String> errorLiveData)
+    {
+        FirebaseUser currentUser = getCurrentUser();
+        if (currentUser == null || currentUser.getEmail() == null || currentUser.getEmail().isEmpty())
+        {
+            // Without a signed-in user there is no admin status to watch
             isAdminLiveData.setValue(false);
-            loadingLiveData.setValue(false);
-            errorLiveData.setValue("User email not found.");
-            return;
+            return null;
         }
-
-        // Convert email to Firebase-compatible format (replace "." with "_")
-        String emailNode = userEmail.replace(".", "_");
-
-        // Reference to the specific user's admin status
-        DatabaseReference adminRef = FirebaseDatabase.getInstance().getReference("adminUsers").child(emailNode);
-
-        // Check if the key exists in Firebase
-        adminRef.addListenerForSingleValueEvent(new ValueEventListener()
+        ValueEventListener listener = new ValueEventListener()
         {
             @Override
             public void onDataChange(DataSnapshot snapshot)
             {
-                if (snapshot.exists() && Boolean.TRUE.equals(snapshot.getValue(Boolean.class)))
-                {
-                    // If the key exists and its value is true, the user is an admin
-                    isAdminLiveData.setValue(true);
-                } else {
-                    // If the key does not exist or the value is not true, the user is not an admin
-                    isAdminLiveData.setValue(false);
-                }
-                loadingLiveData.setValue(false);
+                // The user is an admin only while the key exists and its value is true
+                isAdminLiveData.setValue(Boolean.TRUE.equals(snapshot.getValue(Boolean.class)));
             }
 
             @Override
-            public void onCancelled(DatabaseError error) {
-                // Handle Firebase errors
-                isAdminLiveData.setValue(false);
-                loadingLiveData.setValue(false);
+            public void onCancelled(DatabaseError error)
+            {
+                // Keep the last known status, the listener is removed by the database
                 errorLiveData.setValue("Error checking admin status: " + error.getMessage());
             }
-        });
+        };
+        getAdminRef().addValueEventListener(listener);
+        return listener;
     }
-    public void deleteSharedLists(List<Integer> indexes, List<String> listNames, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+
+    /**
+     * Stops streaming the admin status. Must be called before the user signs out.
+     *
+     * @param listener The listener returned by listenToAdminStatus.
+     */
+    public void stopListeningToAdminStatus(ValueEventListener listener)
+    {
+        if (listener != null && getCurrentUser() != null)
+        {
+            getAdminRef().removeEventListener(listener);
+        }
+    }
+
+    // The admin flag of the signed-in user; the admin users are kept outside of "Lists"
+    private DatabaseReference getAdminRef()
+    {
+        return FirebaseDatabase.getInstance().getReference("adminUsers").child(getEmailNode());
+    }
+    /**
+     * Deletes shared lists and their values from Firebase.
+     * Shared lists are keyed by permanent IDs, so no other list is touched.
+     *
+     * @param sharedLists The shared lists to delete.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void deleteSharedLists(List<ListSharedObject> sharedLists, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
     {
         // Set loading state to true before starting the operation
         loadingLiveData.setValue(true);
-        DatabaseReference sharedListsRef = getSharedListsRef();
-        DatabaseReference sharedValuesRef = getSharedValuesRef();
-
-        // Remove the values at the given indexes
-        for (int i = 0; i < indexes.size(); i++)
+        List<SharedList> lists = new ArrayList<>();
+        for (ListSharedObject sharedList : sharedLists)
         {
-                String valuesKey = listNames.get(i) + String.valueOf(indexes.get(i));
-                String listsKey = String.valueOf(indexes.get(i));
-                sharedValuesRef.child(valuesKey).removeValue();
-                sharedListsRef.child(listsKey).removeValue();
+            lists.add(toSharedList(sharedList));
         }
-        sharedListsRef.addListenerForSingleValueEvent(new ValueEventListener()
+        // Remove every list, its values and its index entries in a single update
+        getStore().deleteSharedLists(lists, reporting(errorLiveData));
+        // Local listeners see the removal immediately, so the lists can be reloaded right away
+        loadingLiveData.setValue(false);
+    }
+
+    // ---------------- Metrics ----------------
+    // Every operation is timed under its method name, from the call until its data is posted or the server
+    // acknowledges its write; the data operations are timed by the store. Streams and buffered checkbox
+    // writes have no single completion and are not timed.
+
+    // Counts the size of a read that is one step of the call; the call completes in a later step
+    private ValueEventListener sizedRead(MetricsRegistry.Call call, ValueEventListener listener)
+    {
+        return new ValueEventListener()
         {
             @Override
             public void onDataChange(DataSnapshot snapshot)
             {
-                if (snapshot.exists())
-                {
-                    int counter = 0; // Keeps track of how many gaps exist (null values)
-                    // Iterate through the remaining items
-                    for (int i = indexes.get(0); i < snapshot.getChildrenCount() + indexes.size(); i++)
-                    {
-                        String listName = snapshot.child(String.valueOf(i)).child("Name").getValue(String.class);
-                        if (listName == null)
-                        {
-                            // Increment the counter for null (deleted) values
-                            counter++;
-                        }
-                        else
-                        {
-                            String userName = snapshot.child(String.valueOf(i)).child("CreatedBy").getValue(String.class);
-                            List<String> userSaves = snapshot.child(String.valueOf(i)).child("savedUsers").getValue(new GenericTypeIndicator<List<String>>() {});
-                            List<String> categories = snapshot.child(String.valueOf(i)).child("Categories").getValue(new GenericTypeIndicator<List<String>>() {});
-                            // Create a map to store the values
-                            Map<String, Object> sharedObject = new HashMap<>();
-                            sharedObject.put("Categories", categories);
-                            sharedObject.put("CreatedBy", userName);
-                            sharedObject.put("Name", listName);
-                            sharedObject.put("savedUsers", userSaves);
-
-                            // Move the current value to fill the gap
-                            sharedListsRef.child(String.valueOf(i - counter)).setValue(sharedObject);
-
-                            // Move the values from sharedValuesRef as well
-                            String oldValuesKey = listName + i;
-                            String newValuesKey = listName + (i - counter);
-
-                            sharedValuesRef.child(oldValuesKey).addListenerForSingleValueEvent(new ValueEventListener()
-                            {
-                                @Override
-                                public void onDataChange(DataSnapshot valueSnapshot)
-                                {
-                                    if (valueSnapshot.exists())
-                                    {
-                                        sharedValuesRef.child(newValuesKey).setValue(valueSnapshot.getValue(), (databaseError, databaseReference) -> {
-                                            if (databaseError == null)
-                                            {
-                                                // Remove the old key to avoid duplicates
-                                                sharedValuesRef.child(oldValuesKey).removeValue();
-                                            }
-                                        });
-                                    }
-                                }
-                                @Override
-                                public void onCancelled(DatabaseError databaseError)
-                                {
-                                    // Notify completion of loading
-                                    loadingLiveData.setValue(false);
-                                    System.out.println("Error moving shared values: " + databaseError.getMessage());
-                                }
-                            });
-                            // Remove the old key to avoid duplicates
-                            sharedListsRef.child(String.valueOf(i)).removeValue();
-                        }
-                    }
-                    // Notify completion of loading
-                    loadingLiveData.setValue(false);
-                }
+                call.addBytes(PayloadSize.of(snapshot.getValue()));
+                listener.onDataChange(snapshot);
             }
+
             @Override
             public void onCancelled(DatabaseError error)
             {
-                // Notify completion of loading
-                loadingLiveData.setValue(false);
-                System.out.println("Error: " + error.getMessage());
+                call.fail();
+                listener.onCancelled(error);
+            }
+        };
+    }
+
+    // Completes the call when the task completes, counting the size of the data written (if any)
+    private <T> Task<T> timed(MetricsRegistry.Call call, Object payload, Task<T> task)
+    {
+        if (payload != null)
+        {
+            call.addBytes(PayloadSize.of(payload));
+        }
+        return task.addOnCompleteListener(result -> {
+            if (result.isSuccessful())
+            {
+                call.succeed();
+            }
+            else
+            {
+                call.fail();
             }
         });
     }
 
+    /**
+     * Allocates a new key under the given node without reading the node.
+     * Push IDs are generated locally, are unique across devices and sort in creation order,
+     * so concurrent appends never collide and the collection never has to be downloaded first.
+     *
+     * @param parent The node that the new child will be added to.
+     * @return The key of the new child.
+     */
+    private String newKey(DatabaseReference parent)
+    {
+        return parent.push().getKey();
+    }
+
+    /**
+     * Resolves the current user's node and its children once per signed-in email,
+     * instead of on every database operation.
+     */
+    private void resolveUserRefs()
+    {
+        // Get the current user's email.
+        String userEmail = mAuth.getCurrentUser().getEmail();
+        if (userEmail.equals(cachedEmail))
+        {
+            return;
+        }
+        cachedEmail = userEmail;
+        // Replace any '.' in the email with '_' to make it a valid key for Firebase.
+        emailNode = userEmail.replace(".", "_");
+        // A new store, since the local copies of the previous one belong to the previous user
+        store = new DatabaseListStore(backend, emailNode, metrics);
+        // Navigate to the user's node under the "UsersDatabase" node.
+        userRef = databaseReference.child("UsersDatabase").child(emailNode);
+        listsRef = userRef.child("lists");
+        valuesRef = userRef.child("values");
+        categoriesRef = userRef.child("Categories");
+    }
+    // Returns the current user's email in the form used as a database key.
+    public String getEmailNode()
+    {
+        resolveUserRefs();
+        return emailNode;
+    }
+    // Returns the data operations of the current user.
+    private DatabaseListStore getStore()
+    {
+        resolveUserRefs();
+        return store;
+    }
+    // Returns a DatabaseReference to the current user's node.
+    public DatabaseReference getUserRef()
+    {
+        resolveUserRefs();
+        return userRef;
+    }
     // Returns a DatabaseReference to the "lists" node for the current user.
     public DatabaseReference getListsRef()
     {
-          // Get the current user's email.
-        String userEmail = mAuth.getCurrentUser().getEmail();
-         // Replace any '.' in the email with '_' to make it a valid key for Firebase.
-        String emailNode = userEmail.replace(".", "_");
-        // Navigate to the user's lists under the "UsersDatabase" node.
-        DatabaseReference listsRef = databaseReference.child("UsersDatabase").child(emailNode).child("lists");
+        resolveUserRefs();
         return listsRef;
     }
     // Returns a DatabaseReference to the "values" node for the current user.
     public DatabaseReference getValuesRef()
     {
-        // Get the current user's email.
-        String userEmail = mAuth.getCurrentUser().getEmail();
-        // Replace any '.' in the email with '_' for Firebase compatibility.
-        String emailNode = userEmail.replace(".", "_");
-        // Navigate to the user's values under the "UsersDatabase" node.
-        DatabaseReference valuesRef = databaseReference.child("UsersDatabase").child(emailNode).child("values");
+        resolveUserRefs();
         return valuesRef;
     }
     // Returns a DatabaseReference to the "Categories" node for the current user.
     public DatabaseReference getCategoriesRef()
     {
-        // Get the current user's email.
-        String userEmail = mAuth.getCurrentUser().getEmail();
-         // Replace any '.' in the email with '_' to ensure valid Firebase key formatting.
-        String emailNode = userEmail.replace(".", "_");
-         // Navigate to the user's categories under the "UsersDatabase" node.
-        DatabaseReference CategoriesRef = databaseReference.child("UsersDatabase").child(emailNode).child("Categories");
-        return CategoriesRef;
+        resolveUserRefs();
+        return categoriesRef;
+    }
+    // Returns a DatabaseReference to the shared templates of the default lists.
+    public DatabaseReference getTemplatesRef()
+    {
+        return databaseReference.child("Templates");
     }
     // Returns a DatabaseReference to the shared "lists" node.
     public DatabaseReference getSharedListsRef()
@@ -1267,6 +1149,152 @@ public class Repository {
         DatabaseReference SharedListsRef = databaseReference.child("SharedLists").child("lists");
         return SharedListsRef;
     }
+    /**
+     * Converts a shared list node to a ListSharedObject.
+     *
+     * @param child The snapshot of "SharedLists/lists/{listId}", or of the list's entry in an index.
+     * @return The shared list, or null if the node has no name (for example, if it was deleted).
+     */
+    private ListSharedObject toSharedListObject(DataSnapshot child)
+    {
+        // Retrieve the list's name from the "Name" child node.
+        String listStr = child.child("Name").getValue(String.class);
+        if (listStr == null)
+        {
+            return null;
+        }
+        // Retrieve the list of categories associated with the list.
+        List<String> listCategoriesList = child.child("Categories").getValue(new GenericTypeIndicator<List<String>>() {});
+        // Convert the list of categories to an array.
+        String[] listCategories = listCategoriesList != null ? listCategoriesList.toArray(new String[0]) : new String[0];
+        return new ListSharedObject(child.getKey(), getSaveCount(child), listStr, listCategories);
+    }
+
+    // Converts a shared list to the form of the core module's data operations; null stays null
+    private static SharedList toSharedList(ListSharedObject sharedList)
+    {
+        if (sharedList == null)
+        {
+            return null;
+        }
+        return new SharedList(sharedList.getId(), sharedList.getListName(), Arrays.asList(sharedList.getCategories()), sharedList.getSaves());
+    }
+
+    // ---------------- Store Callbacks ----------------
+
+    // Posts the result of a data operation and clears the loading state, or posts its error
+    private static <T> ListStore.Callback<T> posting(MutableLiveData<T> resultLiveData, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    {
+        return new ListStore.Callback<T>()
+        {
+            @Override
+            public void onResult(T result)
+            {
+                resultLiveData.setValue(result);
+                loadingLiveData.setValue(false);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                loadingLiveData.setValue(false);
+                errorLiveData.setValue(message);
+            }
+        };
+    }
+
+    // Posts a page of shared lists, converted to the rows the screens show, and clears the loading state
+    private static ListStore.Callback<List<SharedList>> postingSharedLists(MutableLiveData<List<ListSharedObject>> pageLiveData,
+                                                                           MutableLiveData<Boolean> loadingLiveData,
+                                                                           MutableLiveData<String> errorLiveData)
+    {
+        return new ListStore.Callback<List<SharedList>>()
+        {
+            @Override
+            public void onResult(List<SharedList> result)
+            {
+                List<ListSharedObject> page = new ArrayList<>();
+                for (SharedList sharedList : result)
+                {
+                    page.add(new ListSharedObject(sharedList.getId(), sharedList.getSaves(), sharedList.getName(),
+                            sharedList.getCategories().toArray(new String[0])));
+                }
+                pageLiveData.setValue(page);
+                loadingLiveData.setValue(false);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                loadingLiveData.setValue(false);
+                errorLiveData.setValue(message);
+            }
+        };
+    }
+
+    // Clears the loading state once a write is applied, or posts its error
+    private static <T> ListStore.Callback<T> completing(MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    {
+        return new ListStore.Callback<T>()
+        {
+            @Override
+            public void onResult(T result)
+            {
+                loadingLiveData.setValue(false);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                errorLiveData.setValue(message);
+                loadingLiveData.setValue(false);
+            }
+        };
+    }
+
+    // Posts the error of a write whose loading state was already cleared
+    private static <T> ListStore.Callback<T> reporting(MutableLiveData<String> errorLiveData)
+    {
+        return new ListStore.Callback<T>()
+        {
+            @Override
+            public void onResult(T result)
+            {
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                errorLiveData.setValue(message);
+            }
+        };
+    }
+
+    // Returns the number of users who saved a shared list, read from its "saveCount" field.
+    private int getSaveCount(DataSnapshot sharedList)
+    {
+        Integer saveCount = sharedList.child("saveCount").getValue(Integer.class);
+        return saveCount != null ? saveCount : 0;
+    }
+    // Returns a DatabaseReference to the shared "savers" node (the set of users who saved each list).
+    public DatabaseReference getSharedSaversRef()
+    {
+        // Navigate directly to the "savers" node under "SharedLists".
+        DatabaseReference SharedSaversRef = databaseReference.child("SharedLists").child("savers");
+        return SharedSaversRef;
+    }
+    // Returns a DatabaseReference to the shared "names" index (the row of each list, for searching).
+    public DatabaseReference getSharedNameIndexRef()
+    {
+        return databaseReference.child("SharedLists").child("names");
+    }
+    // Returns a DatabaseReference to the shared "byCategory" index (the lists of each category, with their shown fields).
+    public DatabaseReference getSharedCategoryIndexRef()
+    {
+        // Navigate directly to the "byCategory" node under "SharedLists".
+        DatabaseReference SharedCategoryIndexRef = databaseReference.child("SharedLists").child("byCategory");
+        return SharedCategoryIndexRef;
+    }
     // Returns a DatabaseReference to the shared "values" node.
     public DatabaseReference getSharedValuesRef()
     {
@@ -0,0 +1,262 @@
+package RememberList.Codes;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the index of the shared lists' items (ItemSearchIndex) on the device, in the app's files.
+ * The index is synced with the names index of the shared lists: lists that appeared since the
+ * last sync have their items fetched, and lists that were deleted are dropped, so the items of a
+ * list are downloaded once. Shared lists are not edited after they are added, so this keeps the
+ * index complete. Shared lists are the same for every user, so the index is kept across logins.
+ * The index is only used on a background thread, where the file is also read and written, so
+ * matching a query or indexing a batch of lists never blocks the main thread; results and sync
+ * progress are posted back to the main thread.
+ */
+public class SharedItemIndexStore
+{
+    private static final String TAG = "SharedItemIndexStore";
+    // The file the index is stored in, under the app's files directory
+    static final String FILE_NAME = "shared_item_index.bin";
+    // How many lists are fetched at a time, so a first sync does not open thousands of reads at once
+    private static final int FETCH_BATCH = 50;
+
+    private final Repository repository;
+    private final File file;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ItemSearchIndex index; // Null until the file is read; used on the io thread only
+    private boolean loaded; // Whether the file was read, as seen from the main thread
+    private boolean syncing;
+    private int revision = 0; // Raised whenever the index changes
+    private final List<MutableLiveData<Boolean>> waiting = new ArrayList<>(); // Loading states of the running sync
+
+    /**
+     * Receives the lists found by a search, on the main thread.
+     */
+    public interface SearchCallback
+    {
+        void onResult(List<ItemSearchIndex.Hit> hits);
+    }
+
+    SharedItemIndexStore(Context context, Repository repository)
+    {
+        this.repository = repository;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Returns whether the index can be searched; it may still be syncing.
+     */
+    public boolean isReady()
+    {
+        return loaded;
+    }
+
+    /**
+     * Returns a number that changes whenever lists are added to or removed from the index.
+     */
+    public int getRevision()
+    {
+        return revision;
+    }
+
+    /**
+     * Finds the lists with items matching the query, best first. The index is matched on the
+     * background thread, after the changes of any sync step that came before.
+     *
+     * @param query The text the user typed.
+     * @param limit The maximum number of lists to return.
+     * @param callback Receives the matching lists, or nothing while the index is not ready.
+     */
+    public void search(String query, int limit, SearchCallback callback)
+    {
+        io.execute(() -> {
+            List<ItemSearchIndex.Hit> hits = index == null ? new ArrayList<>() : index.search(query, limit);
+            mainHandler.post(() -> callback.onResult(hits));
+        });
+    }
+
+    /**
+     * Brings the index up to date with the given shared lists: adds the items of new lists and
+     * drops the lists that are gone. A sync that is already running is joined instead.
+     *
+     * @param listIds The IDs of every shared list, as in the names index.
+     * @param loadingLiveData LiveData to indicate the loading state.
+     * @param errorLiveData LiveData to capture error messages.
+     */
+    public void sync(Set<String> listIds, MutableLiveData<Boolean> loadingLiveData, MutableLiveData<String> errorLiveData)
+    {
+        loadingLiveData.setValue(true);
+        waiting.add(loadingLiveData);
+        if (syncing)
+        {
+            return;
+        }
+        syncing = true;
+        Set<String> ids = new HashSet<>(listIds);
+        io.execute(() -> {
+            // The first sync reads the stored index first
+            boolean read = index == null;
+            if (read)
+            {
+                index = readFile();
+            }
+            syncWith(ids, read, errorLiveData);
+        });
+    }
+
+    // Drops the lists that are gone and finds the new ones on the io thread, then fetches the new ones
+    private void syncWith(Set<String> listIds, boolean read, MutableLiveData<String> errorLiveData)
+    {
+        boolean changed = false;
+        for (String listId : new ArrayList<>(index.getListIds()))
+        {
+            if (!listIds.contains(listId))
+            {
+                index.removeList(listId);
+                changed = true;
+            }
+        }
+        Set<String> missing = new LinkedHashSet<>();
+        for (String listId : listIds)
+        {
+            if (!index.containsList(listId))
+            {
+                missing.add(listId);
+            }
+        }
+        boolean removed = changed;
+        mainHandler.post(() -> {
+            loaded = true;
+            if (read || removed)
+            {
+                revision++;
+            }
+            fetchNextBatch(missing.iterator(), removed, errorLiveData);
+        });
+    }
+
+    // Fetches and indexes the next lists, then the ones after them, and saves the index at the end
+    private void fetchNextBatch(Iterator<String> missing, boolean changed, MutableLiveData<String> errorLiveData)
+    {
+        if (!missing.hasNext())
+        {
+            if (changed)
+            {
+                save();
+            }
+            finishSync();
+            return;
+        }
+        Set<String> batch = new HashSet<>();
+        while (missing.hasNext() && batch.size() < FETCH_BATCH)
+        {
+            batch.add(missing.next());
+        }
+        MutableLiveData<Map<String, List<String>>> valuesLiveData = new MutableLiveData<>();
+        MutableLiveData<Boolean> batchLoadingLiveData = new MutableLiveData<>();
+        valuesLiveData.observeForever(new Observer<Map<String, List<String>>>()
+        {
+            @Override
+            public void onChanged(Map<String, List<String>> values)
+            {
+                valuesLiveData.removeObserver(this);
+                if (values.isEmpty())
+                {
+                    fetchNextBatch(missing, changed, errorLiveData);
+                    return;
+                }
+                // Lists that failed to load are fetched again by the next sync
+                io.execute(() -> {
+                    for (Map.Entry<String, List<String>> list : values.entrySet())
+                    {
+                        index.addList(list.getKey(), list.getValue());
+                    }
+                    mainHandler.post(() -> {
+                        revision++;
+                        fetchNextBatch(missing, true, errorLiveData);
+                    });
+                });
+            }
+        });
+        repository.getSharedValuesByIds(batch, valuesLiveData, batchLoadingLiveData, errorLiveData);
+    }
+
+    private void finishSync()
+    {
+        syncing = false;
+        List<MutableLiveData<Boolean>> done = new ArrayList<>(waiting);
+        waiting.clear();
+        for (MutableLiveData<Boolean> loadingLiveData : done)
+        {
+            loadingLiveData.setValue(false);
+        }
+    }
+
+    // Serializes and writes the index on the background thread, where it is used
+    private void save()
+    {
+        io.execute(() -> {
+            // Written to a temporary file first, so a crash never leaves half an index
+            File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temp)))
+            {
+                index.writeTo(output);
+            }
+            catch (IOException e)
+            {
+                Log.w(TAG, "Could not write the item index", e);
+                return;
+            }
+            if (!temp.renameTo(file))
+            {
+                Log.w(TAG, "Could not replace " + file);
+            }
+        });
+    }
+
+    // Reads the stored index, or returns an empty one if there is none or it cannot be read
+    private ItemSearchIndex readFile()
+    {
+        if (!file.exists())
+        {
+            return new ItemSearchIndex();
+        }
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file)))
+        {
+            return ItemSearchIndex.readFrom(input);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // A damaged or outdated index is rebuilt from the database. Any failure is caught here,
+            // because the sync that is waiting for this read would otherwise never finish
+            Log.w(TAG, "Discarding the stored item index", e);
+            return new ItemSearchIndex();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package RememberList.Codes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the names of the shared lists in memory, so the lists can be searched as the user types.
+ * Names are normalized once when they are added (niqqud and quote marks removed, final letters replaced
+ * by their regular form, Latin letters lower-cased), so matching a query is a plain scan over strings.
+ * A query that extends the previous one is only matched against the previous matches.
+ * Used from the main thread only.
+ */
+public class SharedListSearchIndex
+{
+    // Match ranks, best first
+    static final int EXACT = 0;
+    static final int PREFIX = 1;
+    static final int WORD_PREFIX = 2;
+    static final int SUBSTRING = 3;
+    static final int NO_MATCH = -1;
+
+    private final Map<String, String> names = new LinkedHashMap<>(); // List IDs mapped to their normalized names
+    private String lastQuery; // The last normalized query, while the index has not changed since
+    private List<String> lastMatches; // Every list matching the last query
+
+    /**
+     * Adds a list or replaces its name.
+     */
+    public void put(String id, String name)
+    {
+        names.put(id, normalize(name));
+        lastQuery = null;
+    }
+
+    /**
+     * Removes a list.
+     */
+    public void remove(String id)
+    {
+        if (names.remove(id) != null)
+        {
+            lastQuery = null;
+        }
+    }
+
+    public int size()
+    {
+        return names.size();
+    }
+
+    // Returns the IDs of the lists in the index
+    public Set<String> ids()
+    {
+        return Collections.unmodifiableSet(names.keySet());
+    }
+
+    /**
+     * Finds the lists whose name contains the query, best matches first:
+     * exact names, then names starting with the query, then names with a word starting with it, then the rest.
+     *
+     * @param query The text the user typed.
+     * @param limit The maximum number of lists to return.
+     * @return The IDs of the matching lists.
+     */
+    public List<String> search(String query, int limit)
+    {
+        String normalized = normalize(query);
+        List<String> results = new ArrayList<>();
+        if (normalized.isEmpty())
+        {
+            return results;
+        }
+        // A longer query only matches names the shorter one matched
+        Iterable<String> candidates = lastQuery != null && normalized.startsWith(lastQuery) ? lastMatches : names.keySet();
+        List<String> matches = new ArrayList<>();
+        List<List<String>> byRank = new ArrayList<>();
+        for (int rank = EXACT; rank <= SUBSTRING; rank++)
+        {
+            byRank.add(new ArrayList<>());
+        }
+        String wordStart = " " + normalized; // Built once, not once per name
+        for (String id : candidates)
+        {
+            int rank = rank(names.get(id), normalized, wordStart);
+            if (rank != NO_MATCH)
+            {
+                matches.add(id);
+                byRank.get(rank).add(id);
+            }
+        }
+        lastQuery = normalized;
+        lastMatches = matches;
+        for (List<String> ids : byRank)
+        {
+            for (String id : ids)
+            {
+                if (results.size() == limit)
+                {
+                    return results;
+                }
+                results.add(id);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Ranks how well a name matches a query; both must already be normalized.
+     *
+     * @return One of EXACT, PREFIX, WORD_PREFIX and SUBSTRING, or NO_MATCH.
+     */
+    static int rank(String name, String query)
+    {
+        return rank(name, query, " " + query);
+    }
+
+    private static int rank(String name, String query, String wordStart)
+    {
+        int index = name.indexOf(query);
+        if (index == -1)
+        {
+            return NO_MATCH;
+        }
+        if (index == 0)
+        {
+            return name.length() == query.length() ? EXACT : PREFIX;
+        }
+        if (name.charAt(index - 1) == ' ' || name.indexOf(wordStart, index) != -1)
+        {
+            return WORD_PREFIX;
+        }
+        return SUBSTRING;
+    }
+
+    /**
+     * Brings text to the form names are compared in: niqqud, cantillation and quote marks are removed,
+     * final letters are replaced by their regular form, Latin letters are lower-cased, and runs of spaces
+     * and dashes become a single space.
+     */
+    static String normalize(String text)
+    {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '-' || c == '\u05BE') // The Hebrew hyphen (maqaf)
+            {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if ((c >= '\u0591' && c <= '\u05C7') || c == '\u05F3' || c == '\u05F4' || c == '\'' || c == '"')
+            {
+                continue; // Niqqud, cantillation, geresh and gershayim
+            }
+            if (pendingSpace)
+            {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(regularForm(c));
+        }
+        return normalized.toString();
+    }
+
+    // Replaces a final Hebrew letter by its regular form, and lower-cases other letters
+    private static char regularForm(char c)
+    {
+        switch (c)
+        {
+            case 'ך': return 'כ'; // Final kaf
+            case 'ם': return 'מ'; // Final mem
+            case 'ן': return 'נ'; // Final nun
+            case 'ף': return 'פ'; // Final pe
+            case 'ץ': return 'צ'; // Final tsadi
+            default: return Character.toLowerCase(c);
+        }
+    }
+}
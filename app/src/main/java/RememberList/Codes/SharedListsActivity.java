@@ -3,14 +3,14 @@ package RememberList.Codes;
 import android.content.Intent;
 import android.os.Bundle;
 import android.speech.RecognizerIntent;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.*;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 
 public class SharedListsActivity extends AppCompatActivity implements View.OnClickListener {
@@ -19,21 +19,16 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
     private ProgressBar progressBar;
     private ImageButton backButton;
     private ImageButton refreshButton;
-    private String listsCount;
     private SharedListAdapter adapter; // Define adapter as a class-level variable
-    private HashMap<Integer, Integer> positionMap;
-    private List<ListSharedObject> originalList;
     // Multiple selected categories
     private List<String> selectedCategories = null;
     private Button filterButton;
     private ImageButton searchButton;
     private ImageButton recordButton;
     private EditText searchEditText;
-    private ArrayList<Integer> indexes;
     private boolean isRefreshClicked = false;
-    private boolean isSerachClicked = false;
-    private  String searchText;
-    private boolean isAdmin = false; // Track if user is admin
+    private boolean isSearching = false; // Whether search results are shown instead of the pages
+    private boolean isSearchButtonClicked = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState)
@@ -54,8 +49,6 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
 
         // Initialize ViewModel
         viewModel = new ViewModelProvider(this).get(SharedListsViewModel.class);
-        listsCount = getIntent().getStringExtra("LIST_COUNT");
-        isAdmin = getIntent().getBooleanExtra("IS_ADMIN",false); // Get the key of the list passed via Intent
         viewModel.getSharedLists();
 
         // Observe loading state
@@ -70,7 +63,7 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
             {
                 progressBar.setVisibility(isLoading ? View.VISIBLE : View.GONE);
                 // Observe lists data
-                if((selectedCategories == null && positionMap == null) || isRefreshClicked || isSerachClicked)
+                if((selectedCategories == null && adapter == null) || isRefreshClicked)
                 {
                     if (isRefreshClicked)
                     {
@@ -81,38 +74,8 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
                     {
                         if (lists != null)
                         {
-                            positionMap = new HashMap<>();
-
-                            // Store original list before sorting
-                            originalList = new ArrayList<>(lists);
-
-                            // Sort by 'saves' in descending order (highest saves first)
-                            Collections.sort(lists, (a, b) -> Integer.compare(b.getSaves(), a.getSaves()));
-
+                            // The lists arrive ordered by saves (highest saves first)
                             adapter = new SharedListAdapter(this, lists);
-                            if (isSerachClicked)
-                            {
-                                isSerachClicked = false;
-                                for(int i = 0; i < adapter.getCount(); i++)
-                                {
-                                    if(!searchText.equals(adapter.getItem(i).getListName()))
-                                    {
-                                        adapter.remove(adapter.getItem(i));
-                                        i--;
-                                        listView.setAdapter(adapter);
-                                    }
-                                }
-                                if(adapter.getCount() == 0)
-                                {
-                                    Toast.makeText(SharedListsActivity.this, "לא נמצאה אף רשימה בשם המתאים\n ברשימות המשותפות", Toast.LENGTH_SHORT).show();
-                                }
-                            }
-                            // Store new indexes as keys and original indexes as values
-                            for (int newIndex = 0; newIndex < adapter.getCount(); newIndex++)
-                            {
-                                int originalIndex = originalList.indexOf(adapter.getItem(newIndex));
-                                positionMap.put(newIndex, originalIndex);
-                            }
                             listView.setAdapter(adapter);
                         }
                         viewModel.getListsLiveData().removeObservers(this);
@@ -121,19 +84,58 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
             }
         });
 
+        // Show the search results in place of the pages, in a single layout pass
+        viewModel.getSearchResultsLiveData().observe(this, results ->
+        {
+            if (results == null || !isSearching)
+            {
+                return;
+            }
+            adapter = new SharedListAdapter(this, new ArrayList<>(results));
+            listView.setAdapter(adapter);
+            if (results.isEmpty() && isSearchButtonClicked)
+            {
+                Toast.makeText(SharedListsActivity.this, "לא נמצאה אף רשימה בשם המתאים\n ברשימות המשותפות", Toast.LENGTH_SHORT).show();
+            }
+            isSearchButtonClicked = false;
+        });
+
+        // Append every further page to the shown lists
+        viewModel.getNextPageLiveData().observe(this, page ->
+        {
+            if (page != null && adapter != null)
+            {
+                adapter.addAll(page);
+            }
+        });
+
+        // Load the next page when the user scrolls near the end of the loaded lists
+        listView.setOnScrollListener(new AbsListView.OnScrollListener()
+        {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState)
+            {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount)
+            {
+                if (totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - 5)
+                {
+                    viewModel.loadNextPage();
+                }
+            }
+        });
+
         // ListView item click listener
         listView.setOnItemClickListener((parent, view, position, id) ->
         {
             ListSharedObject selectedItem = adapter.getItem(position); // Correct type
             String selectedListName = selectedItem.getListName();
             Intent intent = new Intent(SharedListsActivity.this, SharedListsProductsActivity.class);
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            }
             intent.putExtra("LIST_NAME", selectedListName); // Pass the list name
-            intent.putExtra("LIST_KEY", String.valueOf(positionMap.get(position))); // Add list ID to intent
-            intent.putExtra("LIST_COUNT", listsCount);
+            intent.putExtra("LIST_KEY", selectedItem.getId()); // Add list ID to intent
+            intent.putExtra("LIST_CATEGORIES", selectedItem.getCategories());
             startActivity(intent); // Start Main5Activity
         });
 
@@ -142,21 +144,54 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
         refreshButton.setOnClickListener(v ->
         {
             isRefreshClicked = true;
-            viewModel.getSharedLists();
+            viewModel.refreshSharedLists();
         });
         filterButton.setOnClickListener(v -> showCategoryDialog());
         recordButton.setOnClickListener(this);
 
+        // Search as the user types; the view model waits for a pause in typing
+        searchEditText.addTextChangedListener(new TextWatcher()
+        {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after)
+            {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count)
+            {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s)
+            {
+                String searchText = s.toString().trim();
+                if (!searchText.isEmpty())
+                {
+                    isSearching = true;
+                    viewModel.searchSharedLists(searchText);
+                }
+                else if (isSearching)
+                {
+                    // The search box was cleared, so show the pages again
+                    isSearching = false;
+                    viewModel.cancelSearch();
+                    isRefreshClicked = true;
+                    viewModel.getSharedLists();
+                }
+            }
+        });
+
         searchButton.setOnClickListener(v ->
         {
             // Get the text the user typed into the search box
-            searchText = searchEditText.getText().toString().trim();
+            String searchText = searchEditText.getText().toString().trim();
 
-            // Show the text in a Toast message
             if (!searchText.isEmpty())
             {
-                isSerachClicked = true;
-                viewModel.getSharedLists();
+                isSearching = true;
+                isSearchButtonClicked = true;
+                viewModel.searchSharedListsNow(searchText);
             }
             else
             {
@@ -170,13 +205,8 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
     {
         if (view.getId() == R.id.back)
         {
-            // Return to the previous activity
-            Intent intent = new Intent(this, MyListsActivity.class);
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-            }
-            startActivity(intent);
+            // Return to the previous activity, which is still below this screen
+            finish();
         }
         else if (view.getId() == R.id.record)
         {
@@ -227,28 +257,24 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
                 {
                     if (isChecked)
                     {
-                        // Initialize the selectedCategories list and indexes if they haven't been already.
+                        // Initialize the selectedCategories list if it hasn't been already.
                         if (selectedCategories == null)
                         {
                             selectedCategories = new ArrayList<>();
-                            indexes = new ArrayList<>();
                         }
-                        // If the category isn't already in the selected list, add it along with its index.
+                        // If the category isn't already in the selected list, add it.
                         if (!selectedCategories.contains(categoryArray[which]))
                         {
                             selectedCategories.add(categoryArray[which]);
-                            indexes.add(which);
                         }
                         // Create a new list to hold the updated selection.
                         List<String> updatedSelection = new ArrayList<>();
-                         // Clear indexes and update selections based on the current checkedItems state.
-                        indexes.clear();
+                         // Update selections based on the current checkedItems state.
                         for (int i = 0; i < categoryArray.length; i++)
                         {
                             if (checkedItems[i])
                             {
                                 updatedSelection.add(categoryArray[i]);
-                                indexes.add(i);
                             }
                         }
                         // Clear the current selectedCategories and update it with the new selection.
@@ -284,17 +310,9 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
                     viewModel.getFilteredLists(selectedCategories);
                     viewModel.getlistCategoriesLiveData().observe(this, filteredLists ->
                     {
-                        // Sort by 'saves' in descending order (highest saves first)
-                        Collections.sort(filteredLists, (a, b) -> Integer.compare(b.getSaves(), a.getSaves()));
-
+                        // The filtered lists arrive ordered by saves (highest saves first)
                         adapter.clear();
                         adapter.addAll(filteredLists);
-                        // Store new indexes as keys and original indexes as values
-                        for (int newIndex = 0; newIndex < adapter.getCount(); newIndex++)
-                        {
-                            int originalIndex = originalList.indexOf(adapter.getItem(newIndex));
-                            positionMap.put(newIndex, originalIndex);
-                        }
                         listView.setAdapter(adapter);
                         adapter.notifyDataSetChanged();
                         dialog.dismiss();
@@ -313,7 +331,7 @@ public class SharedListsActivity extends AppCompatActivity implements View.OnCli
                     {
 
                             dialog.dismiss();
-                            viewModel.deleteCategories(indexes,categories.size());
+                            viewModel.deleteCategories(new ArrayList<>(selectedCategories));
                         Toast.makeText(this, "הקטגוריות המסומנות נמחקו בהצלחה", Toast.LENGTH_SHORT).show();
                     }
                     else
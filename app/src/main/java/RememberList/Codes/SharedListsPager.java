@@ -0,0 +1,141 @@
+package RememberList.Codes;
+
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the shared lists page by page, from the most saved to the least saved.
+ * The first page is posted to the lists LiveData and every following page to the next-page LiveData,
+ * so a screen can append a page to its adapter without rebuilding it.
+ * The pages can be limited to the lists of some categories, which are then read from the category index.
+ * The position in the results is kept as the last loaded list (its save count and ID), not as an index.
+ */
+class SharedListsPager
+{
+    // Number of shared lists fetched in each page
+    static final int PAGE_SIZE = 20;
+
+    private final Repository repository;
+    private final MutableLiveData<List<ListSharedObject>> listsLiveData;
+    private final MutableLiveData<List<ListSharedObject>> nextPageLiveData;
+    private final MutableLiveData<Boolean> loadingLiveData;
+    private final MutableLiveData<Boolean> pageLoadingLiveData;
+    private final MutableLiveData<String> errorLiveData;
+
+    private ListSharedObject lastLoaded; // The last list of the last page, the cursor for the next page
+    private boolean filtered = false; // Whether the pages are limited to the lists of some categories
+    private List<String> categories; // The categories every list of the filtered pages belongs to
+    private boolean hasMorePages = false;
+    private boolean fresh = false; // Whether the current pages bypass the cache
+    private int generation = 0; // Incremented on every reset, so pages of an older request are ignored
+
+    SharedListsPager(Repository repository,
+                     MutableLiveData<List<ListSharedObject>> listsLiveData,
+                     MutableLiveData<List<ListSharedObject>> nextPageLiveData,
+                     MutableLiveData<Boolean> loadingLiveData,
+                     MutableLiveData<Boolean> pageLoadingLiveData,
+                     MutableLiveData<String> errorLiveData)
+    {
+        this.repository = repository;
+        this.listsLiveData = listsLiveData;
+        this.nextPageLiveData = nextPageLiveData;
+        this.loadingLiveData = loadingLiveData;
+        this.pageLoadingLiveData = pageLoadingLiveData;
+        this.errorLiveData = errorLiveData;
+    }
+
+    /**
+     * Starts over from the most saved lists and posts the first page to the lists LiveData.
+     *
+     * @param fresh True to read the pages from the server instead of the cache (an explicit refresh).
+     */
+    void loadFirstPage(boolean fresh)
+    {
+        generation++;
+        lastLoaded = null;
+        hasMorePages = false;
+        filtered = false;
+        this.fresh = fresh;
+        requestPage(null, listsLiveData, loadingLiveData);
+    }
+
+    /**
+     * Starts over from the most saved lists of the given categories and posts the first page to the given LiveData.
+     * The following pages are posted to the next-page LiveData, like the pages of all lists.
+     *
+     * @param categories The categories every list must belong to.
+     * @param firstPageLiveData LiveData to post the first page to.
+     */
+    void loadFilteredFirstPage(List<String> categories, MutableLiveData<List<ListSharedObject>> firstPageLiveData)
+    {
+        generation++;
+        lastLoaded = null;
+        hasMorePages = false;
+        filtered = true;
+        // The screen keeps changing its selection, so the pages keep their own copy
+        this.categories = categories != null ? new ArrayList<>(categories) : null;
+        fresh = false;
+        requestPage(null, firstPageLiveData, loadingLiveData);
+    }
+
+    /**
+     * Posts the next page to the next-page LiveData, unless the last page was already loaded
+     * or another load is in progress.
+     */
+    void loadNextPage()
+    {
+        if (!hasMorePages || Boolean.TRUE.equals(loadingLiveData.getValue())
+                || Boolean.TRUE.equals(pageLoadingLiveData.getValue()))
+        {
+            return;
+        }
+        requestPage(lastLoaded, nextPageLiveData, pageLoadingLiveData);
+    }
+
+    /**
+     * Stops loading pages, for example when a search or a filter replaced the shown lists.
+     */
+    void stopPaging()
+    {
+        generation++;
+        hasMorePages = false;
+    }
+
+    private void requestPage(ListSharedObject after,
+                             MutableLiveData<List<ListSharedObject>> targetLiveData,
+                             MutableLiveData<Boolean> requestLoadingLiveData)
+    {
+        int requestGeneration = generation;
+        MutableLiveData<List<ListSharedObject>> pageLiveData = new MutableLiveData<>();
+        pageLiveData.observeForever(new Observer<List<ListSharedObject>>()
+        {
+            @Override
+            public void onChanged(List<ListSharedObject> page)
+            {
+                pageLiveData.removeObserver(this);
+                if (requestGeneration != generation)
+                {
+                    return;
+                }
+                // A page shorter than the page size means there are no more lists
+                hasMorePages = page.size() == PAGE_SIZE;
+                if (!page.isEmpty())
+                {
+                    lastLoaded = page.get(page.size() - 1);
+                }
+                targetLiveData.setValue(page);
+            }
+        });
+        if (filtered)
+        {
+            repository.getFilteredListsPage(categories, after, PAGE_SIZE, pageLiveData, requestLoadingLiveData, errorLiveData);
+        }
+        else
+        {
+            repository.getSharedListsPage(after, PAGE_SIZE, fresh, pageLiveData, requestLoadingLiveData, errorLiveData);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package RememberList.Codes;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.text.InputType;
 import android.util.Log;
@@ -22,6 +21,7 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -38,9 +38,7 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
     private ProgressBar progressBar; // ProgressBar for loading indicator
 
     private String listKey; // Declare listKey as a class-level variable
-    private String listsCount;
     private String listName; // Declare listName as a class-level variable
-    private boolean isAdmin = false; // Track if user is admin
     private boolean fromAdmin = false;
     private ImageButton saveButton;
     @Override
@@ -62,8 +60,6 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
         // Get the list ID passed from the previous activity
         listName = getIntent().getStringExtra("LIST_NAME");
         listKey = getIntent().getStringExtra("LIST_KEY");
-        listsCount = getIntent().getStringExtra("LIST_COUNT");
-        isAdmin = getIntent().getBooleanExtra("IS_ADMIN",false); // Get the key of the list passed via Intent
         fromAdmin = getIntent().getBooleanExtra("From_AdminMode",false); // Get the key of the list passed via Intent
         title.setText(listName);
 
@@ -76,7 +72,8 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
         }
 
         // Observe LiveData for content updates
-        viewModel.init(listName,listKey);
+        String[] categories = getIntent().getStringArrayExtra("LIST_CATEGORIES");
+        viewModel.init(listName, listKey, categories != null ? Arrays.asList(categories) : new ArrayList<String>());
                 viewModel.getProducts().observe(this, values -> {
             valuesList.clear(); // Clear current data
             for (Product value: values)
@@ -107,21 +104,8 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
     {
         if (view.getId() == R.id.back)
         {
-            Intent intent;
-            if (fromAdmin)
-            {
-                intent = new Intent(this, AdminSharedListsActivity.class);
-            }
-            else
-            {
-                intent = new Intent(this, SharedListsActivity.class);
-            }
-            if(isAdmin)
-            {
-                intent.putExtra("IS_ADMIN", true); // Sending boolean extra
-                intent.putExtra("LIST_COUNT", listsCount); // Sending boolean extra
-            }
-            startActivity(intent);
+            // Return to the shared lists (or the admin's view of them), which are still below this screen
+            finish();
         }
         else if(view.getId() == R.id.save && !fromAdmin)
         {
@@ -153,8 +137,7 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
     private void saveListWithOriginalName()
     {
         Toast.makeText(this, "שומר בשם המקורי...", Toast.LENGTH_SHORT).show();
-        viewModel.saveListToUser(listName,listName+listsCount, valuesList);
-        listsCount = String.valueOf(Integer.valueOf(listsCount)+1);
+        viewModel.saveListToUser(listName, valuesList);
     }
 
 
@@ -173,8 +156,7 @@ public class SharedListsProductsActivity extends AppCompatActivity implements Vi
             if (!newName.isEmpty())
             {
                 Toast.makeText(this, "שומר בשם: " + newName, Toast.LENGTH_SHORT).show();
-                viewModel.saveListToUser(newName,newName+listsCount, valuesList);
-                listsCount = String.valueOf(Integer.valueOf(listsCount)+1);
+                viewModel.saveListToUser(newName, valuesList);
             }
             else
             {
@@ -18,15 +18,17 @@ public class SharedListsProductsViewModel extends AndroidViewModel {
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>(); // LiveData for error messages
     String listName;
     String listKey;
+    List<String> categories; // The categories of the shared list, whose index entries count its saves
     public SharedListsProductsViewModel(@NonNull Application application)
     {
         super(application);
-        repository = new Repository(application); // Initialize the Repository
+        repository = AppContainer.from(application).getRepository(); // Initialize the Repository
     }
-    public void init(String listName, String listKey)
+    public void init(String listName, String listKey, List<String> categories)
     {
         this.listName = listName;
         this.listKey = listKey;
+        this.categories = categories;
         getValues(); // Load products from the repository
     }
 
@@ -58,7 +60,7 @@ public class SharedListsProductsViewModel extends AndroidViewModel {
         loadingLiveData.setValue(true); // Indicate loading started
         try
         {
-            repository.getValues("SharedValues" ,(listName+listKey) ,productsLiveData, loadingLiveData, errorLiveData);
+            repository.getSharedValues(listKey ,productsLiveData, loadingLiveData, errorLiveData);
         }
         catch (Exception e)
         {
@@ -66,16 +68,14 @@ public class SharedListsProductsViewModel extends AndroidViewModel {
         }
         loadingLiveData.setValue(false); // Indicate loading finished
     }
-    public void saveListToUser(String listName,String keyPrefix, ArrayList<String> valuesList)
+    public void saveListToUser(String listName, ArrayList<String> valuesList)
     {
         loadingLiveData.setValue(true); // Set loading state to true
 
-        // Add the list to the repository
-        repository.addList(listName, loadingLiveData, errorLiveData);
+        // Add the list together with its values to the repository
+        repository.addList(listName, valuesList, loadingLiveData, errorLiveData);
 
-        repository.addValues(keyPrefix, valuesList, loadingLiveData, errorLiveData);
-
-        repository.updateListSaves(listKey, loadingLiveData, errorLiveData);
+        repository.updateListSaves(listKey, categories, loadingLiveData, errorLiveData);
         // Observe the loading state and reload the lists after the add operation completes
         loadingLiveData.observeForever(new Observer<Boolean>() {
             @Override
@@ -1,22 +1,53 @@
 package RememberList.Codes;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 
+import com.google.firebase.database.ChildEventListener;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SharedListsViewModel extends AndroidViewModel {
 
+    // How long typing must pause before the search runs
+    private static final long SEARCH_DEBOUNCE_MILLIS = 250;
+    // The maximum number of search results shown
+    private static final int SEARCH_LIMIT = 50;
+
     private final Repository repository;
     private final MutableLiveData<List<ListSharedObject>> listsLiveData = new MutableLiveData<>();
+    private final MutableLiveData<List<ListSharedObject>> nextPageLiveData = new MutableLiveData<>();
     private final MutableLiveData<List<String>> categoriesLiveData = new MutableLiveData<>();
     private final MutableLiveData<Boolean> loadingLiveData = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> pageLoadingLiveData = new MutableLiveData<>();
     private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
+    private final SharedListsPager pager;
+
+    // Searching by name, over the names index held on the device
+    private final SharedListSearchIndex searchIndex = new SharedListSearchIndex();
+    private final MutableLiveData<Boolean> namesLoadingLiveData = new MutableLiveData<>();
+    private final MutableLiveData<List<ListSharedObject>> searchResultsLiveData = new MutableLiveData<>();
+    private final Map<String, ListSharedObject> indexedLists = new HashMap<>(); // The rows of the names index, kept current by its listener
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable runPendingSearch = this::runPendingSearch;
+    private ChildEventListener namesListener;
+    private String pendingQuery;
+    private int searchGeneration = 0; // Results of older searches are dropped
+
+    // Searching by items, over the item index kept on the device
+    private final SharedItemIndexStore itemIndex;
+    private final MutableLiveData<Boolean> itemsLoadingLiveData = new MutableLiveData<>();
+    private int searchedRevision = -1; // The item index revision the shown results came from
 
     private final MutableLiveData<List<ListSharedObject>> listCategoriesLiveData = new MutableLiveData<>();
 
@@ -29,7 +60,9 @@ public class SharedListsViewModel extends AndroidViewModel {
     public SharedListsViewModel(@NonNull Application application)
     {
         super(application);
-        repository = new Repository(application);
+        repository = AppContainer.from(application).getRepository();
+        itemIndex = AppContainer.from(application).getSharedItemIndex();
+        pager = new SharedListsPager(repository, listsLiveData, nextPageLiveData, loadingLiveData, pageLoadingLiveData, errorLiveData);
     }
 
     // region LiveData Getters
@@ -54,6 +87,16 @@ public class SharedListsViewModel extends AndroidViewModel {
         return listsLiveData;
     }
 
+    /**
+     * Exposes LiveData for the pages loaded after the first one.
+     *
+     * @return LiveData containing the last loaded page of shared lists.
+     */
+    public LiveData<List<ListSharedObject>> getNextPageLiveData()
+    {
+        return nextPageLiveData;
+    }
+
     /**
      * Exposes LiveData for the loading state.
      *
@@ -63,6 +106,15 @@ public class SharedListsViewModel extends AndroidViewModel {
     {
         return loadingLiveData;
     }
+    /**
+     * Exposes LiveData for the results of the last search, best matches first.
+     *
+     * @return LiveData containing the lists found by name, followed by the lists found by their items.
+     */
+    public LiveData<List<ListSharedObject>> getSearchResultsLiveData()
+    {
+        return searchResultsLiveData;
+    }
     public LiveData<List<ListSharedObject>> getlistCategoriesLiveData()
     {
         return listCategoriesLiveData;
@@ -137,12 +189,12 @@ public class SharedListsViewModel extends AndroidViewModel {
     /**
      * Deletes a category and refreshes the category list.
      *
-     * @param indexes The indexes of the categories to delete.
+     * @param categoryNames The names of the categories to delete.
      */
-    public void deleteCategories(ArrayList<Integer> indexes,int categoriesSize)
+    public void deleteCategories(List<String> categoryNames)
     {
         loadingLiveData.setValue(true); // Set loading state to true
-        repository.deleteCategories(indexes,categoriesSize ,loadingLiveData, errorLiveData);
+        repository.deleteCategories(categoryNames, loadingLiveData, errorLiveData);
         // Observe the loading state and reload the lists after the add operation completes
         loadingLiveData.observeForever(new Observer<Boolean>()
         {
@@ -159,9 +211,23 @@ public class SharedListsViewModel extends AndroidViewModel {
         });
     }
     /**
-     * get shared lists from the repository and updates the LiveData.
+     * Gets the first page of the shared lists, the most saved ones, and updates the LiveData.
+     * The page is served from the cache when it holds it.
      */
     public void getSharedLists()
+    {
+        getSharedLists(false);
+    }
+
+    /**
+     * Gets the first page of the shared lists again from the server.
+     */
+    public void refreshSharedLists()
+    {
+        getSharedLists(true);
+    }
+
+    private void getSharedLists(boolean fresh)
     {
         // Prevent loading lists if another operation is still in progress
         if (Boolean.TRUE.equals(loadingLiveData.getValue()))
@@ -172,10 +238,10 @@ public class SharedListsViewModel extends AndroidViewModel {
         // Indicate loading has started
         loadingLiveData.setValue(true);
 
-        // Fetch the lists from the repository
+        // Fetch the first page from the repository
         try
         {
-            repository.getSharedLists(listsLiveData, loadingLiveData, errorLiveData);
+            pager.loadFirstPage(fresh);
         }
         catch (Exception e)
         {
@@ -183,6 +249,170 @@ public class SharedListsViewModel extends AndroidViewModel {
         }
     }
 
+    /**
+     * Gets the next page of the shared lists, if there is one, and posts it to the next-page LiveData.
+     */
+    public void loadNextPage()
+    {
+        pager.loadNextPage();
+    }
+
+    /**
+     * Searches the shared lists by name and by items once the user stops typing.
+     * Matching runs on the names and item indexes held on the device, so typing never waits for the network.
+     *
+     * @param query The text typed so far.
+     */
+    public void searchSharedLists(String query)
+    {
+        pendingQuery = query;
+        searchHandler.removeCallbacks(runPendingSearch);
+        searchHandler.postDelayed(runPendingSearch, SEARCH_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Searches the shared lists by name and by items right away, for example when the search button is pressed.
+     *
+     * @param query The text to search for.
+     */
+    public void searchSharedListsNow(String query)
+    {
+        pendingQuery = query;
+        searchHandler.removeCallbacks(runPendingSearch);
+        runPendingSearch();
+    }
+
+    /**
+     * Cancels the pending search, for example when the search box is cleared.
+     */
+    public void cancelSearch()
+    {
+        pendingQuery = null;
+        searchHandler.removeCallbacks(runPendingSearch);
+        searchGeneration++;
+    }
+
+    private void runPendingSearch()
+    {
+        String query = pendingQuery;
+        if (query == null || query.trim().isEmpty())
+        {
+            return;
+        }
+        // The search results replace the pages
+        pager.stopPaging();
+        if (namesListener == null)
+        {
+            // Load the names once; the search runs again when they are in
+            namesListener = repository.listenToSharedListNames(searchIndex, indexedLists, namesLoadingLiveData, errorLiveData);
+            namesLoadingLiveData.observeForever(new Observer<Boolean>()
+            {
+                @Override
+                public void onChanged(Boolean isLoading)
+                {
+                    if (Boolean.FALSE.equals(isLoading))
+                    {
+                        namesLoadingLiveData.removeObserver(this);
+                        runPendingSearch();
+                    }
+                }
+            });
+            return;
+        }
+        if (Boolean.TRUE.equals(namesLoadingLiveData.getValue()))
+        {
+            return; // Runs when the names are in
+        }
+        int generation = ++searchGeneration;
+        List<String> ids = searchIndex.search(query, SEARCH_LIMIT);
+        // Lists whose items match follow the lists whose names match
+        syncItemIndex();
+        searchedRevision = itemIndex.getRevision();
+        // The item index is matched on its background thread
+        itemIndex.search(query, SEARCH_LIMIT, hits -> {
+            if (generation != searchGeneration)
+            {
+                return; // A newer search replaced this one
+            }
+            List<String> itemIds = new ArrayList<>();
+            for (ItemSearchIndex.Hit hit : hits)
+            {
+                if (ids.size() + itemIds.size() == SEARCH_LIMIT)
+                {
+                    break;
+                }
+                if (!ids.contains(hit.getListId()))
+                {
+                    itemIds.add(hit.getListId());
+                }
+            }
+            postSearchResults(ids, itemIds, query);
+        });
+    }
+
+    /**
+     * Brings the item index up to date with the names index, and searches again once lists were added
+     * to it or removed from it. The first sync downloads the items of every list; later ones only new lists.
+     */
+    private void syncItemIndex()
+    {
+        if (Boolean.TRUE.equals(itemsLoadingLiveData.getValue()))
+        {
+            return; // Searches again when the running sync ends
+        }
+        itemIndex.sync(searchIndex.ids(), itemsLoadingLiveData, errorLiveData);
+        if (!Boolean.TRUE.equals(itemsLoadingLiveData.getValue()))
+        {
+            return; // Nothing had to be fetched
+        }
+        itemsLoadingLiveData.observeForever(new Observer<Boolean>()
+        {
+            @Override
+            public void onChanged(Boolean isLoading)
+            {
+                if (Boolean.FALSE.equals(isLoading))
+                {
+                    itemsLoadingLiveData.removeObserver(this);
+                    if (itemIndex.getRevision() != searchedRevision)
+                    {
+                        runPendingSearch();
+                    }
+                }
+            }
+        });
+    }
+
+    // Posts the rows of the found lists from the names index: name matches first, best matches first and
+    // the most saved first among equal matches, then the lists found by their items, best first
+    private void postSearchResults(List<String> ids, List<String> itemIds, String query)
+    {
+        String normalizedQuery = SharedListSearchIndex.normalize(query);
+        List<ListSharedObject> results = new ArrayList<>();
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String id : ids)
+        {
+            ListSharedObject list = indexedLists.get(id);
+            if (list != null)
+            {
+                results.add(list);
+                ranks.put(id, SharedListSearchIndex.rank(SharedListSearchIndex.normalize(list.getListName()), normalizedQuery));
+            }
+        }
+        Collections.sort(results, (a, b) -> {
+            int byRank = Integer.compare(ranks.get(a.getId()), ranks.get(b.getId()));
+            return byRank != 0 ? byRank : Integer.compare(b.getSaves(), a.getSaves());
+        });
+        for (String id : itemIds)
+        {
+            ListSharedObject list = indexedLists.get(id);
+            if (list != null)
+            {
+                results.add(list);
+            }
+        }
+        searchResultsLiveData.setValue(results);
+    }
+
     /**
      * Filters the shared lists based on a selected category.
      *
@@ -198,10 +428,10 @@ public class SharedListsViewModel extends AndroidViewModel {
         // Indicate loading has started
         loadingLiveData.setValue(true);
 
-        // Fetch the lists from the repository
+        // The filtered lists replace the pages, and are paged the same way
         try
         {
-            repository.getFilteredLists(Categories, loadingLiveData, listCategoriesLiveData, errorLiveData);
+            pager.loadFilteredFirstPage(Categories, listCategoriesLiveData);
         }
         catch (Exception e)
         {
@@ -210,4 +440,16 @@ public class SharedListsViewModel extends AndroidViewModel {
 
     }
 
+    @Override
+    protected void onCleared()
+    {
+        super.onCleared();
+        // A sync of the item index that ends later must not search again
+        pendingQuery = null;
+        searchHandler.removeCallbacks(runPendingSearch);
+        if (namesListener != null)
+        {
+            repository.stopListeningToSharedListNames(namesListener);
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package RememberList.Codes;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.List;
+
+/**
+ * Runs the network work of a cold start at the same time instead of one after the other.
+ * As soon as a signed-in user is known from the device, it starts validating the user and prefetching
+ * the user's lists. The user's data is checked (and if needed seeded or migrated) as soon as the server
+ * confirms the user, so nothing is written for an account that was signed out or removed.
+ * MyListsActivity then takes the prefetched lists instead of loading them.
+ * The admin status is read from its cache and only revalidated in the background, so nothing waits for it.
+ */
+public class StartupOrchestrator
+{
+    private final Repository repository;
+    private final AdminStatusCache adminStatus;
+    private final StartupTrace trace;
+
+    private final MutableLiveData<Boolean> userValidLiveData = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> dataLoadingLiveData = new MutableLiveData<>();
+    private final MutableLiveData<String> errorLiveData = new MutableLiveData<>();
+    private final MutableLiveData<List<UserListObject>> listsLiveData = new MutableLiveData<>();
+
+    private boolean handOffPending = false; // Whether the prefetched lists are waiting for MyListsActivity
+    private int runningDataPhases = 0; // The data check and the lists prefetch that did not finish yet
+
+    StartupOrchestrator(Repository repository, AdminStatusCache adminStatus, StartupTrace trace)
+    {
+        this.repository = repository;
+        this.adminStatus = adminStatus;
+        this.trace = trace;
+    }
+
+    /**
+     * Starts the startup phases for the given user.
+     *
+     * @param user The user signed in on the device.
+     */
+    public void start(FirebaseUser user)
+    {
+        handOffPending = true;
+        runningDataPhases = 2;
+        // Clear the results of an earlier start in this process
+        userValidLiveData.setValue(null);
+        errorLiveData.setValue(null);
+        dataLoadingLiveData.setValue(true);
+
+        // Validate the cached user with the server
+        trace.begin("auth");
+        user.reload().addOnCompleteListener(task -> {
+            trace.end("auth");
+            if (task.isSuccessful())
+            {
+                checkUserData();
+            }
+            else
+            {
+                // The user is stale, so its data is not checked
+                handOffPending = false;
+                finishDataPhase();
+            }
+            userValidLiveData.setValue(task.isSuccessful());
+        });
+
+        // Revalidate the cached admin status in the background and keep watching it
+        adminStatus.startWatching();
+
+        // Prefetch the lists, which are served from the cache on a warm device
+        trace.begin("lists");
+        MutableLiveData<Boolean> listsLoading = new MutableLiveData<>();
+        whenDone(listsLoading, () -> onDataPhaseDone("lists"));
+        repository.getUserLists(listsLiveData, listsLoading, errorLiveData);
+    }
+
+    /**
+     * Returns whether a started cold start has data that MyListsActivity did not take yet.
+     */
+    public boolean isHandOffPending()
+    {
+        return handOffPending;
+    }
+
+    /**
+     * Takes the prefetched lists. Returns null if the user's data was just created, because the
+     * prefetch may then have run before the lists were written.
+     */
+    public List<UserListObject> takePrefetchedLists()
+    {
+        handOffPending = false;
+        List<UserListObject> lists = listsLiveData.getValue();
+        return lists == null || lists.isEmpty() ? null : lists;
+    }
+
+    // True once the user was validated with the server, false if the validation failed (null until then)
+    public LiveData<Boolean> getUserValidLiveData()
+    {
+        return userValidLiveData;
+    }
+
+    // False once both the data check and the lists prefetch are done
+    public LiveData<Boolean> getDataLoadingLiveData()
+    {
+        return dataLoadingLiveData;
+    }
+
+    // The last error of any phase
+    public LiveData<String> getErrorLiveData()
+    {
+        return errorLiveData;
+    }
+
+    // Checks that the user's data exists and is up to date, seeding or migrating it if needed
+    private void checkUserData()
+    {
+        trace.begin("userData");
+        MutableLiveData<Boolean> userDataLoading = new MutableLiveData<>();
+        whenDone(userDataLoading, () -> onDataPhaseDone("userData"));
+        repository.checkAndLoadData(userDataLoading, errorLiveData);
+    }
+
+    private void onDataPhaseDone(String phase)
+    {
+        trace.end(phase);
+        finishDataPhase();
+    }
+
+    private void finishDataPhase()
+    {
+        if (--runningDataPhases == 0)
+        {
+            dataLoadingLiveData.setValue(false);
+        }
+    }
+
+    // Runs the action once the given loading state becomes false
+    private static void whenDone(MutableLiveData<Boolean> loading, Runnable action)
+    {
+        loading.observeForever(new Observer<Boolean>()
+        {
+            @Override
+            public void onChanged(Boolean isLoading)
+            {
+                if (Boolean.FALSE.equals(isLoading))
+                {
+                    loading.removeObserver(this);
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package RememberList.Codes;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of the app's cold start takes, relative to the start of the process.
+ * The "firstList" mark is the time until the user's lists are first shown (time-to-first-list).
+ */
+public class StartupTrace
+{
+    private static final String TAG = "StartupTrace";
+
+    private final long origin = SystemClock.elapsedRealtime();
+    // Phase name mapped to {start, end} in milliseconds since the origin; end is -1 while running
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+
+    // Marks the start of a phase
+    public synchronized void begin(String phase)
+    {
+        phases.put(phase, new long[]{now(), -1});
+    }
+
+    // Marks the end of a phase that was begun
+    public synchronized void end(String phase)
+    {
+        long[] times = phases.get(phase);
+        if (times != null && times[1] == -1)
+        {
+            times[1] = now();
+            Log.d(TAG, phase + " took " + (times[1] - times[0]) + " ms (ends at " + times[1] + " ms)");
+        }
+    }
+
+    // Records a single point in time, once
+    public synchronized void mark(String event)
+    {
+        if (!phases.containsKey(event))
+        {
+            long time = now();
+            phases.put(event, new long[]{time, time});
+            Log.d(TAG, event + " at " + time + " ms\n" + summary());
+        }
+    }
+
+    // Returns every recorded phase as "name: start-end ms" lines
+    public synchronized String summary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, long[]> phase : phases.entrySet())
+        {
+            long[] times = phase.getValue();
+            summary.append(phase.getKey()).append(": ").append(times[0]).append('-')
+                    .append(times[1] == -1 ? "running" : String.valueOf(times[1])).append(" ms\n");
+        }
+        return summary.toString();
+    }
+
+    private long now()
+    {
+        return SystemClock.elapsedRealtime() - origin;
+    }
+}
@@ -0,0 +1,137 @@
+package RememberList.Codes;
+
+import android.content.Context;
+import android.util.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import RememberList.Core.TemplateReader;
+
+/**
+ * Streams the template pack that the build compiles from "lists.txt" and "values.txt"
+ * (see the compileTemplatePack task in app/build.gradle).
+ * The pack already has the shape of the seeded user tree, with template indexes as keys:
+ * {"version": ..., "lists": {"0": name, ...}, "values": {"0": {"0": {"value": ..., "isChecked": false, "order": 0}, ...}, ...}}.
+ * The version is derived from the text files, so it changes whenever the templates do.
+ * It is read with a streaming JSON reader and reported the same way TemplateReader reports values.txt:
+ * field 0 of a record is the list name and field n is the value with order n - 1.
+ */
+public class TemplatePack implements Closeable
+{
+    // The name of the generated asset
+    public static final String ASSET_NAME = "template_pack.json";
+
+    private final JsonReader reader;
+    private String version;
+
+    public TemplatePack(JsonReader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * Opens the template pack from the assets folder.
+     *
+     * @param context Any context of the app.
+     * @throws IOException If the pack is missing, for example in a build without the generated assets.
+     */
+    public static TemplatePack openAsset(Context context) throws IOException
+    {
+        return new TemplatePack(new JsonReader(new InputStreamReader(context.getAssets().open(ASSET_NAME), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads the pack to its end and passes the list names and then the values to the handler.
+     *
+     * @param handler Receives the list names (field 0) and the values (field order + 1).
+     */
+    public void readAll(TemplateReader.Handler handler) throws IOException
+    {
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String section = reader.nextName();
+            if (section.equals("version"))
+            {
+                version = reader.nextString();
+            }
+            else if (section.equals("lists"))
+            {
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    int record = Integer.parseInt(reader.nextName());
+                    handler.onField(record, 0, reader.nextString());
+                }
+                reader.endObject();
+            }
+            else if (section.equals("values"))
+            {
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    int record = Integer.parseInt(reader.nextName());
+                    reader.beginObject();
+                    while (reader.hasNext())
+                    {
+                        reader.nextName(); // The template index of the value; its order is stored in the value
+                        readValue(handler, record);
+                    }
+                    reader.endObject();
+                }
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue(); // Sections added by newer builds
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Returns the version of the templates, or null if readAll was not called or the pack has none.
+     */
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    // Reads one {"value", "isChecked", "order"} object and passes it to the handler
+    private void readValue(TemplateReader.Handler handler, int record) throws IOException
+    {
+        String value = null;
+        int order = -1;
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            if (name.equals("value"))
+            {
+                value = reader.nextString();
+            }
+            else if (name.equals("order"))
+            {
+                order = reader.nextInt();
+            }
+            else
+            {
+                reader.skipValue(); // New values are never checked
+            }
+        }
+        reader.endObject();
+        if (value != null && order >= 0)
+        {
+            handler.onField(record, order + 1, value);
+        }
+    }
+}
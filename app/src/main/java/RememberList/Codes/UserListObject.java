@@ -0,0 +1,30 @@
+package RememberList.Codes;
+
+public class UserListObject
+{
+    private final String id; // The permanent key of the list in the database
+    private final String listName; // The name of the list
+
+    public UserListObject(String id, String listName)
+    {
+        this.id = id;
+        this.listName = listName;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getListName()
+    {
+        return listName;
+    }
+
+    @Override
+    public String toString()
+    {
+        // The list name is what the ArrayAdapter displays for each row.
+        return listName;
+    }
+}
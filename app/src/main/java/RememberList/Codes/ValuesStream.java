@@ -0,0 +1,91 @@
+package RememberList.Codes;
+
+import androidx.lifecycle.MutableLiveData;
+
+import RememberList.Core.DatabaseListStore;
+import RememberList.Core.Item;
+import RememberList.Core.ItemsStream;
+
+/**
+ * Streams the changes to the items of a user list to LiveData, wherever the items are stored.
+ * The core's ItemsStream follows the list's template pointer and its items; each of its changes is
+ * posted as a ProductChange, so the shown list is updated one change at a time and never reloaded.
+ */
+public class ValuesStream implements ItemsStream.Listener
+{
+    private final MutableLiveData<ProductChange> changesLiveData;
+    private final MutableLiveData<Boolean> loadingLiveData;
+    private final MutableLiveData<String> errorLiveData;
+    private ItemsStream stream;
+
+    ValuesStream(MutableLiveData<ProductChange> changesLiveData,
+                 MutableLiveData<Boolean> loadingLiveData,
+                 MutableLiveData<String> errorLiveData)
+    {
+        this.changesLiveData = changesLiveData;
+        this.loadingLiveData = loadingLiveData;
+        this.errorLiveData = errorLiveData;
+    }
+
+    /**
+     * Starts streaming, beginning with every existing item as an addition.
+     *
+     * @param store The data operations of the current user.
+     * @param listId The permanent ID of the list.
+     */
+    void start(DatabaseListStore store, String listId)
+    {
+        loadingLiveData.setValue(true);
+        stream = store.listenToItems(listId, this);
+    }
+
+    /**
+     * Stops streaming, for example when the list is closed.
+     */
+    void stop()
+    {
+        stream.stop();
+    }
+
+    @Override
+    public void onAdded(Item item, String previousId)
+    {
+        changesLiveData.setValue(new ProductChange(ProductChange.Type.ADDED, toProduct(item), previousId));
+    }
+
+    @Override
+    public void onChanged(Item item, String previousId)
+    {
+        changesLiveData.setValue(new ProductChange(ProductChange.Type.CHANGED, toProduct(item), previousId));
+    }
+
+    @Override
+    public void onMoved(Item item, String previousId)
+    {
+        changesLiveData.setValue(new ProductChange(ProductChange.Type.MOVED, toProduct(item), previousId));
+    }
+
+    @Override
+    public void onRemoved(String itemId)
+    {
+        changesLiveData.setValue(new ProductChange(ProductChange.Type.REMOVED, new Product(itemId, "", false), null));
+    }
+
+    @Override
+    public void onLoaded()
+    {
+        loadingLiveData.setValue(false);
+    }
+
+    @Override
+    public void onError(String message)
+    {
+        loadingLiveData.setValue(false);
+        errorLiveData.setValue(message);
+    }
+
+    private static Product toProduct(Item item)
+    {
+        return new Product(item.getId(), item.getValue(), item.isChecked());
+    }
+}
@@ -0,0 +1,118 @@
+package RememberList.Codes;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+
+import RememberList.Core.BufferedWrites;
+import RememberList.Core.Database;
+import RememberList.Core.ListStore;
+
+/**
+ * Buffers small, frequent writes (such as checkbox toggles) and sends them together.
+ * Writes to the same path within the window are coalesced to the last value, and all buffered paths
+ * are sent as one multi-path update (see BufferedWrites). Until they are sent, the buffered writes are kept
+ * in a journal on disk, so a write is not lost if the process dies before the window ends.
+ * Once handed to Firebase, the disk cache keeps the update until the server acknowledges it.
+ */
+public final class WriteBehindBuffer
+{
+    private static final String TAG = "WriteBehindBuffer";
+    private static final String JOURNAL_NAME = "write_behind_journal";
+    // How long writes are collected before they are sent
+    private static final long FLUSH_DELAY_MILLIS = 2000;
+
+    private final BufferedWrites writes;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    /**
+     * Creates the buffer and sends any writes left in the journal by a previous process.
+     *
+     * @param context Any context of the app.
+     * @param database The database the buffered paths are relative to.
+     */
+    WriteBehindBuffer(Context context, Database database)
+    {
+        SharedPreferences journal = context.getApplicationContext().getSharedPreferences(JOURNAL_NAME, Context.MODE_PRIVATE);
+        // Writes left over from a previous process are sent right away
+        writes = new BufferedWrites(database, new BufferedWrites.Journal()
+        {
+            @Override
+            public void put(String path, boolean value)
+            {
+                journal.edit().putBoolean(path, value).apply();
+            }
+
+            @Override
+            public void remove(List<String> paths)
+            {
+                SharedPreferences.Editor editor = journal.edit();
+                for (String path : paths)
+                {
+                    editor.remove(path);
+                }
+                editor.apply();
+            }
+        }, journal.getAll());
+        if (!writes.isEmpty())
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Buffers a boolean write. A later write to the same path replaces it.
+     *
+     * @param path The path relative to the database's root.
+     * @param value The value to write.
+     */
+    public void put(String path, boolean value)
+    {
+        writes.put(path, value);
+        restartWindow();
+    }
+
+    /**
+     * Drops the buffered writes to a node and everything under it. Called before the node is deleted,
+     * so the writes sent after the deletion do not bring back part of it.
+     *
+     * @param path The path relative to the database's root.
+     */
+    public void drop(String path)
+    {
+        writes.drop(path);
+    }
+
+    // Restarts the window, so a burst of taps is sent as one update
+    private void restartWindow()
+    {
+        handler.removeCallbacks(flushTask);
+        handler.postDelayed(flushTask, FLUSH_DELAY_MILLIS);
+    }
+
+    /**
+     * Sends every buffered write now, as one multi-path update.
+     */
+    public void flush()
+    {
+        handler.removeCallbacks(flushTask);
+        writes.flush(new ListStore.Callback<Void>()
+        {
+            @Override
+            public void onResult(Void result)
+            {
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                Log.w(TAG, "Failed to write the buffered values: " + message);
+            }
+        });
+    }
+}
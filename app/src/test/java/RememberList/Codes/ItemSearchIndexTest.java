@@ -0,0 +1,140 @@
+package RememberList.Codes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class ItemSearchIndexTest
+{
+    private static List<String> ids(List<ItemSearchIndex.Hit> hits)
+    {
+        String[] ids = new String[hits.size()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = hits.get(i).getListId();
+        }
+        return Arrays.asList(ids);
+    }
+
+    private static ItemSearchIndex sample()
+    {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.addList("picnic", Arrays.asList("חלב", "לחם", "גבינה צהובה"));
+        index.addList("breakfast", Arrays.asList("חלב", "חלב סויה", "ביצים"));
+        index.addList("camping", Arrays.asList("אוהל", "לחם", "מים"));
+        return index;
+    }
+
+    @Test
+    public void listsWithMoreMatchingItemsRankHigher()
+    {
+        // "חלב" is in two items of "breakfast" and one of "picnic"
+        assertEquals(Arrays.asList("breakfast", "picnic"), ids(sample().search("חלב", 10)));
+    }
+
+    @Test
+    public void rareWordsWeighMore()
+    {
+        ItemSearchIndex index = sample();
+        // "לחם" is in two lists and "אוהל" in one, so a match on "אוהל" scores higher
+        double common = index.search("לחם", 10).get(0).getScore();
+        double rare = index.search("אוהל", 10).get(0).getScore();
+        assertTrue(rare > common);
+    }
+
+    @Test
+    public void everyQueryWordMustMatchAsAPrefix()
+    {
+        ItemSearchIndex index = sample();
+        assertEquals(Arrays.asList("picnic"), ids(index.search("גבי לח", 10)));
+        assertTrue(index.search("גבינה אוהל", 10).isEmpty());
+    }
+
+    @Test
+    public void removedListsAreNotFound()
+    {
+        ItemSearchIndex index = sample();
+        index.removeList("breakfast");
+        assertEquals(Arrays.asList("picnic"), ids(index.search("חלב", 10)));
+    }
+
+    @Test
+    public void roundTripKeepsTheResults() throws IOException
+    {
+        ItemSearchIndex index = sample();
+        index.addList("empty", Arrays.<String>asList());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(bytes);
+        ItemSearchIndex read = ItemSearchIndex.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(index.getListIds(), read.getListIds());
+        assertEquals(index.getTermCount(), read.getTermCount());
+        for (String query : Arrays.asList("חלב", "לחם", "גבי", "מים"))
+        {
+            List<ItemSearchIndex.Hit> expected = index.search(query, 10);
+            List<ItemSearchIndex.Hit> actual = read.search(query, 10);
+            assertEquals(ids(expected), ids(actual));
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void truncatedDataFailsWithIOException() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sample().writeTo(bytes);
+        byte[] data = bytes.toByteArray();
+        for (int length = 0; length < data.length; length++)
+        {
+            assertRejected(Arrays.copyOf(data, length));
+        }
+    }
+
+    @Test
+    public void damagedCountsFailWithIOException() throws IOException
+    {
+        // A negative word count, written as the largest variable-length number
+        ByteArrayOutputStream negative = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(negative);
+        out.writeInt(ItemSearchIndex.FORMAT_VERSION);
+        out.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        assertRejected(negative.toByteArray());
+
+        // A list that refers to a word that does not exist
+        ByteArrayOutputStream unknown = new ByteArrayOutputStream();
+        out = new DataOutputStream(unknown);
+        out.writeInt(ItemSearchIndex.FORMAT_VERSION);
+        out.writeByte(1);
+        out.writeUTF("חלב");
+        out.writeByte(1);
+        out.writeUTF("list");
+        out.writeByte(1);
+        out.writeByte(5);
+        out.writeByte(1);
+        assertRejected(unknown.toByteArray());
+    }
+
+    private static void assertRejected(byte[] data)
+    {
+        try
+        {
+            ItemSearchIndex.readFrom(new ByteArrayInputStream(data));
+            fail("Read damaged data of " + data.length + " bytes");
+        }
+        catch (IOException expected)
+        {
+        }
+    }
+}
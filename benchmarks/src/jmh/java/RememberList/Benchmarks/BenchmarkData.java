@@ -0,0 +1,119 @@
+package RememberList.Benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import RememberList.Codes.ListSharedObject;
+import RememberList.Core.InMemoryListStore;
+import RememberList.Core.ListStore;
+import RememberList.Core.MemoryTree;
+
+/**
+ * Generates the data the benchmarks run on, from a fixed seed so every run measures the same data.
+ * Names and values are Hebrew words, like the app's own lists.
+ */
+final class BenchmarkData
+{
+    static final List<String> WORDS = Arrays.asList(
+            "חלב", "לחם", "ביצים", "גבינה", "עגבניות", "מלפפונים", "תפוחים", "בננות", "אורז", "פסטה",
+            "שמן", "סוכר", "מלח", "קמח", "עוף", "דגים", "טונה", "קפה", "מים", "מיץ",
+            "אוהל", "שק שינה", "פנס", "סוללות", "מטען", "בגד ים", "קרם הגנה", "כובע", "משקפי שמש", "מגבת");
+    static final List<String> CATEGORIES = Arrays.asList(
+            "קניות", "טיולים", "קמפינג", "חו\"ל", "חתונה", "צבא", "ים", "חורף", "קיץ", "ילדים",
+            "תינוקות", "מטבח", "ניקיון", "בית", "משרד", "לימודים", "ספורט", "חגים", "מסיבה", "על האש");
+    static final int ITEMS_PER_LIST = 10;
+
+    private BenchmarkData()
+    {
+    }
+
+    static Random random()
+    {
+        return new Random(42);
+    }
+
+    // Returns a list name made of two words and a number, as users name similar lists
+    static String name(Random random, int i)
+    {
+        return WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size())) + " " + i;
+    }
+
+    // Returns one to three distinct categories
+    static List<String> categories(Random random)
+    {
+        List<String> categories = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        while (categories.size() < count)
+        {
+            String category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+            if (!categories.contains(category))
+            {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    static List<String> values(Random random, int count)
+    {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            values.add(WORDS.get(random.nextInt(WORDS.size())));
+        }
+        return values;
+    }
+
+    // Returns shared lists as the screens get them, in database order and with random save counts
+    static List<ListSharedObject> sharedListObjects(int count)
+    {
+        Random random = random();
+        List<ListSharedObject> lists = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            lists.add(new ListSharedObject("id" + i, random.nextInt(1000), name(random, i),
+                    categories(random).toArray(new String[0])));
+        }
+        return lists;
+    }
+
+    // Fills a tree with shared lists through the store, so the data has the layout and indexes of the app
+    static MemoryTree sharedListsTree(int count)
+    {
+        MemoryTree tree = new MemoryTree();
+        ListStore store = new InMemoryListStore(tree, "benchmark@example_com");
+        Random random = random();
+        for (int i = 0; i < count; i++)
+        {
+            store.addSharedList(name(random, i), categories(random), values(random, ITEMS_PER_LIST), Ignore.instance());
+        }
+        return tree;
+    }
+
+    /**
+     * A callback for calls whose outcome the benchmark does not need; errors fail the benchmark.
+     */
+    static final class Ignore<T> implements ListStore.Callback<T>
+    {
+        private static final Ignore<Object> INSTANCE = new Ignore<>();
+
+        @SuppressWarnings("unchecked")
+        static <T> Ignore<T> instance()
+        {
+            return (Ignore<T>) INSTANCE;
+        }
+
+        @Override
+        public void onResult(T result)
+        {
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            throw new IllegalStateException(message);
+        }
+    }
+}
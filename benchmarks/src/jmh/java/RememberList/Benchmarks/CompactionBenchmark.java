@@ -0,0 +1,191 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Core.InMemoryListStore;
+import RememberList.Core.Item;
+import RememberList.Core.ListStore;
+import RememberList.Core.MemoryTree;
+
+/**
+ * Deleting a tenth of the items of a list (deleteValues) and of the categories (deleteCategories).
+ * The legacy variants keyed entries by contiguous indexes, so after removing the entries they read the
+ * node back and moved every later entry down to close the gaps, one write each. The current ones remove
+ * the entries by key in one update. The size is the number of items, and of categories.
+ * The data is rebuilt before every call, outside the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompactionBenchmark
+{
+    private static final String USER = "benchmark@example_com";
+    private static final String USER_PATH = "UsersDatabase/" + USER;
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private MemoryTree tree;
+    private ListStore store;
+    private String listId;
+    private List<String> itemIds; // The keys of the items to delete
+    private List<String> categoryNames; // The names of the categories to delete
+    private int[] indexes; // The legacy indexes of the same entries, ascending
+
+    @Setup(Level.Invocation)
+    public void setUp()
+    {
+        tree = new MemoryTree();
+        store = new InMemoryListStore(tree, USER);
+        Random random = BenchmarkData.random();
+        List<String> values = BenchmarkData.values(random, size);
+        // Every tenth entry is deleted, at least one
+        List<Integer> deleted = new ArrayList<>();
+        for (int i = 0; i < size; i += 10)
+        {
+            deleted.add(i + random.nextInt(Math.min(10, size - i)));
+        }
+        indexes = new int[deleted.size()];
+        for (int i = 0; i < indexes.length; i++)
+        {
+            indexes[i] = deleted.get(i);
+        }
+
+        // Current layout: push ID keys
+        String[] id = new String[1];
+        store.addList("רשימה", values, new ListStore.Callback<String>()
+        {
+            @Override
+            public void onResult(String result)
+            {
+                id[0] = result;
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                throw new IllegalStateException(message);
+            }
+        });
+        listId = id[0];
+        List<Item> items = new ArrayList<>();
+        store.getItems(listId, new ListStore.Callback<List<Item>>()
+        {
+            @Override
+            public void onResult(List<Item> result)
+            {
+                items.addAll(result);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                throw new IllegalStateException(message);
+            }
+        });
+        itemIds = new ArrayList<>();
+        categoryNames = new ArrayList<>();
+        for (int index : indexes)
+        {
+            itemIds.add(items.get(index).getId());
+            categoryNames.add("קטגוריה " + index);
+        }
+        for (int i = 0; i < size; i++)
+        {
+            store.addCategory("קטגוריה " + i, BenchmarkData.Ignore.instance());
+        }
+
+        // Legacy layout: contiguous indexes
+        Map<String, Object> legacy = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            Map<String, Object> valueWithBoolean = new HashMap<>();
+            valueWithBoolean.put("value", values.get(i));
+            valueWithBoolean.put("isChecked", false);
+            legacy.put("legacyValues/" + i, valueWithBoolean);
+            legacy.put("legacyCategories/" + i, "קטגוריה " + i);
+        }
+        tree.update(USER_PATH, legacy);
+    }
+
+    @Benchmark
+    public void legacyDeleteValues()
+    {
+        String path = USER_PATH + "/legacyValues";
+        for (int index : indexes)
+        {
+            tree.set(path + "/" + index, null);
+        }
+        Map<?, ?> snapshot = (Map<?, ?>) tree.get(path);
+        int counter = 0;
+        for (int i = indexes[0]; i < snapshot.size() + indexes.length; i++)
+        {
+            Object value = snapshot.get(String.valueOf(i));
+            if (value == null)
+            {
+                counter++;
+            }
+            else
+            {
+                Map<?, ?> item = (Map<?, ?>) value;
+                Map<String, Object> valueWithBoolean = new HashMap<>();
+                valueWithBoolean.put("value", item.get("value"));
+                valueWithBoolean.put("isChecked", item.get("isChecked"));
+                tree.set(path + "/" + (i - counter), valueWithBoolean);
+                tree.set(path + "/" + i, null);
+            }
+        }
+    }
+
+    @Benchmark
+    public void deleteItems()
+    {
+        store.deleteItems(listId, itemIds, BenchmarkData.Ignore.instance());
+    }
+
+    @Benchmark
+    public void legacyDeleteCategories()
+    {
+        String path = USER_PATH + "/legacyCategories";
+        for (int index : indexes)
+        {
+            tree.set(path + "/" + index, null);
+        }
+        Map<?, ?> snapshot = (Map<?, ?>) tree.get(path);
+        int counter = 0;
+        for (int i = indexes[0]; i < snapshot.size() + indexes.length; i++)
+        {
+            Object value = snapshot.get(String.valueOf(i));
+            if (value == null)
+            {
+                counter++;
+            }
+            else
+            {
+                tree.set(path + "/" + (i - counter), value);
+                tree.set(path + "/" + i, null);
+            }
+        }
+    }
+
+    @Benchmark
+    public void deleteCategories()
+    {
+        store.deleteCategories(categoryNames, BenchmarkData.Ignore.instance());
+    }
+}
@@ -0,0 +1,101 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Core.InMemoryListStore;
+import RememberList.Core.ListStore;
+import RememberList.Core.MemoryTree;
+import RememberList.Core.SharedList;
+
+/**
+ * Filtering the shared lists by two categories (getFilteredLists).
+ * The legacy variant read every shared list and checked its categories one by one, as the app did
+ * before the byCategory index. The current one reads the index entries of the first selected category,
+ * which hold each list's fields, and returns the first page the screen shows.
+ * The size is the number of shared lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark
+{
+    private static final List<String> SELECTED = Arrays.asList(BenchmarkData.CATEGORIES.get(1), BenchmarkData.CATEGORIES.get(8));
+    private static final int PAGE_SIZE = 20; // The page size of the shared lists screen
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private MemoryTree tree;
+    private ListStore store;
+
+    @Setup
+    public void setUp()
+    {
+        tree = BenchmarkData.sharedListsTree(size);
+        store = new InMemoryListStore(tree, "benchmark@example_com");
+    }
+
+    @Benchmark
+    public List<String> legacyFullScan()
+    {
+        List<String> ids = new ArrayList<>();
+        Map<?, ?> lists = (Map<?, ?>) tree.get("SharedLists/lists");
+        for (Map.Entry<?, ?> entry : lists.entrySet())
+        {
+            Map<?, ?> list = (Map<?, ?>) entry.getValue();
+            List<Object> categoriesOfList = new ArrayList<>();
+            if (list.get("Categories") instanceof Map)
+            {
+                categoriesOfList.addAll(((Map<?, ?>) list.get("Categories")).values());
+            }
+            boolean containsCategories = true;
+            for (String category : SELECTED)
+            {
+                if (!categoriesOfList.contains(category))
+                {
+                    containsCategories = false;
+                    break;
+                }
+            }
+            if (containsCategories)
+            {
+                ids.add((String) entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<SharedList> categoryIndex()
+    {
+        List<SharedList> filtered = new ArrayList<>();
+        store.getFilteredLists(SELECTED, null, PAGE_SIZE, new ListStore.Callback<List<SharedList>>()
+        {
+            @Override
+            public void onResult(List<SharedList> result)
+            {
+                filtered.addAll(result);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                throw new IllegalStateException(message);
+            }
+        });
+        return filtered;
+    }
+}
@@ -0,0 +1,83 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Codes.ListSharedObject;
+
+/**
+ * ListSharedObject.equals, against equal copies and against copies that differ only in the last
+ * category, and ListSharedObject.toString, which builds a row of the shared lists screens.
+ * The size is the number of shared lists compared or printed per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListSharedObjectBenchmark
+{
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<ListSharedObject> lists;
+    private List<ListSharedObject> equalCopies;
+    private List<ListSharedObject> differentCopies;
+
+    @Setup
+    public void setUp()
+    {
+        lists = BenchmarkData.sharedListObjects(size);
+        equalCopies = new ArrayList<>();
+        differentCopies = new ArrayList<>();
+        for (ListSharedObject list : lists)
+        {
+            // New strings, so equals compares the characters and not only the references
+            String[] categories = new String[list.getCategories().length];
+            for (int i = 0; i < categories.length; i++)
+            {
+                categories[i] = new String(list.getCategories()[i]);
+            }
+            equalCopies.add(new ListSharedObject(list.getId(), list.getSaves(), new String(list.getListName()), categories));
+            String[] changed = categories.clone();
+            changed[changed.length - 1] += "!";
+            differentCopies.add(new ListSharedObject(list.getId(), list.getSaves(), new String(list.getListName()), changed));
+        }
+    }
+
+    @Benchmark
+    public void equalsEqual(Blackhole blackhole)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            blackhole.consume(lists.get(i).equals(equalCopies.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void equalsDifferent(Blackhole blackhole)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            blackhole.consume(lists.get(i).equals(differentCopies.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void toStrings(Blackhole blackhole)
+    {
+        for (ListSharedObject list : lists)
+        {
+            blackhole.consume(list.toString());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Codes.ListSharedObject;
+import RememberList.Codes.SharedListSearchIndex;
+
+/**
+ * Searching the shared lists by name as the user types (SharedListSearchIndex.search).
+ * The target is one keystroke within a frame, 16 ms, for 10,000 lists.
+ * The legacy variant scanned every list's name with contains, as the app did before the index.
+ * firstKeystroke matches a query against every name; typing types a word one letter at a time,
+ * so each keystroke after the first is matched only against the previous matches.
+ * The size is the number of shared lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark
+{
+    private static final int LIMIT = 50; // The number of results the shared lists screen shows
+    private static final String WORD = "קרם הגנה"; // Typed one letter at a time
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private List<ListSharedObject> lists;
+    private SharedListSearchIndex index;
+    private int next; // Alternates the first keystroke, so the previous query never narrows the next one
+
+    @Setup
+    public void setUp()
+    {
+        lists = BenchmarkData.sharedListObjects(size);
+        index = new SharedListSearchIndex();
+        for (ListSharedObject list : lists)
+        {
+            index.put(list.getId(), list.getListName());
+        }
+    }
+
+    @Benchmark
+    public List<String> legacyContains()
+    {
+        List<String> ids = new ArrayList<>();
+        for (ListSharedObject list : lists)
+        {
+            if (list.getListName().contains(WORD.substring(0, 1)))
+            {
+                ids.add(list.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<String> firstKeystroke()
+    {
+        next = 1 - next;
+        return index.search(WORD.substring(next, next + 1), LIMIT);
+    }
+
+    @Benchmark
+    public void typing(Blackhole blackhole)
+    {
+        for (int length = 1; length <= WORD.length(); length++)
+        {
+            blackhole.consume(index.search(WORD.substring(0, length), LIMIT));
+        }
+    }
+}
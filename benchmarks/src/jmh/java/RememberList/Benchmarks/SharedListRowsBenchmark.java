@@ -0,0 +1,95 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Codes.ListSharedObject;
+
+/**
+ * Building the rows of the shared lists screens from the lists they receive.
+ * The legacy variant sorted the lists by saves and then mapped every row back to its position in the
+ * database order with indexOf (the positionMap), which is quadratic in the number of lists.
+ * The current one gets the lists sorted and keyed by ID, so it only builds the rows.
+ * The size is the number of shared lists. The legacy variant takes minutes per call at 100,000 lists,
+ * so it is measured up to 10,000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SharedListRowsBenchmark
+{
+    // The lists as the legacy screens received them, in database order
+    @State(Scope.Benchmark)
+    public static class DatabaseOrder
+    {
+        @Param({"10", "1000", "10000"})
+        public int size;
+
+        List<ListSharedObject> lists;
+
+        @Setup
+        public void setUp()
+        {
+            lists = BenchmarkData.sharedListObjects(size);
+        }
+    }
+
+    // The lists as the screens receive them now, most saved first
+    @State(Scope.Benchmark)
+    public static class BySaves
+    {
+        @Param({"10", "1000", "100000"})
+        public int size;
+
+        List<ListSharedObject> lists;
+
+        @Setup
+        public void setUp()
+        {
+            lists = BenchmarkData.sharedListObjects(size);
+            Collections.sort(lists, (a, b) -> Integer.compare(b.getSaves(), a.getSaves()));
+        }
+    }
+
+    @Benchmark
+    public HashMap<Integer, Integer> legacyPositionMap(DatabaseOrder databaseOrder, Blackhole blackhole)
+    {
+        List<ListSharedObject> lists = new ArrayList<>(databaseOrder.lists);
+        HashMap<Integer, Integer> positionMap = new HashMap<>();
+        List<ListSharedObject> originalList = new ArrayList<>(lists);
+        Collections.sort(lists, (a, b) -> Integer.compare(b.getSaves(), a.getSaves()));
+        for (ListSharedObject list : lists)
+        {
+            blackhole.consume(list.toString());
+        }
+        for (int newIndex = 0; newIndex < lists.size(); newIndex++)
+        {
+            int originalIndex = originalList.indexOf(lists.get(newIndex));
+            positionMap.put(newIndex, originalIndex);
+        }
+        return positionMap;
+    }
+
+    @Benchmark
+    public List<String> sortedRows(BySaves bySaves)
+    {
+        List<String> rows = new ArrayList<>();
+        for (ListSharedObject list : bySaves.lists)
+        {
+            rows.add(list.toString());
+        }
+        return rows;
+    }
+}
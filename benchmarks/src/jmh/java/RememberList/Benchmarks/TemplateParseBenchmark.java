@@ -0,0 +1,84 @@
+package RememberList.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import RememberList.Core.TemplateReader;
+
+/**
+ * Parsing a "values.txt" template (readFromFile2): every record is a list name followed by its values.
+ * The legacy variant decodes the whole file and splits it, as the app did before TemplateReader.
+ * The size is the number of lists, with ten values each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateParseBenchmark
+{
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private byte[] file; // The template, encoded like the asset
+
+    @Setup
+    public void setUp()
+    {
+        Random random = BenchmarkData.random();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++)
+        {
+            text.append(BenchmarkData.name(random, i));
+            for (String value : BenchmarkData.values(random, BenchmarkData.ITEMS_PER_LIST))
+            {
+                text.append(',').append(value);
+            }
+            text.append("#\r\n");
+        }
+        file = text.toString().getBytes(TemplateReader.CHARSET);
+    }
+
+    @Benchmark
+    public void legacySplit(Blackhole blackhole)
+    {
+        String[] records = new String(file, TemplateReader.CHARSET).split("#");
+        for (int i = 0; i < records.length; i++)
+        {
+            String[] fields = records[i].split(",");
+            for (int j = 1; j < fields.length; j++)
+            {
+                blackhole.consume(i);
+                blackhole.consume(j - 1);
+                blackhole.consume(fields[j]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void templateReader(Blackhole blackhole) throws IOException
+    {
+        try (TemplateReader reader = new TemplateReader(new InputStreamReader(new ByteArrayInputStream(file), TemplateReader.CHARSET)))
+        {
+            reader.readAll((record, field, value) -> {
+                if (field > 0)
+                {
+                    blackhole.consume(record);
+                    blackhole.consume(field - 1);
+                    blackhole.consume(value);
+                }
+            });
+        }
+    }
+}
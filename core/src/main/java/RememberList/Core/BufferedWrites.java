@@ -0,0 +1,96 @@
+package RememberList.Core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small, frequent writes (such as checkbox toggles) held back to be sent together. Writes to the same path
+ * are coalesced to the last value, and all held paths are sent as one multi-path update. Every held write is
+ * also kept in a journal until it is sent, so a write is not lost if the process dies first.
+ * When a node is deleted the writes held under it are dropped, so sending them later does not bring back
+ * part of the deleted node. The app decides when to send (see its WriteBehindBuffer); this class is used
+ * from one thread.
+ */
+public class BufferedWrites
+{
+    /**
+     * Keeps the held writes where they outlive the process.
+     */
+    public interface Journal
+    {
+        void put(String path, boolean value);
+
+        void remove(List<String> paths);
+    }
+
+    private final Database database;
+    private final Journal journal;
+    private final Map<String, Object> pending = new HashMap<>();
+
+    /**
+     * @param database The database the writes are sent to; paths are relative to its root.
+     * @param journal The journal of the held writes.
+     * @param journaled The writes left in the journal by a previous process, held again.
+     */
+    public BufferedWrites(Database database, Journal journal, Map<String, ?> journaled)
+    {
+        this.database = database;
+        this.journal = journal;
+        pending.putAll(journaled);
+    }
+
+    /**
+     * Holds a boolean write. A later write to the same path replaces it.
+     */
+    public void put(String path, boolean value)
+    {
+        pending.put(path, value);
+        journal.put(path, value);
+    }
+
+    /**
+     * Drops the held writes to a node and to everything under it, for example because the node is deleted.
+     */
+    public void drop(String path)
+    {
+        List<String> dropped = new ArrayList<>();
+        for (String heldPath : pending.keySet())
+        {
+            if (heldPath.equals(path) || heldPath.startsWith(path + "/"))
+            {
+                dropped.add(heldPath);
+            }
+        }
+        if (!dropped.isEmpty())
+        {
+            pending.keySet().removeAll(dropped);
+            journal.remove(dropped);
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Sends every held write now, as one multi-path update, and removes them from the journal.
+     * Once handed to the database, its own queue of pending writes keeps the update until the server applies it.
+     *
+     * @param callback Receives the outcome of the update; called at once if nothing is held.
+     */
+    public void flush(ListStore.Callback<Void> callback)
+    {
+        if (pending.isEmpty())
+        {
+            callback.onResult(null);
+            return;
+        }
+        Map<String, Object> updates = new HashMap<>(pending);
+        pending.clear();
+        database.update("", updates, callback);
+        journal.remove(new ArrayList<>(updates.keySet()));
+    }
+}
@@ -0,0 +1,283 @@
+package RememberList.Core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the multi-path updates that bring a user's stored data up to the current schema.
+ * The migrator only reads the node it is given and returns the paths to write
+ * (relative to "UsersDatabase/{userEmail}"), so the caller commits the whole migration
+ * with a single update.
+ */
+public final class DataMigrator
+{
+    // The schema version written by this version of the app
+    public static final int CURRENT_USER_SCHEMA = 2;
+    // The schema version of the "SharedLists" node written by this version of the app
+    public static final int CURRENT_SHARED_SCHEMA = 6;
+
+    private DataMigrator()
+    {
+    }
+
+    /**
+     * Returns the schema version stored under a node (0 for data written before versioning).
+     *
+     * @param node The node of "UsersDatabase/{userEmail}" or "SharedLists".
+     */
+    static int getSchema(Object node)
+    {
+        Long version = Nodes.number(Nodes.child(node, "schemaVersion"));
+        return version != null ? version.intValue() : 0;
+    }
+
+    /**
+     * Collects the updates needed to migrate a user's node to {@link #CURRENT_USER_SCHEMA}.
+     * Version 1 moves list items from contiguous index keys to keys derived from them, with an explicit
+     * "order" field. Version 2 moves each list's items from "values/{listName}{listKey}" to "values/{listKey}",
+     * so the list key becomes the permanent identity of the list. Every new key is derived from the legacy
+     * key, which makes the migration deterministic and safe to run twice: two devices migrating the same
+     * user at once write the same update. Name-based keys that are ambiguous are resolved by
+     * {@link LegacyValuesKeys}, so no list's values are written over.
+     *
+     * @param userNode The node of "UsersDatabase/{userEmail}".
+     * @return Paths relative to the user's node mapped to their new values (null removes a path).
+     */
+    static Map<String, Object> migrateUser(Object userNode)
+    {
+        Map<String, Object> updates = new HashMap<>();
+        if (getSchema(userNode) < 2)
+        {
+            Map<String, Object> values = Nodes.children(Nodes.child(userNode, "values"));
+            // Values still stored under a name-based key are moved under the list key
+            Map<String, String> sources = LegacyValuesKeys.sources(listNames(Nodes.child(userNode, "lists"), null), values.keySet());
+            for (Map.Entry<String, String> source : sources.entrySet())
+            {
+                String listKey = source.getKey();
+                Map<String, Object> migratedItems = source.getValue() == null ? new HashMap<>()
+                        : migrateItems(values.get(source.getValue()));
+                updates.put("values/" + listKey, migratedItems.isEmpty() ? null : migratedItems);
+            }
+            for (String legacyKey : LegacyValuesKeys.removals(sources))
+            {
+                updates.put("values/" + legacyKey, null);
+            }
+        }
+        updates.put("schemaVersion", CURRENT_USER_SCHEMA);
+        return updates;
+    }
+
+    /**
+     * Collects the updates needed to migrate the "SharedLists" node to {@link #CURRENT_SHARED_SCHEMA}.
+     * Version 1 moves each shared list's values from "values/{listName}{listKey}" to "values/{listKey}".
+     * Version 2 replaces each list's "savedUsers" array with a "saveCount" counter and moves the savers
+     * to "savers/{listKey}/{emailNode}", so browsing lists no longer downloads every saver's email.
+     * Version 3 builds the "byCategory/{category}/{listKey}" index used to filter lists by category.
+     * Version 4 builds the "names/{listKey}" index used to search lists by name.
+     * Version 5 rebuilds the "byCategory" index with each list's name, categories and save count in its entries,
+     * so a filtered page is read with one ordered query instead of one read per list.
+     * Version 6 rebuilds the "names" index with the same entries, so search results are shown from the
+     * index instead of reading each found list.
+     *
+     * @param sharedNode The node of "SharedLists".
+     * @return Paths relative to "SharedLists" mapped to their new values (null removes a path).
+     */
+    static Map<String, Object> migrateShared(Object sharedNode)
+    {
+        Map<String, Object> updates = new HashMap<>();
+        Object lists = Nodes.child(sharedNode, "lists");
+        if (getSchema(sharedNode) < 1)
+        {
+            Map<String, Object> values = Nodes.children(Nodes.child(sharedNode, "values"));
+            Map<String, String> sources = LegacyValuesKeys.sources(listNames(lists, "Name"), values.keySet());
+            for (Map.Entry<String, String> source : sources.entrySet())
+            {
+                String listKey = source.getKey();
+                if (source.getValue() == null)
+                {
+                    // The list's own key holds the values of another list, which are moved away
+                    updates.put("values/" + listKey, null);
+                }
+                else if (!source.getValue().equals(listKey))
+                {
+                    updates.put("values/" + listKey, values.get(source.getValue()));
+                }
+            }
+            for (String legacyKey : LegacyValuesKeys.removals(sources))
+            {
+                updates.put("values/" + legacyKey, null);
+            }
+        }
+        if (getSchema(sharedNode) < 2)
+        {
+            for (Map.Entry<String, Object> list : Nodes.children(lists).entrySet())
+            {
+                String listKey = list.getKey();
+                int saveCount = 0;
+                for (Object saver : Nodes.children(Nodes.child(list.getValue(), "savedUsers")).values())
+                {
+                    String emailNode = Nodes.string(saver);
+                    if (emailNode != null && !emailNode.isEmpty())
+                    {
+                        updates.put("savers/" + listKey + "/" + emailNode, true);
+                        saveCount++;
+                    }
+                }
+                updates.put("lists/" + listKey + "/saveCount", saveCount);
+                updates.put("lists/" + listKey + "/savedUsers", null);
+            }
+        }
+        if (getSchema(sharedNode) < 5)
+        {
+            updates.put("byCategory", buildCategoryIndex(lists));
+        }
+        if (getSchema(sharedNode) < 6)
+        {
+            updates.put("names", buildNameIndex(lists));
+        }
+        updates.put("schemaVersion", CURRENT_SHARED_SCHEMA);
+        return updates;
+    }
+
+    /**
+     * Builds the whole "names" index from the shared lists.
+     *
+     * @param lists The node of "SharedLists/lists".
+     * @return The IDs of the lists mapped to their entries.
+     */
+    static Map<String, Object> buildNameIndex(Object lists)
+    {
+        Map<String, Object> index = new HashMap<>();
+        for (Map.Entry<String, Object> list : Nodes.children(lists).entrySet())
+        {
+            String name = Nodes.string(Nodes.child(list.getValue(), "Name"));
+            if (name != null)
+            {
+                index.put(list.getKey(), DatabaseListStore.indexEntry(name, categoriesOf(list.getValue()), saveCountOf(list.getValue())));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Builds the whole "byCategory" index from the shared lists.
+     *
+     * @param lists The node of "SharedLists/lists".
+     * @return Encoded category names mapped to the IDs of the lists in that category, each mapped to its entry.
+     */
+    static Map<String, Map<String, Object>> buildCategoryIndex(Object lists)
+    {
+        Map<String, Map<String, Object>> index = new HashMap<>();
+        for (Map.Entry<String, Object> list : Nodes.children(lists).entrySet())
+        {
+            String name = Nodes.string(Nodes.child(list.getValue(), "Name"));
+            if (name == null)
+            {
+                continue;
+            }
+            List<String> categories = categoriesOf(list.getValue());
+            Map<String, Object> entry = DatabaseListStore.indexEntry(name, categories, saveCountOf(list.getValue()));
+            for (String categoryName : categories)
+            {
+                String categoryKey = Keys.encode(categoryName);
+                Map<String, Object> entries = index.get(categoryKey);
+                if (entries == null)
+                {
+                    entries = new HashMap<>();
+                    index.put(categoryKey, entries);
+                }
+                entries.put(list.getKey(), entry);
+            }
+        }
+        return index;
+    }
+
+    // Returns the names of a list's categories, skipping empty ones
+    private static List<String> categoriesOf(Object list)
+    {
+        List<String> categories = new ArrayList<>();
+        for (Object category : Nodes.children(Nodes.child(list, "Categories")).values())
+        {
+            String categoryName = Nodes.string(category);
+            if (categoryName != null && !categoryName.isEmpty())
+            {
+                categories.add(categoryName);
+            }
+        }
+        return categories;
+    }
+
+    // Returns a list's save count, counted from its "savedUsers" array if it was not migrated to "saveCount" yet
+    private static int saveCountOf(Object list)
+    {
+        Long saveCount = Nodes.number(Nodes.child(list, "saveCount"));
+        if (saveCount != null)
+        {
+            return saveCount.intValue();
+        }
+        int savers = 0;
+        for (Object saver : Nodes.children(Nodes.child(list, "savedUsers")).values())
+        {
+            String emailNode = Nodes.string(saver);
+            if (emailNode != null && !emailNode.isEmpty())
+            {
+                savers++;
+            }
+        }
+        return savers;
+    }
+
+    // Returns the key of every list mapped to its name, read from the list's value or from the given field
+    private static Map<String, String> listNames(Object lists, String nameField)
+    {
+        Map<String, String> names = new HashMap<>();
+        for (Map.Entry<String, Object> list : Nodes.children(lists).entrySet())
+        {
+            Object name = nameField == null ? list.getValue() : Nodes.child(list.getValue(), nameField);
+            names.put(list.getKey(), Nodes.string(name));
+        }
+        return names;
+    }
+
+    /**
+     * Converts the items of one list to keys derived from their index keys, with an "order" field.
+     * Items that already have an "order" field are kept as they are.
+     */
+    private static Map<String, Object> migrateItems(Object items)
+    {
+        Map<String, Object> migratedItems = new HashMap<>();
+        int order = 0;
+        // Children are read in key order, which for index keys is the display order
+        for (Map.Entry<String, Object> item : Nodes.children(items).entrySet())
+        {
+            if (Nodes.child(item.getValue(), "order") != null)
+            {
+                migratedItems.put(item.getKey(), item.getValue()); // Already stored under a stable key
+                continue;
+            }
+            String value = Nodes.string(Nodes.child(item.getValue(), "value"));
+            if (value == null || value.isEmpty())
+            {
+                continue; // Empty-list placeholders are no longer stored
+            }
+            Boolean isChecked = Nodes.bool(Nodes.child(item.getValue(), "isChecked"));
+            Map<String, Object> valueWithBoolean = new HashMap<>();
+            valueWithBoolean.put("value", value);
+            valueWithBoolean.put("isChecked", Boolean.TRUE.equals(isChecked));
+            valueWithBoolean.put("order", order++);
+            migratedItems.put(legacyItemKey(item.getKey()), valueWithBoolean);
+        }
+        return migratedItems;
+    }
+
+    /**
+     * Returns the permanent ID of an item migrated from an index key. A letter is prefixed, so the
+     * database never reads the migrated items back as an array; items are ordered by their "order" field.
+     */
+    static String legacyItemKey(String indexKey)
+    {
+        return "legacy" + indexKey;
+    }
+}
@@ -0,0 +1,109 @@
+package RememberList.Core;
+
+import java.util.Map;
+
+/**
+ * The database the data operations run on: one-time reads of a node, ordered and limited reads of a
+ * node's children, multi-path updates, and listeners that follow a node or its children. The app implements
+ * it over Firebase and the tests and benchmarks over a MemoryTree, so every call is one round trip of the app.
+ * Paths are "/"-separated and start at the app's data ("Lists"). Values are plain Java values:
+ * a Map for a node with children (or a List if they are keyed 0, 1, ...), a String, Boolean, Long or Double
+ * for a leaf, and null for nothing. Every call reports its outcome to its callback exactly once;
+ * listeners are called until they are removed.
+ */
+public interface Database
+{
+    /**
+     * Receives the value of a node, and every new value after it.
+     */
+    interface ValueListener
+    {
+        void onValue(Object value);
+
+        void onError(String message);
+    }
+
+    /**
+     * Receives the children of a node ordered by one of their fields, and every change to them after that.
+     * The previous key is the key of the child right before it in that order, or null if it is first.
+     */
+    interface ChildListener
+    {
+        void onChildAdded(String key, Object value, String previousKey);
+
+        void onChildChanged(String key, Object value, String previousKey);
+
+        void onChildMoved(String key, Object value, String previousKey);
+
+        void onChildRemoved(String key);
+
+        void onError(String message);
+    }
+
+    /**
+     * A listener attached to the database.
+     */
+    interface Registration
+    {
+        /**
+         * Stops calling the listener.
+         */
+        void remove();
+    }
+
+    /**
+     * Reads a node once, from the local copy when one is kept.
+     */
+    void read(String path, ListStore.Callback<Object> callback);
+
+    /**
+     * Reads a node from the server, bypassing the local copy. Offline, the local copy is returned.
+     */
+    void readFresh(String path, ListStore.Callback<Object> callback);
+
+    /**
+     * Reads the last children of a node ordered by one of their fields, and by key among equal values, like
+     * orderByChild(field).endBefore(beforeValue, beforeKey).limitToLast(limit).
+     *
+     * @param beforeValue The field value of the child to end before, or null to read up to the last child.
+     * @param beforeKey The key of the child to end before, or null to read up to the last child.
+     * @param fresh True to read from the server, bypassing the local copy.
+     * @param callback Receives the children in ascending order.
+     */
+    void readLast(String path, String field, Long beforeValue, String beforeKey, int limit, boolean fresh,
+                  ListStore.Callback<Map<String, Object>> callback);
+
+    /**
+     * Listens to the value of a node, starting with its current value.
+     */
+    Registration listen(String path, ValueListener listener);
+
+    /**
+     * Listens to the children of a node ordered by one of their fields, and by key among equal values,
+     * starting with every existing child as an addition.
+     */
+    Registration listenToChildren(String path, String field, ChildListener listener);
+
+    /**
+     * Writes several nodes under the path at once; a null value removes its node. The write is applied
+     * to the local copy immediately, and the callback is called once the server applied it, or rejected it whole.
+     *
+     * @param children Paths relative to the path mapped to their new values.
+     */
+    void update(String path, Map<String, Object> children, ListStore.Callback<Void> callback);
+
+    /**
+     * Returns a new key, generated locally, unique across devices and later in order than the keys before it.
+     */
+    String newKey();
+
+    /**
+     * Returns the value that the server replaces by its time when it applies a write.
+     */
+    Object timestamp();
+
+    /**
+     * Returns the value that the server replaces by the stored number plus delta when it applies a write.
+     */
+    Object increment(long delta);
+}
@@ -0,0 +1,1004 @@
+package RememberList.Core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The data operations of the app over a Database: the paths, reads and multi-path updates of every
+ * operation. The app runs it over Firebase and the tests and benchmarks over a MemoryTree, so both make
+ * the same round trips. Every operation is timed into the metrics registry under the name the diagnostics show.
+ *
+ * Every write to the lists index or the categories also sets "versions/{node}" to the
+ * server's timestamp, in the same update. Reads check that small stamp first and reuse the local copy
+ * of the node while the stamp is unchanged.
+ * A default list points at a shared template under "templates/{listId}" until it is first edited;
+ * the edit copies the template's items to the user's own "values/{listId}" first.
+ */
+public class DatabaseListStore implements ListStore
+{
+    /**
+     * Fills the data of a new user: the default lists, the templates they point at and the default categories.
+     */
+    public interface Seed
+    {
+        /**
+         * @param seedData Paths (relative to "UsersDatabase/{user}") mapped to the values to write.
+         * @param templates Paths (relative to "Templates") mapped to the values to publish; left empty if there are none.
+         * @param listIds Receives the permanent ID of every list added.
+         */
+        void fill(Map<String, Object> seedData, Map<String, Object> templates, List<String> listIds);
+    }
+
+    private final Database database;
+    private final String user; // The user's email in the form used as a database key
+    private final String userPath;
+    private final MetricsRegistry metrics;
+    // Lists whose template copy was applied by the server, so later edits skip the pointer read
+    private final Set<String> copiedLists = Collections.synchronizedSet(new HashSet<String>());
+    // Lists whose template copy is being written, mapped to the edits waiting for it; guarded by itself
+    private final Map<String, List<PendingEdit>> copying = new HashMap<>();
+    // The last read lists index and categories, each kept with the version stamp it was read at
+    private final VersionedCache<Map<String, String>> listsCopies = new VersionedCache<>();
+    private final VersionedCache<List<String>> categoriesCopies = new VersionedCache<>();
+
+    /**
+     * @param user The user's email in the form used as a database key.
+     */
+    public DatabaseListStore(Database database, String user, MetricsRegistry metrics)
+    {
+        this.database = database;
+        this.user = user;
+        this.userPath = "UsersDatabase/" + user;
+        this.metrics = metrics;
+    }
+
+    // region User Data
+
+    /**
+     * Checks that the user's data exists and has the current schema. Data written by an older version of the
+     * app is migrated, and a new user is seeded, each in one update; the callback is called once it is applied.
+     * Only the schema version is read when the data is up to date.
+     */
+    public void checkUserData(Seed seed, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("checkAndLoadData");
+        read(call, userPath + "/schemaVersion", new Step<Object>(call, callback, "Failed to load user data: ")
+        {
+            @Override
+            public void onResult(Object schema)
+            {
+                Long version = Nodes.number(schema);
+                if (version != null && version >= DataMigrator.CURRENT_USER_SCHEMA)
+                {
+                    call.succeed();
+                    callback.onResult(null);
+                    return;
+                }
+                read(call, userPath, new Step<Object>(call, callback, "Failed to load user data: ")
+                {
+                    @Override
+                    public void onResult(Object userNode)
+                    {
+                        if (userNode != null)
+                        {
+                            // Bring data written by older versions of the app to the current schema in one write
+                            Map<String, Object> migration = DataMigrator.migrateUser(userNode);
+                            stampVersions(migration, "lists", "Categories");
+                            write(call, userPath, migration, callback, null, "Failed to migrate user data: ");
+                            return;
+                        }
+                        Map<String, Object> seedData = new HashMap<>();
+                        Map<String, Object> templates = new HashMap<>();
+                        List<String> listIds = new ArrayList<>();
+                        seed.fill(seedData, templates, listIds);
+                        seedData.put("schemaVersion", DataMigrator.CURRENT_USER_SCHEMA);
+                        stampVersions(seedData, "lists", "Categories");
+                        // Commit the whole subtree at once, after the templates it points at
+                        publishTemplates(call, templates, callback, () -> write(call, userPath, seedData, callback, null, "Failed to load user data: "));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Publishes the shared templates under "Templates" unless the same version is already there,
+     * then runs the given action. The action runs once the server applied the templates,
+     * so lists pointing at them never point at nothing; if they cannot be written the failure is reported instead.
+     *
+     * @param templates Paths (relative to "Templates") mapped to the values to publish; empty if there are none.
+     */
+    private void publishTemplates(MetricsRegistry.Call call, Map<String, Object> templates, Callback<Void> callback, Runnable then)
+    {
+        if (templates.isEmpty())
+        {
+            then.run();
+            return;
+        }
+        // Every client writes the same data for the same version, so racing clients do not conflict
+        Step<Void> publish = new Step<Void>(call, callback, "Failed to publish templates: ")
+        {
+            @Override
+            public void onResult(Void result)
+            {
+                then.run();
+            }
+        };
+        database.read("Templates/version", new Callback<Object>()
+        {
+            @Override
+            public void onResult(Object version)
+            {
+                Object packVersion = templates.get("version");
+                if (packVersion != null && packVersion.equals(version))
+                {
+                    then.run(); // Already published
+                    return;
+                }
+                call.addBytes(PayloadSize.of(templates));
+                database.update("Templates", templates, publish);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                // Unknown version: publish anyway, the data is the same
+                call.addBytes(PayloadSize.of(templates));
+                database.update("Templates", templates, publish);
+            }
+        });
+    }
+
+    /**
+     * Migrates the "SharedLists" node to the current schema if no client has done it yet.
+     * Only the schema version is read when the node is already up to date.
+     */
+    public void migrateSharedLists(Callback<Void> callback)
+    {
+        database.read("SharedLists/schemaVersion", new Callback<Object>()
+        {
+            @Override
+            public void onResult(Object schema)
+            {
+                Long version = Nodes.number(schema);
+                if (version != null && version >= DataMigrator.CURRENT_SHARED_SCHEMA)
+                {
+                    callback.onResult(null); // Already migrated
+                    return;
+                }
+                database.read("SharedLists", new Callback<Object>()
+                {
+                    @Override
+                    public void onResult(Object sharedNode)
+                    {
+                        // The migration is deterministic, so two clients racing here write the same data
+                        database.update("SharedLists", DataMigrator.migrateShared(sharedNode), callback);
+                    }
+
+                    @Override
+                    public void onError(String message)
+                    {
+                        callback.onError(message);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                callback.onError(message);
+            }
+        });
+    }
+
+    // endregion
+
+    // region User Lists
+
+    @Override
+    public void getUserLists(Callback<Map<String, String>> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("getUserLists");
+        readVersion(call, "lists", version -> {
+            Map<String, String> copy = listsCopies.get("lists", version);
+            if (copy != null)
+            {
+                // Nothing changed since the last read; return the local copy
+                call.succeed();
+                callback.onResult(new LinkedHashMap<>(copy));
+                return;
+            }
+            read(call, userPath + "/lists", new Step<Object>(call, callback, "Failed to fetch content: ")
+            {
+                @Override
+                public void onResult(Object node)
+                {
+                    Map<String, String> lists = new LinkedHashMap<>();
+                    for (Map.Entry<String, Object> list : Nodes.children(node).entrySet())
+                    {
+                        String name = Nodes.string(list.getValue());
+                        if (name != null)
+                        {
+                            lists.put(list.getKey(), name);
+                        }
+                    }
+                    listsCopies.put("lists", version, lists);
+                    call.succeed();
+                    callback.onResult(new LinkedHashMap<>(lists));
+                }
+            });
+        });
+    }
+
+    /**
+     * Adds a list with its items. The list gets a permanent ID at creation; its name is stored under
+     * "lists/{listId}" and its items under "values/{listId}", both in a single update with the lists' version stamp.
+     */
+    @Override
+    public void addList(String name, List<String> values, Callback<String> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("addList");
+        // Allocate the permanent ID of the list (generated locally, in creation order)
+        String listId = database.newKey();
+        Map<String, Object> newList = new HashMap<>();
+        newList.put("lists/" + listId, name);
+        int order = 0;
+        for (String value : values)
+        {
+            newList.put("values/" + listId + "/" + database.newKey(), item(value, order++));
+        }
+        stampVersions(newList, "lists");
+        write(call, userPath, newList, callback, listId, "Failed to add list: ");
+    }
+
+    /**
+     * Deletes a list with its items and its template pointer, in a single update.
+     */
+    @Override
+    public void deleteList(String listId, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("deleteList");
+        Map<String, Object> removals = new HashMap<>();
+        removals.put("lists/" + listId, null);
+        removals.put("values/" + listId, null);
+        removals.put("templates/" + listId, null);
+        stampVersions(removals, "lists");
+        write(call, userPath, removals, callback, null, "Failed to delete list: ");
+    }
+
+    // endregion
+
+    // region Items
+
+    /**
+     * Gets the items of a user list once. A list that still points at a shared template is read from the template.
+     * The list screen streams the items instead (see listenToItems).
+     */
+    @Override
+    public void getItems(String listId, Callback<List<Item>> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("getValues");
+        // Find where the list is stored
+        read(call, userPath + "/templates/" + listId, new Step<Object>(call, callback, "Failed to fetch values: ")
+        {
+            @Override
+            public void onResult(Object pointer)
+            {
+                String templateId = Nodes.string(pointer);
+                String valuesPath = templateId == null ? userPath + "/values/" + listId : "Templates/" + templateId + "/values";
+                read(call, valuesPath, new Step<Object>(call, callback, "Failed to fetch values: ")
+                {
+                    @Override
+                    public void onResult(Object values)
+                    {
+                        call.succeed();
+                        callback.onResult(toItems(values));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Streams the changes to the items of a user list, starting with every existing item as an addition:
+     * a listener on the list's template pointer, a listener on the items where they are stored, and one read
+     * that marks the end of the existing items. Writes are reported as soon as they are made, so edits never
+     * reload the list.
+     *
+     * @return The stream, to be stopped when the list is closed.
+     */
+    public ItemsStream listenToItems(String listId, ItemsStream.Listener listener)
+    {
+        ItemsStream stream = new ItemsStream(database, userPath, listId, listener);
+        stream.start();
+        return stream;
+    }
+
+    /**
+     * Adds items after the existing items of a list, in one update and without reading the list:
+     * each item gets a new key and the server's time as its "order".
+     */
+    @Override
+    public void addItems(String listId, List<String> values, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("addValues");
+        Map<String, Object> newValues = new HashMap<>();
+        for (String value : values)
+        {
+            // Sorted after the existing items; the keys keep items added together in order
+            newValues.put("values/" + listId + "/" + database.newKey(), item(value, database.timestamp()));
+        }
+        // A list that still points at its template gets its own copy first
+        withPrivateCopy(call, listId, callback, () -> write(call, userPath, newValues, callback, null, "Failed to add value: "));
+    }
+
+    @Override
+    public void setChecked(String listId, String itemId, boolean checked, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("setChecked");
+        Map<String, Object> update = new HashMap<>();
+        update.put("values/" + listId + "/" + itemId + "/isChecked", checked);
+        withPrivateCopy(call, listId, callback, () -> write(call, userPath, update, callback, null, "Failed to update value: "));
+    }
+
+    /**
+     * Deletes items from a list in a single update; items keep their keys, so nothing else is touched.
+     */
+    @Override
+    public void deleteItems(String listId, List<String> itemIds, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("deleteValues");
+        Map<String, Object> removals = new HashMap<>();
+        for (String itemId : itemIds)
+        {
+            removals.put("values/" + listId + "/" + itemId, null);
+        }
+        // A list that still points at its template gets its own copy first, so there is something to delete from
+        withPrivateCopy(call, listId, callback, () -> write(call, userPath, removals, callback, null, "Failed to delete values: "));
+    }
+
+    /**
+     * Makes sure a list has its own copy of its items, then calls back. Writes the app makes
+     * under "values/{listId}" without this store, such as buffered checkbox changes, come after it.
+     */
+    public void withPrivateCopy(String listId, Callback<Void> callback)
+    {
+        if (copiedLists.contains(listId))
+        {
+            callback.onResult(null);
+            return;
+        }
+        MetricsRegistry.Call call = metrics.start("copyList");
+        withPrivateCopy(call, listId, callback, () -> {
+            call.succeed();
+            callback.onResult(null);
+        });
+    }
+
+    // Returns the path (from the database's root) of the items of a list
+    public String valuesPath(String listId)
+    {
+        return userPath + "/values/" + listId;
+    }
+
+    // Returns the path (from the database's root) of an item's checkbox state
+    public String checkedPath(String listId, String itemId)
+    {
+        return valuesPath(listId) + "/" + itemId + "/isChecked";
+    }
+
+    /**
+     * An edit of a user list waiting for the list's template copy.
+     */
+    private static class PendingEdit
+    {
+        final MetricsRegistry.Call call;
+        final Callback<?> callback;
+        final Runnable edit;
+
+        PendingEdit(MetricsRegistry.Call call, Callback<?> callback, Runnable edit)
+        {
+            this.call = call;
+            this.callback = callback;
+            this.edit = edit;
+        }
+    }
+
+    /**
+     * Runs an edit of a user list on the user's own copy of its items.
+     * A list that still points at a shared template is copied first, under the template's item keys,
+     * and the pointer is removed in the same write. The edit runs once the server applied the copy,
+     * and edits made meanwhile wait for the same copy. If the template cannot be read or the copy
+     * is rejected, the edit is dropped and the failure is reported instead.
+     */
+    private void withPrivateCopy(MetricsRegistry.Call call, String listId, Callback<?> callback, Runnable edit)
+    {
+        if (copiedLists.contains(listId))
+        {
+            edit.run();
+            return;
+        }
+        read(call, userPath + "/templates/" + listId, new Step<Object>(call, callback, "Failed to copy list: ")
+        {
+            @Override
+            public void onResult(Object pointer)
+            {
+                String templateId = Nodes.string(pointer);
+                if (templateId == null || copiedLists.contains(listId))
+                {
+                    edit.run();
+                    return;
+                }
+                read(call, "Templates/" + templateId + "/values", new Step<Object>(call, callback, "Failed to copy list: ")
+                {
+                    @Override
+                    public void onResult(Object template)
+                    {
+                        copy(listId, template, new PendingEdit(call, callback, edit));
+                    }
+                });
+            }
+        });
+    }
+
+    // Writes the copy of a list's template, then runs the edits waiting for it
+    private void copy(String listId, Object template, PendingEdit first)
+    {
+        boolean copied;
+        synchronized (copying)
+        {
+            // Another edit of the same list may have made or started the copy while the template was read
+            copied = copiedLists.contains(listId);
+            if (!copied)
+            {
+                List<PendingEdit> waiting = copying.get(listId);
+                if (waiting != null)
+                {
+                    waiting.add(first);
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(first);
+                copying.put(listId, waiting);
+            }
+        }
+        if (copied)
+        {
+            first.edit.run();
+            return;
+        }
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<String, Object> item : Nodes.children(template).entrySet())
+        {
+            copy.put("values/" + listId + "/" + item.getKey(), item.getValue());
+        }
+        copy.put("templates/" + listId, null);
+        first.call.addBytes(PayloadSize.of(copy));
+        database.update(userPath, copy, new Callback<Void>()
+        {
+            @Override
+            public void onResult(Void result)
+            {
+                for (PendingEdit pending : takeWaiting(listId, true))
+                {
+                    pending.edit.run();
+                }
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                for (PendingEdit pending : takeWaiting(listId, false))
+                {
+                    pending.call.fail();
+                    pending.callback.onError("Failed to copy list: " + message);
+                }
+            }
+        });
+    }
+
+    // Ends the copy of a list, returning the edits that waited for it
+    private List<PendingEdit> takeWaiting(String listId, boolean copied)
+    {
+        synchronized (copying)
+        {
+            if (copied)
+            {
+                copiedLists.add(listId);
+            }
+            return copying.remove(listId);
+        }
+    }
+
+    // endregion
+
+    // region Categories
+
+    @Override
+    public void getCategories(Callback<List<String>> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("getCategories");
+        // Only read the categories again if their version changed since they were last read
+        readVersion(call, "Categories", version -> {
+            List<String> copy = categoriesCopies.get("Categories", version);
+            if (copy != null)
+            {
+                call.succeed();
+                callback.onResult(new ArrayList<>(copy));
+                return;
+            }
+            read(call, userPath + "/Categories", new Step<Object>(call, callback, "Failed to fetch content: ")
+            {
+                @Override
+                public void onResult(Object node)
+                {
+                    List<String> categories = new ArrayList<>();
+                    for (Object category : Nodes.children(node).values())
+                    {
+                        String name = Nodes.string(category);
+                        if (name != null)
+                        {
+                            categories.add(name);
+                        }
+                    }
+                    categoriesCopies.put("Categories", version, categories);
+                    call.succeed();
+                    callback.onResult(new ArrayList<>(categories));
+                }
+            });
+        });
+    }
+
+    /**
+     * Adds a category under a new key, so concurrent adds from different devices never overwrite each other.
+     */
+    @Override
+    public void addCategory(String name, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("addCategory");
+        Map<String, Object> newCategory = new HashMap<>();
+        newCategory.put("Categories/" + database.newKey(), name);
+        stampVersions(newCategory, "Categories");
+        write(call, userPath, newCategory, callback, null, "Failed to add category: ");
+    }
+
+    /**
+     * Deletes categories by name. The (small) categories node is read once to find the keys of the names,
+     * and every match is removed in a single update.
+     */
+    @Override
+    public void deleteCategories(List<String> names, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("deleteCategories");
+        read(call, userPath + "/Categories", new Step<Object>(call, callback, "Failed to access database: ")
+        {
+            @Override
+            public void onResult(Object node)
+            {
+                Map<String, Object> removals = new HashMap<>();
+                for (Map.Entry<String, Object> category : Nodes.children(node).entrySet())
+                {
+                    if (names.contains(Nodes.string(category.getValue())))
+                    {
+                        removals.put("Categories/" + category.getKey(), null);
+                    }
+                }
+                stampVersions(removals, "Categories");
+                write(call, userPath, removals, callback, null, "Failed to delete categories: ");
+            }
+        });
+    }
+
+    // endregion
+
+    // region Shared Lists
+
+    /**
+     * Gets one page of the shared lists, the most saved first. The lists are read ordered by "saveCount"
+     * and limited to the page, so only the lists that are shown are downloaded.
+     */
+    @Override
+    public void getSharedListsPage(SharedList after, int limit, boolean fresh, Callback<List<SharedList>> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("getSharedListsPage");
+        // Continue right below the previous page; the list ID breaks ties between equal save counts
+        Long afterSaves = after != null ? Long.valueOf(after.getSaves()) : null;
+        String afterId = after != null ? after.getId() : null;
+        database.readLast("SharedLists/lists", "saveCount", afterSaves, afterId, limit, fresh,
+                sized(call, new Step<Map<String, Object>>(call, callback, "Failed to fetch content: ")
+                {
+                    @Override
+                    public void onResult(Map<String, Object> lists)
+                    {
+                        call.succeed();
+                        callback.onResult(toSharedListsBySaves(lists));
+                    }
+                }));
+    }
+
+    /**
+     * Gets the items of a shared list, in their order. Items are keyed by their index.
+     */
+    @Override
+    public void getSharedItems(String sharedListId, Callback<List<Item>> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("getValues");
+        read(call, "SharedLists/values/" + sharedListId, new Step<Object>(call, callback, "Failed to fetch values: ")
+        {
+            @Override
+            public void onResult(Object node)
+            {
+                List<Item> items = new ArrayList<>();
+                for (Map.Entry<String, Object> item : Nodes.children(node).entrySet())
+                {
+                    String value = Nodes.string(item.getValue());
+                    if (value != null && !value.isEmpty())
+                    {
+                        items.add(new Item(item.getKey(), value, false));
+                    }
+                }
+                call.succeed();
+                callback.onResult(items);
+            }
+        });
+    }
+
+    /**
+     * Shares a list with every user, indexing it by name and by each of its categories.
+     * The list, its items and its index entries are written under the same ID in a single update.
+     */
+    @Override
+    public void addSharedList(String name, List<String> categories, List<String> values, Callback<String> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("addSharedList");
+        // Allocate the permanent ID of the shared list (generated locally, in creation order)
+        String listId = database.newKey();
+        Map<String, Object> sharedObject = new HashMap<>();
+        sharedObject.put("Categories", new ArrayList<>(categories));
+        sharedObject.put("CreatedBy", user);
+        sharedObject.put("Name", name);
+        sharedObject.put("saveCount", 0);
+        Map<String, Object> newSharedList = new HashMap<>();
+        newSharedList.put("lists/" + listId, sharedObject);
+        newSharedList.put("values/" + listId, new ArrayList<>(values));
+        // Index the list with its shown fields for searching by name, and under each of its categories
+        newSharedList.put("names/" + listId, indexEntry(name, categories, 0));
+        for (String category : categories)
+        {
+            newSharedList.put("byCategory/" + Keys.encode(category) + "/" + listId, indexEntry(name, categories, 0));
+        }
+        write(call, "SharedLists", newSharedList, callback, listId, "Failed to add list: ");
+    }
+
+    /**
+     * Gets one page of the shared lists that belong to all of the given categories, the most saved first.
+     * Each entry of the "byCategory" index holds the list's name, categories and save count, so a page is
+     * read with one query of the first category's entries, ordered by "saveCount" and limited to the page.
+     * Entries missing another category are skipped, and the query continues below the last entry read
+     * until the page is full or the category has no more lists. Without categories every list matches.
+     */
+    @Override
+    public void getFilteredLists(List<String> categories, SharedList after, int limit, Callback<List<SharedList>> callback)
+    {
+        if (categories.isEmpty())
+        {
+            getSharedListsPage(after, limit, false, callback);
+            return;
+        }
+        readFilteredEntries(metrics.start("getFilteredListsPage"), new ArrayList<>(categories),
+                after != null ? Long.valueOf(after.getSaves()) : null, after != null ? after.getId() : null,
+                limit, new ArrayList<SharedList>(), callback);
+    }
+
+    // Reads the next entries of the first category below the given position, and keeps those in every category
+    private void readFilteredEntries(MetricsRegistry.Call call, List<String> categories, Long afterSaves, String afterId,
+                                     int limit, List<SharedList> page, Callback<List<SharedList>> callback)
+    {
+        database.readLast("SharedLists/byCategory/" + Keys.encode(categories.get(0)), "saveCount", afterSaves, afterId, limit, false,
+                sized(call, new Step<Map<String, Object>>(call, callback, "Failed to fetch lists categories: ")
+                {
+                    @Override
+                    public void onResult(Map<String, Object> entries)
+                    {
+                        for (SharedList entry : toSharedListsBySaves(entries))
+                        {
+                            if (page.size() < limit && entry.getCategories().containsAll(categories))
+                            {
+                                page.add(entry);
+                            }
+                        }
+                        // A full read may be followed by more lists of the category; the first entry is the least saved
+                        if (page.size() < limit && entries.size() == limit)
+                        {
+                            Map.Entry<String, Object> lowest = entries.entrySet().iterator().next();
+                            readFilteredEntries(call, categories, (long) saveCountOf(lowest.getValue()), lowest.getKey(),
+                                    limit, page, callback);
+                            return;
+                        }
+                        call.succeed();
+                        callback.onResult(page);
+                    }
+                }));
+    }
+
+    /**
+     * Records that the user saved a shared list.
+     * The savers of a list are kept as a set under "savers/{listId}/{user}". Adding the user to that set and
+     * incrementing the list's "saveCount" on the server are one multi-path update, so the server applies both
+     * or neither. The user's entry is first read from the server, so a list the user already saved is not
+     * counted again; two concurrent saves by the same user are told apart by the rule in database.rules.json
+     * that lets a saver entry be created only once, which rejects the second update whole.
+     * The list's entries in the "names" and "byCategory" indexes are counted in the same update, so they show
+     * the same count as the list and stay ordered like it.
+     */
+    @Override
+    public void saveSharedList(SharedList sharedList, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("updateListSaves");
+        String listId = sharedList.getId();
+        database.readFresh("SharedLists/savers/" + listId + "/" + user,
+                sized(call, new Step<Object>(call, callback, "Failed to update value: ")
+                {
+                    @Override
+                    public void onResult(Object saver)
+                    {
+                        if (saver != null)
+                        {
+                            // The list was already saved by this user, so the count stays the same
+                            call.succeed();
+                            callback.onResult(null);
+                            return;
+                        }
+                        Map<String, Object> save = new HashMap<>();
+                        save.put("savers/" + listId + "/" + user, true);
+                        save.put("lists/" + listId + "/saveCount", database.increment(1));
+                        save.put("names/" + listId + "/saveCount", database.increment(1));
+                        for (String category : sharedList.getCategories())
+                        {
+                            save.put("byCategory/" + Keys.encode(category) + "/" + listId + "/saveCount", database.increment(1));
+                        }
+                        write(call, "SharedLists", save, callback, null, "Failed to update value: ");
+                    }
+                }));
+    }
+
+    /**
+     * Deletes shared lists with their items, savers and index entries, in a single update.
+     */
+    @Override
+    public void deleteSharedLists(List<SharedList> sharedLists, Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("deleteSharedLists");
+        Map<String, Object> removals = new HashMap<>();
+        for (SharedList sharedList : sharedLists)
+        {
+            String listId = sharedList.getId();
+            removals.put("lists/" + listId, null);
+            removals.put("values/" + listId, null);
+            removals.put("savers/" + listId, null);
+            removals.put("names/" + listId, null);
+            for (String category : sharedList.getCategories())
+            {
+                removals.put("byCategory/" + Keys.encode(category) + "/" + listId, null);
+            }
+        }
+        write(call, "SharedLists", removals, callback, null, "Failed to delete lists: ");
+    }
+
+    /**
+     * Rebuilds the "byCategory" index of the shared lists from their "Categories" fields.
+     * Used for data written before the index existed or if the index ever drifts.
+     */
+    public void rebuildCategoryIndex(Callback<Void> callback)
+    {
+        MetricsRegistry.Call call = metrics.start("rebuildCategoryIndex");
+        read(call, "SharedLists/lists", new Step<Object>(call, callback, "Failed to rebuild the category index: ")
+        {
+            @Override
+            public void onResult(Object lists)
+            {
+                Map<String, Object> index = new HashMap<>();
+                index.put("byCategory", DataMigrator.buildCategoryIndex(lists));
+                write(call, "SharedLists", index, callback, null, "Failed to rebuild the category index: ");
+            }
+        });
+    }
+
+    /**
+     * Returns the entry of a shared list in the "names" and "byCategory" indexes: the fields a row of the
+     * list shows, and its "saveCount" to order the entries by.
+     */
+    public static Map<String, Object> indexEntry(String name, List<String> categories, int saveCount)
+    {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("Name", name);
+        entry.put("Categories", new ArrayList<>(categories));
+        entry.put("saveCount", saveCount);
+        return entry;
+    }
+
+    // endregion
+
+    // region Versions
+
+    /**
+     * Receives the version stamp of a node.
+     */
+    private interface VersionListener
+    {
+        // The version is null if the node has none yet or the stamp could not be read
+        void onVersion(Long version);
+    }
+
+    // Reads the version stamp of a node of the user; a failed read is reported as no version, so the node is read in full
+    private void readVersion(MetricsRegistry.Call call, String node, VersionListener listener)
+    {
+        database.read(userPath + "/versions/" + node, new Callback<Object>()
+        {
+            @Override
+            public void onResult(Object version)
+            {
+                call.addBytes(PayloadSize.of(version));
+                listener.onVersion(Nodes.number(version));
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onVersion(null);
+            }
+        });
+    }
+
+    // Adds new version stamps of the given nodes to an update of the user's node
+    private void stampVersions(Map<String, Object> update, String... nodes)
+    {
+        for (String node : nodes)
+        {
+            update.put("versions/" + node, database.timestamp());
+        }
+    }
+
+    // endregion
+
+    // region Steps
+
+    /**
+     * A step of an operation. A failure fails the operation's call and reports the error, with the
+     * given prefix, to the operation's callback.
+     */
+    private abstract static class Step<T> implements Callback<T>
+    {
+        private final MetricsRegistry.Call call;
+        private final Callback<?> callback;
+        private final String failure;
+
+        Step(MetricsRegistry.Call call, Callback<?> callback, String failure)
+        {
+            this.call = call;
+            this.callback = callback;
+            this.failure = failure;
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            call.fail();
+            callback.onError(failure + message);
+        }
+    }
+
+    // Reads a node as a step of the call, counting the size of the data read
+    private void read(MetricsRegistry.Call call, String path, Step<Object> step)
+    {
+        database.read(path, sized(call, step));
+    }
+
+    // Counts the size of the data a step reads
+    private static <T> Callback<T> sized(MetricsRegistry.Call call, Callback<T> step)
+    {
+        return new Callback<T>()
+        {
+            @Override
+            public void onResult(T result)
+            {
+                call.addBytes(PayloadSize.of(result));
+                step.onResult(result);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                step.onError(message);
+            }
+        };
+    }
+
+    // Writes an update as the last step of the call, which completes once the server applied the update
+    private <T> void write(MetricsRegistry.Call call, String path, Map<String, Object> update, Callback<T> callback, T result, String failure)
+    {
+        call.addBytes(PayloadSize.of(update));
+        database.update(path, update, new Callback<Void>()
+        {
+            @Override
+            public void onResult(Void unused)
+            {
+                call.succeed();
+                callback.onResult(result);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                call.fail();
+                callback.onError(failure + message);
+            }
+        });
+    }
+
+    // endregion
+
+    private static Map<String, Object> item(String value, Object order)
+    {
+        Map<String, Object> valueWithBoolean = new HashMap<>();
+        valueWithBoolean.put("value", value);
+        valueWithBoolean.put("isChecked", false);
+        valueWithBoolean.put("order", order);
+        return valueWithBoolean;
+    }
+
+    // Converts the items of a list to Items ordered by "order", and by key among equal orders
+    private static List<Item> toItems(Object values)
+    {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(Nodes.children(values).entrySet());
+        Collections.sort(entries, Nodes.byField("order"));
+        List<Item> items = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : entries)
+        {
+            String value = Nodes.string(Nodes.child(entry.getValue(), "value"));
+            Boolean checked = Nodes.bool(Nodes.child(entry.getValue(), "isChecked"));
+            // Only items with a value and a checkbox state are shown
+            if (value != null && !value.isEmpty() && checked != null)
+            {
+                items.add(new Item(entry.getKey(), value, checked));
+            }
+        }
+        return items;
+    }
+
+    // Converts shared lists (or their index entries) read in ascending order of saves to a list ordered from the most saved
+    private static List<SharedList> toSharedListsBySaves(Map<String, Object> lists)
+    {
+        List<SharedList> sharedLists = new ArrayList<>();
+        for (Map.Entry<String, Object> list : lists.entrySet())
+        {
+            String name = Nodes.string(Nodes.child(list.getValue(), "Name"));
+            // Skip entries without a name, such as a list deleted meanwhile
+            if (name == null)
+            {
+                continue;
+            }
+            List<String> categories = new ArrayList<>();
+            for (Object category : Nodes.children(Nodes.child(list.getValue(), "Categories")).values())
+            {
+                categories.add(String.valueOf(category));
+            }
+            sharedLists.add(new SharedList(list.getKey(), name, categories, saveCountOf(list.getValue())));
+        }
+        Collections.reverse(sharedLists);
+        return sharedLists;
+    }
+
+    // Returns the number of users who saved a shared list, read from its "saveCount" field
+    private static int saveCountOf(Object sharedList)
+    {
+        Long saveCount = Nodes.number(Nodes.child(sharedList, "saveCount"));
+        return saveCount != null ? saveCount.intValue() : 0;
+    }
+}
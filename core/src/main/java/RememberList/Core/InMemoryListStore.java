@@ -0,0 +1,23 @@
+package RememberList.Core;
+
+/**
+ * The app's data operations over a MemoryTree: the same DatabaseListStore the app runs over Firebase,
+ * so the tests and benchmarks make the app's paths, updates and round trips. Several stores can share
+ * one tree, each for a different user, like devices sharing the database; the tree makes them safe to
+ * use from any number of threads. Callbacks are called before the operation returns, on the calling thread.
+ */
+public class InMemoryListStore extends DatabaseListStore
+{
+    public InMemoryListStore(MemoryTree tree, String user)
+    {
+        this(new MemoryDatabase(tree), user);
+    }
+
+    /**
+     * @param database The database over the tree, such as one that counts the round trips.
+     */
+    public InMemoryListStore(Database database, String user)
+    {
+        super(database, user, new MetricsRegistry());
+    }
+}
@@ -0,0 +1,39 @@
+package RememberList.Core;
+
+/**
+ * An item of a user list.
+ */
+public class Item
+{
+    private final String id; // The stable key of the item in the database
+    private final String value;
+    private final boolean checked;
+
+    public Item(String id, String value, boolean checked)
+    {
+        this.id = id;
+        this.value = value;
+        this.checked = checked;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public boolean isChecked()
+    {
+        return checked;
+    }
+
+    @Override
+    public String toString()
+    {
+        return value + (checked ? " ✓" : "");
+    }
+}
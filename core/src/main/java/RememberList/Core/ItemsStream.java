@@ -0,0 +1,211 @@
+package RememberList.Core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streams the changes to the items of a user list, wherever the items are stored.
+ * A default list points at a shared template under "templates/{listId}" until the user first edits it,
+ * so its items are streamed from the template until then and from the user's own copy afterwards.
+ * When the source switches, items that are already shown are reported as changed and items missing
+ * from the new source as removed, so the shown list is never reloaded.
+ * The listener is called on the thread the database calls back on.
+ */
+public class ItemsStream
+{
+    /**
+     * Receives the changes to the items, in the order they happen.
+     * The previous ID is the ID of the item right before it, or null if it is first.
+     */
+    public interface Listener
+    {
+        void onAdded(Item item, String previousId);
+
+        void onChanged(Item item, String previousId);
+
+        void onMoved(Item item, String previousId);
+
+        void onRemoved(String itemId);
+
+        // Called once every item that existed when the source was opened was reported
+        void onLoaded();
+
+        void onError(String message);
+    }
+
+    private final Database database;
+    private final String pointerPath; // "templates/{listId}" of the user
+    private final String userValuesPath; // "values/{listId}" of the user
+    private final Listener listener;
+
+    private final Set<String> shown = new HashSet<>(); // The IDs of the items reported so far
+    private final Set<String> unconfirmed = new HashSet<>(); // Shown items the new source did not report yet
+    private Database.Registration pointerRegistration;
+    private Database.Registration source;
+    private String sourceTemplate; // The template streamed from, or null for the user's own copy
+
+    ItemsStream(Database database, String userPath, String listId, Listener listener)
+    {
+        this.database = database;
+        this.pointerPath = userPath + "/templates/" + listId;
+        this.userValuesPath = userPath + "/values/" + listId;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts streaming, beginning with every existing item as an addition.
+     */
+    void start()
+    {
+        pointerRegistration = database.listen(pointerPath, new Database.ValueListener()
+        {
+            @Override
+            public void onValue(Object value)
+            {
+                String templateId = Nodes.string(value);
+                if (source == null || !same(templateId, sourceTemplate))
+                {
+                    switchTo(templateId);
+                }
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onError("Failed to fetch values: " + message);
+            }
+        });
+    }
+
+    /**
+     * Stops streaming, for example when the list is closed.
+     */
+    public void stop()
+    {
+        pointerRegistration.remove();
+        if (source != null)
+        {
+            source.remove();
+            source = null;
+        }
+    }
+
+    // Streams from the given template, or from the user's own copy if it is null
+    private void switchTo(String templateId)
+    {
+        if (source != null)
+        {
+            source.remove();
+        }
+        sourceTemplate = templateId;
+        String path = templateId == null ? userValuesPath : "Templates/" + templateId + "/values";
+        unconfirmed.addAll(shown);
+        Database.Registration current = database.listenToChildren(path, "order", new Database.ChildListener()
+        {
+            @Override
+            public void onChildAdded(String key, Object value, String previousKey)
+            {
+                Item item = toItem(key, value);
+                if (item != null)
+                {
+                    unconfirmed.remove(key);
+                    // An item already shown from the previous source may have been edited in the copy
+                    if (shown.add(key))
+                    {
+                        listener.onAdded(item, previousKey);
+                    }
+                    else
+                    {
+                        listener.onChanged(item, previousKey);
+                    }
+                }
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value, String previousKey)
+            {
+                Item item = toItem(key, value);
+                if (item != null)
+                {
+                    shown.add(key);
+                    listener.onChanged(item, previousKey);
+                }
+                else
+                {
+                    // An item whose value was cleared is no longer shown
+                    onChildRemoved(key);
+                }
+            }
+
+            @Override
+            public void onChildMoved(String key, Object value, String previousKey)
+            {
+                Item item = toItem(key, value);
+                if (item != null)
+                {
+                    listener.onMoved(item, previousKey);
+                }
+            }
+
+            @Override
+            public void onChildRemoved(String key)
+            {
+                remove(key);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onError("Failed to fetch values: " + message);
+            }
+        });
+        source = current;
+        // Value events are raised after the child events of the same data, so this marks the end of the existing items
+        database.read(path, new ListStore.Callback<Object>()
+        {
+            @Override
+            public void onResult(Object values)
+            {
+                if (current == source)
+                {
+                    // Items of the previous source that the new one does not have were deleted
+                    for (String id : new HashSet<>(unconfirmed))
+                    {
+                        remove(id);
+                    }
+                }
+                listener.onLoaded();
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onError("Failed to fetch values: " + message);
+            }
+        });
+    }
+
+    private void remove(String id)
+    {
+        shown.remove(id);
+        unconfirmed.remove(id);
+        listener.onRemoved(id);
+    }
+
+    private static boolean same(String a, String b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Converts an item of a list to an Item, or returns null for an empty item
+    private static Item toItem(String key, Object value)
+    {
+        String text = Nodes.string(Nodes.child(value, "value"));
+        Boolean checked = Nodes.bool(Nodes.child(value, "isChecked"));
+        if (text == null || text.isEmpty() || checked == null)
+        {
+            return null;
+        }
+        return new Item(key, text, checked);
+    }
+}
@@ -0,0 +1,91 @@
+package RememberList.Core;
+
+import java.util.Random;
+
+/**
+ * Database keys: new keys in the format of the Realtime Database's push IDs, and names made safe to use as keys.
+ * Thread-safe.
+ */
+public final class Keys
+{
+    // The characters of a push ID, in ASCII order so that keys compare like their timestamps
+    private static final String PUSH_CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private static final Random random = new Random();
+    private static long lastTime = 0;
+    private static final int[] lastRandom = new int[12];
+
+    private Keys()
+    {
+    }
+
+    /**
+     * Returns a new key, unique and later in order than every key returned before: 8 characters of
+     * timestamp followed by 12 random characters. Keys created in the same millisecond increment the
+     * random part, so they still sort in creation order.
+     */
+    public static synchronized String push()
+    {
+        long now = System.currentTimeMillis();
+        boolean sameTime = now <= lastTime;
+        if (sameTime)
+        {
+            now = lastTime; // The clock may go back; keys still sort in creation order
+        }
+        lastTime = now;
+        char[] key = new char[20];
+        for (int i = 7; i >= 0; i--)
+        {
+            key[i] = PUSH_CHARS.charAt((int) (now % 64));
+            now /= 64;
+        }
+        if (!sameTime)
+        {
+            for (int i = 0; i < 12; i++)
+            {
+                lastRandom[i] = random.nextInt(64);
+            }
+        }
+        else
+        {
+            // Increment the random part as one number in base 64
+            int i = 11;
+            while (i >= 0 && lastRandom[i] == 63)
+            {
+                lastRandom[i] = 0;
+                i--;
+            }
+            if (i >= 0)
+            {
+                lastRandom[i]++;
+            }
+        }
+        for (int i = 0; i < 12; i++)
+        {
+            key[8 + i] = PUSH_CHARS.charAt(lastRandom[i]);
+        }
+        return new String(key);
+    }
+
+    /**
+     * Encodes a name so it can be used as a database key.
+     * The characters that keys cannot contain, and '%' itself, are written as %XX.
+     */
+    public static String encode(String name)
+    {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (c == '.' || c == '#' || c == '$' || c == '[' || c == ']' || c == '/' || c == '%')
+            {
+                key.append('%').append(String.format("%02X", (int) c));
+            }
+            else
+            {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+}
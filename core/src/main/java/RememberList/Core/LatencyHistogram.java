@@ -0,0 +1,136 @@
+package RememberList.Core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram in the style of HdrHistogram. Values are counted in buckets whose width grows
+ * with the value, 16 buckets per power of two, so a value is known to within 1/16 (6.25%) while the
+ * whole range up to about 38 hours fits in 544 counters.
+ * Recording is lock-free and safe from any number of threads. Reads made while values are recorded
+ * may miss the values being recorded, which is fine for diagnostics.
+ * Values are in microseconds.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // The highest power of two tracked; larger values are counted in the last bucket
+    private static final int MAX_MAGNITUDE = 36;
+    static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a value; negative values count as 0.
+     */
+    public void record(long value)
+    {
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        counts.incrementAndGet(indexOf(clamped));
+        count.incrementAndGet();
+        sum.addAndGet(clamped);
+        long current = max.get();
+        while (clamped > current && !max.compareAndSet(current, clamped))
+        {
+            current = max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double) sum.get() / recorded;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the values fall, rounded up to the
+     * top of its bucket (and never above the largest value), or 0 if nothing was recorded.
+     *
+     * @param percentile From 0 to 100.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            total += counts.get(i);
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+            {
+                return Math.min(highestEquivalent(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Returns the number of values counted in a bucket
+    long getCountAt(int index)
+    {
+        return counts.get(index);
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    // Returns the bucket of a value: one per value below 16, then 16 per power of two
+    static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Returns the smallest value counted in a bucket
+    static long lowestEquivalent(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    // Returns the largest value counted in a bucket
+    static long highestEquivalent(int index)
+    {
+        long width = index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+        return lowestEquivalent(index) + width - 1;
+    }
+}
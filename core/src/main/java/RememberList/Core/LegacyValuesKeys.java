@@ -0,0 +1,89 @@
+package RememberList.Core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds where older versions of the app stored the values of each list, so a migration can move them
+ * under the list's own key. Those versions stored them under "values/{listName}{listKey}", with no
+ * separator, so the key of one list can be the key of another list, or its own key:
+ * the list "a1" at key "1" and the list "a" at key "11" both used "a11", and the list "1" at key "1"
+ * used "11", the key of the list at "11". Such keys are resolved here instead of being written over.
+ */
+public final class LegacyValuesKeys
+{
+    private LegacyValuesKeys()
+    {
+    }
+
+    // Returns the key older versions of the app stored a list's values under
+    public static String of(String listName, String listKey)
+    {
+        return listName + listKey;
+    }
+
+    /**
+     * Returns the key each list's values are read from.
+     * A list reads its legacy key if it exists. Lists that shared one legacy key each get it, because
+     * the older versions showed the same values in all of them. A list without a legacy key reads its
+     * own key, unless that key is the legacy key of another list, in which case it has no values.
+     *
+     * @param listNames The key of every list mapped to its name.
+     * @param valueKeys The keys that exist under "values".
+     * @return The key of every list mapped to the key to read its values from, or to null if it has none.
+     */
+    public static Map<String, String> sources(Map<String, String> listNames, Set<String> valueKeys)
+    {
+        Map<String, String> legacyKeys = new HashMap<>();
+        Set<String> claimed = new HashSet<>();
+        for (Map.Entry<String, String> list : listNames.entrySet())
+        {
+            if (list.getValue() == null)
+            {
+                continue;
+            }
+            String legacyKey = of(list.getValue(), list.getKey());
+            if (!legacyKey.equals(list.getKey()) && valueKeys.contains(legacyKey))
+            {
+                legacyKeys.put(list.getKey(), legacyKey);
+                claimed.add(legacyKey);
+            }
+        }
+        Map<String, String> sources = new HashMap<>();
+        for (String listKey : listNames.keySet())
+        {
+            String legacyKey = legacyKeys.get(listKey);
+            if (legacyKey != null)
+            {
+                sources.put(listKey, legacyKey);
+            }
+            else
+            {
+                sources.put(listKey, claimed.contains(listKey) ? null : listKey);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the legacy keys to remove once their values were moved: every source that is not also
+     * the own key of a list, which the migration writes instead.
+     *
+     * @param sources The result of {@link #sources}.
+     */
+    public static Set<String> removals(Map<String, String> sources)
+    {
+        Set<String> removals = new HashSet<>();
+        for (Map.Entry<String, String> source : sources.entrySet())
+        {
+            String key = source.getValue();
+            if (key != null && !key.equals(source.getKey()) && !sources.containsKey(key))
+            {
+                removals.add(key);
+            }
+        }
+        return removals;
+    }
+}
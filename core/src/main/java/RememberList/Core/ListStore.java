@@ -0,0 +1,133 @@
+package RememberList.Core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data operations of the app: the user's lists and their items, the user's categories,
+ * and the shared lists. Every operation reports its outcome to a callback, exactly once.
+ * The layout of the stored data is the same for every implementation:
+ * "UsersDatabase/{user}/lists", "values" and "Categories" for the user, and
+ * "SharedLists/lists", "values", "names", "byCategory" and "savers" for the shared lists.
+ */
+public interface ListStore
+{
+    /**
+     * Receives the outcome of an operation.
+     */
+    interface Callback<T>
+    {
+        void onResult(T result);
+
+        void onError(String message);
+    }
+
+    // region User Lists
+
+    /**
+     * Gets the user's lists, in the order they were created.
+     *
+     * @param callback Receives the list IDs mapped to the list names.
+     */
+    void getUserLists(Callback<Map<String, String>> callback);
+
+    /**
+     * Adds a list with its items.
+     *
+     * @param callback Receives the permanent ID of the new list.
+     */
+    void addList(String name, List<String> values, Callback<String> callback);
+
+    /**
+     * Deletes a list and its items.
+     */
+    void deleteList(String listId, Callback<Void> callback);
+
+    // endregion
+
+    // region Items
+
+    /**
+     * Gets the items of a list, in their order.
+     */
+    void getItems(String listId, Callback<List<Item>> callback);
+
+    /**
+     * Adds items after the existing items of a list.
+     */
+    void addItems(String listId, List<String> values, Callback<Void> callback);
+
+    /**
+     * Checks or unchecks an item.
+     */
+    void setChecked(String listId, String itemId, boolean checked, Callback<Void> callback);
+
+    /**
+     * Deletes items from a list.
+     *
+     * @param itemIds The IDs of the items to delete.
+     */
+    void deleteItems(String listId, List<String> itemIds, Callback<Void> callback);
+
+    // endregion
+
+    // region Categories
+
+    /**
+     * Gets the user's categories, in the order they were added.
+     */
+    void getCategories(Callback<List<String>> callback);
+
+    void addCategory(String name, Callback<Void> callback);
+
+    /**
+     * Deletes the categories with the given names.
+     */
+    void deleteCategories(List<String> names, Callback<Void> callback);
+
+    // endregion
+
+    // region Shared Lists
+
+    /**
+     * Gets one page of the shared lists, the most saved first.
+     *
+     * @param after The last list of the previous page, or null to get the first page.
+     * @param limit The maximum number of lists in the page; a shorter page is the last one.
+     * @param fresh True to read the lists from the server instead of the local copy.
+     */
+    void getSharedListsPage(SharedList after, int limit, boolean fresh, Callback<List<SharedList>> callback);
+
+    /**
+     * Gets the items of a shared list, in their order.
+     */
+    void getSharedItems(String sharedListId, Callback<List<Item>> callback);
+
+    /**
+     * Shares a list with every user.
+     *
+     * @param callback Receives the permanent ID of the new shared list.
+     */
+    void addSharedList(String name, List<String> categories, List<String> values, Callback<String> callback);
+
+    /**
+     * Gets one page of the shared lists that belong to all of the given categories, the most saved first.
+     *
+     * @param after The last list of the previous page, or null to get the first page.
+     * @param limit The maximum number of lists in the page; a shorter page is the last one.
+     */
+    void getFilteredLists(List<String> categories, SharedList after, int limit, Callback<List<SharedList>> callback);
+
+    /**
+     * Records that the user saved a shared list. A user is counted once per list, however many times they save it.
+     * The list's categories are passed so that its entries in the category index are counted too.
+     */
+    void saveSharedList(SharedList sharedList, Callback<Void> callback);
+
+    /**
+     * Deletes shared lists with their items and index entries.
+     */
+    void deleteSharedLists(List<SharedList> sharedLists, Callback<Void> callback);
+
+    // endregion
+}
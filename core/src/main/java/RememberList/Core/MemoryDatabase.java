@@ -0,0 +1,273 @@
+package RememberList.Core;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A Database over a MemoryTree, with the rules of database.rules.json that the data operations rely on:
+ * a user is added to the savers of a shared list only once, so an update adding them again is rejected whole.
+ * Reads return the tree's copies and writes apply at once; every callback is called before the call returns,
+ * on the calling thread. Several stores can share one database, like devices sharing the server.
+ * Listeners are called for the updates made through this database, before the update's own callback.
+ */
+public class MemoryDatabase implements Database
+{
+    // The nodes that may only be created, never written over; "$" matches any key
+    private static final List<String[]> WRITE_ONCE = Collections.singletonList(new String[]{"SharedLists", "savers", "$", "$"});
+
+    private final MemoryTree tree;
+    private final List<Watch> watches = new CopyOnWriteArrayList<>();
+
+    public MemoryDatabase(MemoryTree tree)
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public void read(String path, ListStore.Callback<Object> callback)
+    {
+        callback.onResult(tree.get(path));
+    }
+
+    @Override
+    public void readFresh(String path, ListStore.Callback<Object> callback)
+    {
+        callback.onResult(tree.get(path));
+    }
+
+    @Override
+    public void readLast(String path, String field, Long beforeValue, String beforeKey, int limit, boolean fresh,
+                         ListStore.Callback<Map<String, Object>> callback)
+    {
+        Object node = tree.get(path);
+        List<Map.Entry<String, Object>> children = new ArrayList<>();
+        if (node instanceof Map)
+        {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) node).entrySet())
+            {
+                children.add(new AbstractMap.SimpleEntry<>((String) child.getKey(), (Object) child.getValue()));
+            }
+        }
+        Comparator<Map.Entry<String, Object>> order = Nodes.byField(field);
+        Collections.sort(children, order);
+        int end = children.size();
+        if (beforeKey != null)
+        {
+            Map.Entry<String, Object> before = new AbstractMap.SimpleEntry<>(beforeKey,
+                    (Object) Collections.<String, Object>singletonMap(field, beforeValue));
+            end = 0;
+            while (end < children.size() && order.compare(children.get(end), before) < 0)
+            {
+                end++;
+            }
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> child : children.subList(Math.max(0, end - limit), end))
+        {
+            page.put(child.getKey(), child.getValue());
+        }
+        callback.onResult(page);
+    }
+
+    @Override
+    public void update(String path, Map<String, Object> children, ListStore.Callback<Void> callback)
+    {
+        List<String> writeOnce = new ArrayList<>();
+        for (Map.Entry<String, Object> child : children.entrySet())
+        {
+            String childPath = path + "/" + child.getKey();
+            if (child.getValue() != null && isWriteOnce(childPath))
+            {
+                writeOnce.add(childPath);
+            }
+        }
+        if (tree.updateIfAbsent(path, children, writeOnce))
+        {
+            for (Watch watch : watches)
+            {
+                watch.refresh();
+            }
+            callback.onResult(null);
+        }
+        else
+        {
+            callback.onError("Permission denied");
+        }
+    }
+
+    @Override
+    public Registration listen(String path, ValueListener listener)
+    {
+        return watch(new Watch(path)
+        {
+            private Object last;
+
+            @Override
+            void changed(Object node, boolean first)
+            {
+                if (first || !equal(node, last))
+                {
+                    last = node;
+                    listener.onValue(node);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Registration listenToChildren(String path, String field, ChildListener listener)
+    {
+        return watch(new Watch(path)
+        {
+            private Map<String, Object> last = new LinkedHashMap<>();
+
+            @Override
+            void changed(Object node, boolean first)
+            {
+                List<Map.Entry<String, Object>> children = new ArrayList<>(Nodes.children(node).entrySet());
+                Collections.sort(children, Nodes.byField(field));
+                Map<String, Object> current = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> child : children)
+                {
+                    current.put(child.getKey(), child.getValue());
+                }
+                for (String key : last.keySet())
+                {
+                    if (!current.containsKey(key))
+                    {
+                        listener.onChildRemoved(key);
+                    }
+                }
+                String previousKey = null;
+                for (Map.Entry<String, Object> child : current.entrySet())
+                {
+                    String key = child.getKey();
+                    Object before = last.get(key);
+                    if (!last.containsKey(key))
+                    {
+                        listener.onChildAdded(key, child.getValue(), previousKey);
+                    }
+                    else if (!equal(before, child.getValue()))
+                    {
+                        listener.onChildChanged(key, child.getValue(), previousKey);
+                        // A child whose field changed may now sort elsewhere
+                        if (!equal(Nodes.child(before, field), Nodes.child(child.getValue(), field)))
+                        {
+                            listener.onChildMoved(key, child.getValue(), previousKey);
+                        }
+                    }
+                    previousKey = key;
+                }
+                last = current;
+            }
+        });
+    }
+
+    @Override
+    public String newKey()
+    {
+        return Keys.push();
+    }
+
+    @Override
+    public Object timestamp()
+    {
+        return MemoryTree.TIMESTAMP;
+    }
+
+    @Override
+    public Object increment(long delta)
+    {
+        return MemoryTree.increment(delta);
+    }
+
+    /**
+     * A listener on a node, told about the node's value whenever it may have changed.
+     */
+    private abstract class Watch implements Registration
+    {
+        private final String path;
+        private boolean started;
+        private volatile boolean removed;
+
+        Watch(String path)
+        {
+            this.path = path;
+        }
+
+        // Reads the node again and reports what changed since the last time
+        synchronized void refresh()
+        {
+            if (removed)
+            {
+                return; // Removed by a listener while the watches were being refreshed
+            }
+            changed(tree.get(path), !started);
+            started = true;
+        }
+
+        abstract void changed(Object node, boolean first);
+
+        @Override
+        public void remove()
+        {
+            removed = true;
+            watches.remove(this);
+        }
+    }
+
+    private Registration watch(Watch watch)
+    {
+        watches.add(watch);
+        watch.refresh();
+        return watch;
+    }
+
+    private static boolean equal(Object a, Object b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean isWriteOnce(String path)
+    {
+        List<String> keys = new ArrayList<>();
+        for (String key : path.split("/"))
+        {
+            if (!key.isEmpty())
+            {
+                keys.add(key);
+            }
+        }
+        for (String[] pattern : WRITE_ONCE)
+        {
+            if (matches(Arrays.asList(pattern), keys))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<String> pattern, List<String> keys)
+    {
+        if (pattern.size() != keys.size())
+        {
+            return false;
+        }
+        for (int i = 0; i < pattern.size(); i++)
+        {
+            if (!pattern.get(i).equals("$") && !pattern.get(i).equals(keys.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
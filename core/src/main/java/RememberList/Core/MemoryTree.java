@@ -0,0 +1,323 @@
+package RememberList.Core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A JSON tree held in memory, with the semantics of the Realtime Database that the data operations rely on:
+ * nodes are addressed by "/"-separated paths, writing null removes a node, empty nodes disappear,
+ * lists are stored as nodes keyed "0", "1", ..., whole numbers are stored as Long, a multi-path
+ * update is applied at once, and the server values {@link #TIMESTAMP} and {@link #increment} are
+ * resolved when they are written. Keys are ordered like the database orders them: keys that are
+ * integers first, by value, then the other keys as strings.
+ * Thread-safe: reads share a lock and writes hold it exclusively, so readers never see half an update.
+ * Reads return copies, so a returned node is never changed by later writes.
+ */
+public class MemoryTree
+{
+    // The database's key order: integer keys first, by value, then the rest by string order
+    static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Long aNumber = asIndex(a);
+        Long bNumber = asIndex(b);
+        if (aNumber != null && bNumber != null)
+        {
+            return aNumber.compareTo(bNumber);
+        }
+        if (aNumber != null || bNumber != null)
+        {
+            return aNumber != null ? -1 : 1;
+        }
+        return a.compareTo(b);
+    };
+
+    // The server values, in the form the database receives them
+    public static final Map<String, Object> TIMESTAMP = Collections.<String, Object>singletonMap(".sv", "timestamp");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Object> root = new TreeMap<>(KEY_ORDER);
+    private long lastWriteTime; // The time of the last write, guarded by the write lock
+
+    /**
+     * Returns a copy of the node at the path: a Map for a node with children, a String, Boolean, Long
+     * or Double for a leaf, or null if there is nothing there.
+     */
+    public Object get(String path)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return copy(find(split(path)));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the node at the path; null removes it.
+     */
+    public void set(String path, Object value)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            List<String> keys = split(path);
+            put(keys, normalize(resolve(value, find(keys), nextWriteTime())));
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces several nodes under the path at once, like updateChildren; a null value removes its node.
+     *
+     * @param path The node the relative paths start from.
+     * @param children Relative paths mapped to their new values.
+     */
+    public void update(String path, Map<String, Object> children)
+    {
+        updateIfAbsent(path, children, Collections.<String>emptyList());
+    }
+
+    /**
+     * Applies an update only if none of the given nodes exists, like a rule that lets a node be
+     * created only once: the database then rejects the whole update.
+     *
+     * @param path The node the relative paths start from.
+     * @param children Relative paths mapped to their new values.
+     * @param absent The paths (from the root) of the nodes that must not exist.
+     * @return True if the update was applied.
+     */
+    public boolean updateIfAbsent(String path, Map<String, Object> children, Collection<String> absent)
+    {
+        List<String> base = split(path);
+        lock.writeLock().lock();
+        try
+        {
+            for (String absentPath : absent)
+            {
+                if (find(split(absentPath)) != null)
+                {
+                    return false;
+                }
+            }
+            long now = nextWriteTime();
+            for (Map.Entry<String, Object> child : children.entrySet())
+            {
+                List<String> keys = new ArrayList<>(base);
+                keys.addAll(split(child.getKey()));
+                put(keys, normalize(resolve(child.getValue(), find(keys), now)));
+            }
+            return true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the server value that adds to the stored number, like ServerValue.increment;
+     * an empty or non-numeric node counts as 0.
+     */
+    public static Map<String, Object> increment(long delta)
+    {
+        return Collections.<String, Object>singletonMap(".sv", Collections.singletonMap("increment", delta));
+    }
+
+    // Returns the time a write is applied at: the clock's time, but always later than the previous write,
+    // so two writes in the same millisecond still stamp different versions
+    private long nextWriteTime()
+    {
+        lastWriteTime = Math.max(System.currentTimeMillis(), lastWriteTime + 1);
+        return lastWriteTime;
+    }
+
+    // Replaces the server values in a written value by what they stand for, given the node it replaces
+    private static Object resolve(Object value, Object current, long now)
+    {
+        if (!(value instanceof Map))
+        {
+            return value;
+        }
+        Map<?, ?> node = (Map<?, ?>) value;
+        Object serverValue = node.get(".sv");
+        if (serverValue != null && node.size() == 1)
+        {
+            if ("timestamp".equals(serverValue))
+            {
+                return now;
+            }
+            Object delta = serverValue instanceof Map ? ((Map<?, ?>) serverValue).get("increment") : null;
+            if (delta instanceof Number)
+            {
+                return (current instanceof Number ? ((Number) current).longValue() : 0) + ((Number) delta).longValue();
+            }
+        }
+        Map<Object, Object> resolved = new HashMap<>();
+        for (Map.Entry<?, ?> child : node.entrySet())
+        {
+            Object currentChild = current instanceof Map ? ((Map<?, ?>) current).get(String.valueOf(child.getKey())) : null;
+            resolved.put(child.getKey(), resolve(child.getValue(), currentChild, now));
+        }
+        return resolved;
+    }
+
+    private Object find(List<String> keys)
+    {
+        Object node = root;
+        for (String key : keys)
+        {
+            if (!(node instanceof Map))
+            {
+                return null;
+            }
+            node = ((Map<?, ?>) node).get(key);
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void put(List<String> keys, Object value)
+    {
+        if (keys.isEmpty())
+        {
+            root.clear();
+            if (value instanceof Map)
+            {
+                root.putAll((Map<String, Object>) value);
+            }
+            return;
+        }
+        // The nodes on the way down, so the ones left empty can be removed on the way back
+        List<TreeMap<String, Object>> parents = new ArrayList<>();
+        TreeMap<String, Object> node = root;
+        for (int i = 0; i < keys.size() - 1; i++)
+        {
+            parents.add(node);
+            Object child = node.get(keys.get(i));
+            if (!(child instanceof TreeMap))
+            {
+                if (value == null)
+                {
+                    return; // Nothing to remove
+                }
+                // A leaf on the path is replaced by a node, as the database does
+                child = new TreeMap<String, Object>(KEY_ORDER);
+                node.put(keys.get(i), child);
+            }
+            node = (TreeMap<String, Object>) child;
+        }
+        String last = keys.get(keys.size() - 1);
+        if (value == null)
+        {
+            node.remove(last);
+        }
+        else
+        {
+            node.put(last, value);
+        }
+        for (int i = parents.size() - 1; i >= 0 && node.isEmpty(); i--)
+        {
+            parents.get(i).remove(keys.get(i));
+            node = parents.get(i);
+        }
+    }
+
+    // Brings a written value to its stored form: maps and lists become nodes, whole numbers become Long
+    private static Object normalize(Object value)
+    {
+        if (value instanceof Map)
+        {
+            TreeMap<String, Object> node = new TreeMap<>(KEY_ORDER);
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet())
+            {
+                Object childValue = normalize(child.getValue());
+                if (childValue != null)
+                {
+                    node.put(String.valueOf(child.getKey()), childValue);
+                }
+            }
+            return node.isEmpty() ? null : node;
+        }
+        if (value instanceof List)
+        {
+            TreeMap<String, Object> node = new TreeMap<>(KEY_ORDER);
+            List<?> items = (List<?>) value;
+            for (int i = 0; i < items.size(); i++)
+            {
+                Object item = normalize(items.get(i));
+                if (item != null)
+                {
+                    node.put(String.valueOf(i), item);
+                }
+            }
+            return node.isEmpty() ? null : node;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String || value instanceof Boolean || value instanceof Long || value instanceof Double || value == null)
+        {
+            return value;
+        }
+        throw new IllegalArgumentException("Cannot store " + value.getClass().getName());
+    }
+
+    private static Object copy(Object node)
+    {
+        if (!(node instanceof Map))
+        {
+            return node;
+        }
+        TreeMap<String, Object> copy = new TreeMap<>(KEY_ORDER);
+        for (Map.Entry<?, ?> child : ((Map<?, ?>) node).entrySet())
+        {
+            copy.put((String) child.getKey(), copy(child.getValue()));
+        }
+        return copy;
+    }
+
+    private static List<String> split(String path)
+    {
+        List<String> keys = new ArrayList<>();
+        for (String key : path.split("/"))
+        {
+            if (!key.isEmpty())
+            {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    // Returns the key as a number if it is a 32-bit integer, as the database does, or null otherwise
+    private static Long asIndex(String key)
+    {
+        if (key.isEmpty() || key.length() > 11)
+        {
+            return null;
+        }
+        try
+        {
+            long number = Long.parseLong(key);
+            return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE && String.valueOf(number).equals(key) ? number : null;
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+}
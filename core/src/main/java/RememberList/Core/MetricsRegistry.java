@@ -0,0 +1,231 @@
+package RememberList.Core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the latency, payload size and outcome of every data operation, by operation name.
+ * An operation is timed from start until its Call succeeds or fails. Named counters count outcomes
+ * that are compared with each other, such as reads answered from the cache and from the server.
+ * Recording never blocks, so it can be done on the main thread and from the database's callbacks.
+ */
+public class MetricsRegistry
+{
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Starts timing a call of an operation.
+     *
+     * @param operation The name of the operation, such as "getValues".
+     * @return The call, to be completed once with succeed or fail.
+     */
+    public Call start(String operation)
+    {
+        return new Call(stats(operation), System.nanoTime());
+    }
+
+    // Returns the metrics of an operation, creating them on its first call
+    public OperationStats stats(String operation)
+    {
+        OperationStats stats = operations.get(operation);
+        if (stats == null)
+        {
+            OperationStats created = new OperationStats(operation);
+            stats = operations.putIfAbsent(operation, created);
+            if (stats == null)
+            {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    // Returns the metrics of every operation called so far, by name
+    public List<OperationStats> getOperations()
+    {
+        List<OperationStats> stats = new ArrayList<>(operations.values());
+        Collections.sort(stats, (a, b) -> a.getName().compareTo(b.getName()));
+        return stats;
+    }
+
+    /**
+     * Counts one occurrence of an outcome.
+     *
+     * @param counter The name of the outcome, such as "localReadOffline".
+     */
+    public void count(String counter)
+    {
+        AtomicLong count = counters.get(counter);
+        if (count == null)
+        {
+            AtomicLong created = new AtomicLong();
+            count = counters.putIfAbsent(counter, created);
+            if (count == null)
+            {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    // Returns how many times an outcome was counted
+    public long getCount(String counter)
+    {
+        AtomicLong count = counters.get(counter);
+        return count != null ? count.get() : 0;
+    }
+
+    // Returns every counter counted so far, by name
+    public Map<String, Long> getCounters()
+    {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> counter : counters.entrySet())
+        {
+            counts.put(counter.getKey(), counter.getValue().get());
+        }
+        return counts;
+    }
+
+    public void reset()
+    {
+        for (OperationStats stats : operations.values())
+        {
+            stats.reset();
+        }
+        for (AtomicLong count : counters.values())
+        {
+            count.set(0);
+        }
+    }
+
+    /**
+     * Returns every operation's metrics as JSON, for offline analysis. Latencies are in microseconds;
+     * "buckets" lists the non-empty buckets of the histogram as [lowest, highest, count]; "counters" maps
+     * each counter to its count.
+     *
+     * @param exportedAt The time of the export, in milliseconds since the epoch.
+     */
+    public String toJson(long exportedAt)
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"exportedAt\":").append(exportedAt).append(",\"operations\":[");
+        List<OperationStats> stats = getOperations();
+        for (int i = 0; i < stats.size(); i++)
+        {
+            OperationStats operation = stats.get(i);
+            LatencyHistogram latency = operation.getLatency();
+            if (i > 0)
+            {
+                json.append(',');
+            }
+            json.append("{\"name\":");
+            appendString(json, operation.getName());
+            json.append(",\"calls\":").append(operation.getCalls())
+                    .append(",\"errors\":").append(operation.getErrors())
+                    .append(",\"bytes\":").append(operation.getBytes())
+                    .append(",\"latencyMicros\":{\"count\":").append(latency.getCount())
+                    .append(",\"mean\":").append(Math.round(latency.getMean()));
+            for (double percentile : PERCENTILES)
+            {
+                json.append(",\"p").append((int) percentile).append("\":").append(latency.getValueAtPercentile(percentile));
+            }
+            json.append(",\"max\":").append(latency.getMax()).append(",\"buckets\":[");
+            boolean first = true;
+            for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++)
+            {
+                long count = latency.getCountAt(bucket);
+                if (count > 0)
+                {
+                    json.append(first ? "" : ",").append('[').append(LatencyHistogram.lowestEquivalent(bucket))
+                            .append(',').append(LatencyHistogram.highestEquivalent(bucket)).append(',').append(count).append(']');
+                    first = false;
+                }
+            }
+            json.append("]}}");
+        }
+        json.append("],\"counters\":{");
+        boolean firstCounter = true;
+        for (Map.Entry<String, Long> counter : getCounters().entrySet())
+        {
+            json.append(firstCounter ? "" : ",");
+            appendString(json, counter.getKey());
+            json.append(':').append(counter.getValue());
+            firstCounter = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendString(StringBuilder json, String value)
+    {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                json.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                json.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * One timed call of an operation. Only the first succeed or fail is counted, so a call can be
+     * failed from an error callback and later "succeeded" from a shared completion path.
+     */
+    public static final class Call
+    {
+        private final OperationStats stats;
+        private final long startNanos;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Call(OperationStats stats, long startNanos)
+        {
+            this.stats = stats;
+            this.startNanos = startNanos;
+        }
+
+        // Adds to the size of the data the call read or wrote
+        public void addBytes(long payloadBytes)
+        {
+            bytes.addAndGet(payloadBytes);
+        }
+
+        public void succeed()
+        {
+            finish(false);
+        }
+
+        public void fail()
+        {
+            finish(true);
+        }
+
+        private void finish(boolean failed)
+        {
+            if (done.compareAndSet(false, true))
+            {
+                stats.record((System.nanoTime() - startNanos) / 1000, bytes.get(), failed);
+            }
+        }
+    }
+}
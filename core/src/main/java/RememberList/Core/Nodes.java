@@ -0,0 +1,119 @@
+package RememberList.Core;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the plain values a Database returns, the way the Firebase SDK reads a snapshot:
+ * a missing child or a value of another type reads as null.
+ */
+final class Nodes
+{
+    private Nodes()
+    {
+    }
+
+    /**
+     * Returns the children of a node in the database's key order; a List is read as children keyed 0, 1, ...
+     * A leaf or nothing has no children.
+     */
+    static Map<String, Object> children(Object node)
+    {
+        Map<String, Object> children = new TreeMap<>(MemoryTree.KEY_ORDER);
+        if (node instanceof Map)
+        {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) node).entrySet())
+            {
+                if (child.getValue() != null)
+                {
+                    children.put(String.valueOf(child.getKey()), child.getValue());
+                }
+            }
+        }
+        else if (node instanceof List)
+        {
+            List<?> items = (List<?>) node;
+            for (int i = 0; i < items.size(); i++)
+            {
+                if (items.get(i) != null)
+                {
+                    children.put(String.valueOf(i), items.get(i));
+                }
+            }
+        }
+        return children;
+    }
+
+    // Returns a child of a node, or null if it has none
+    static Object child(Object node, String key)
+    {
+        if (node instanceof Map)
+        {
+            return ((Map<?, ?>) node).get(key);
+        }
+        return node instanceof List ? children(node).get(key) : null;
+    }
+
+    static String string(Object value)
+    {
+        return value instanceof String ? (String) value : null;
+    }
+
+    static Long number(Object value)
+    {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    static Boolean bool(Object value)
+    {
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
+
+    // The database's order of children by a field: children without it first, then booleans, numbers,
+    // strings and nodes, each by value; children with equal values are ordered by key
+    static Comparator<Map.Entry<String, Object>> byField(String field)
+    {
+        return (a, b) -> {
+            Object aValue = child(a.getValue(), field);
+            Object bValue = child(b.getValue(), field);
+            int byRank = Integer.compare(rank(aValue), rank(bValue));
+            if (byRank != 0)
+            {
+                return byRank;
+            }
+            int byValue = 0;
+            if (aValue instanceof Boolean)
+            {
+                byValue = Boolean.compare((Boolean) aValue, (Boolean) bValue);
+            }
+            else if (aValue instanceof Number)
+            {
+                byValue = Double.compare(((Number) aValue).doubleValue(), ((Number) bValue).doubleValue());
+            }
+            else if (aValue instanceof String)
+            {
+                byValue = ((String) aValue).compareTo((String) bValue);
+            }
+            return byValue != 0 ? byValue : MemoryTree.KEY_ORDER.compare(a.getKey(), b.getKey());
+        };
+    }
+
+    private static int rank(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        if (value instanceof Boolean)
+        {
+            return 1;
+        }
+        if (value instanceof Number)
+        {
+            return 2;
+        }
+        return value instanceof String ? 3 : 4;
+    }
+}
@@ -0,0 +1,73 @@
+package RememberList.Core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of one data operation: how many times it completed, how many of those failed,
+ * how long the calls took and how many bytes they moved.
+ */
+public class OperationStats
+{
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    OperationStats(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Counts a completed call.
+     *
+     * @param micros How long the call took, in microseconds.
+     * @param payloadBytes The size of the data the call read or wrote.
+     * @param failed True if the call failed.
+     */
+    public void record(long micros, long payloadBytes, boolean failed)
+    {
+        latency.record(micros);
+        calls.incrementAndGet();
+        bytes.addAndGet(payloadBytes);
+        if (failed)
+        {
+            errors.incrementAndGet();
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    // Returns the latencies of the calls, in microseconds, failed ones included
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    public long getCalls()
+    {
+        return calls.get();
+    }
+
+    public long getErrors()
+    {
+        return errors.get();
+    }
+
+    public long getBytes()
+    {
+        return bytes.get();
+    }
+
+    void reset()
+    {
+        latency.reset();
+        calls.set(0);
+        errors.set(0);
+        bytes.set(0);
+    }
+}
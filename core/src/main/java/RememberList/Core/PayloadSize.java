@@ -0,0 +1,55 @@
+package RememberList.Core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Estimates how many bytes a database value takes on the wire: the length of its compact JSON,
+ * in UTF-8. Values are the ones the database reads and writes: maps, lists, strings, numbers,
+ * booleans and null.
+ */
+public final class PayloadSize
+{
+    private PayloadSize()
+    {
+    }
+
+    public static long of(Object value)
+    {
+        if (value == null)
+        {
+            return 4;
+        }
+        if (value instanceof Map)
+        {
+            Map<?, ?> node = (Map<?, ?>) value;
+            long size = 2 + Math.max(0, node.size() - 1); // The braces and the commas
+            for (Map.Entry<?, ?> child : node.entrySet())
+            {
+                size += ofString(String.valueOf(child.getKey())) + 1 + of(child.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Iterable)
+        {
+            long size = 2;
+            int count = 0;
+            for (Object item : (Iterable<?>) value)
+            {
+                size += of(item);
+                count++;
+            }
+            return size + Math.max(0, count - 1);
+        }
+        if (value instanceof String)
+        {
+            return ofString((String) value);
+        }
+        return String.valueOf(value).length();
+    }
+
+    private static long ofString(String value)
+    {
+        return value.getBytes(StandardCharsets.UTF_8).length + 2;
+    }
+}
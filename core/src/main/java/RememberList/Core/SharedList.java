@@ -0,0 +1,49 @@
+package RememberList.Core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list shared with every user.
+ */
+public class SharedList
+{
+    private final String id; // The permanent key of the shared list in the database
+    private final String name;
+    private final List<String> categories;
+    private final int saves; // The number of users who saved the list
+
+    public SharedList(String id, String name, List<String> categories, int saves)
+    {
+        this.id = id;
+        this.name = name;
+        this.categories = Collections.unmodifiableList(categories);
+        this.saves = saves;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<String> getCategories()
+    {
+        return categories;
+    }
+
+    public int getSaves()
+    {
+        return saves;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " " + categories + ", " + saves + " saves";
+    }
+}
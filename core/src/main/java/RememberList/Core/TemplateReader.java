@@ -0,0 +1,100 @@
+package RememberList.Core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Streams the fields of a template file such as "lists.txt" or "values.txt".
+ * Fields are separated by ',' and records (one list each) by '#'.
+ * The text is decoded in small chunks as it is read, so memory stays bounded by the longest field
+ * no matter how large the file is. Empty fields and line breaks around fields are skipped.
+ * The reader is given by the caller: the app opens the files from its assets, decoded with CHARSET.
+ */
+public class TemplateReader implements Closeable
+{
+    // The encoding of the template files (Hebrew)
+    public static final Charset CHARSET = Charset.forName("windows-1255");
+
+    private static final char FIELD_SEPARATOR = ',';
+    private static final char RECORD_SEPARATOR = '#';
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Receives the fields of a template, in file order.
+     */
+    public interface Handler
+    {
+        /**
+         * @param record The index of the record (list) the field belongs to.
+         * @param field The index of the field within its record, counting only non-empty fields.
+         * @param value The text of the field.
+         */
+        void onField(int record, int field, String value);
+    }
+
+    private final Reader reader;
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private final StringBuilder token = new StringBuilder();
+
+    public TemplateReader(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the template to its end and passes every field to the handler.
+     *
+     * @param handler Receives the fields.
+     */
+    public void readAll(Handler handler) throws IOException
+    {
+        int record = 0;
+        int field = 0;
+        int read;
+        while ((read = reader.read(chunk, 0, CHUNK_SIZE)) != -1)
+        {
+            for (int i = 0; i < read; i++)
+            {
+                char c = chunk[i];
+                if (c == FIELD_SEPARATOR || c == RECORD_SEPARATOR)
+                {
+                    if (emit(handler, record, field))
+                    {
+                        field++;
+                    }
+                    if (c == RECORD_SEPARATOR)
+                    {
+                        record++;
+                        field = 0;
+                    }
+                }
+                else if (c != '\r' && c != '\n')
+                {
+                    token.append(c);
+                }
+            }
+        }
+        // The last field has no separator after it
+        emit(handler, record, field);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    // Passes the collected field to the handler unless it is empty; returns whether it was passed
+    private boolean emit(Handler handler, int record, int field)
+    {
+        boolean hasText = token.length() > 0;
+        if (hasText)
+        {
+            handler.onField(record, field, token.toString());
+            token.setLength(0);
+        }
+        return hasText;
+    }
+}
@@ -0,0 +1,76 @@
+package RememberList.Core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local copies of database nodes, each kept with the version stamp the node had when it was read.
+ * A copy is only returned for the same version, so a reader checks the small version stamp and
+ * fetches the node again only when it changed. A node without a version (written by an older client)
+ * is never cached. Thread-safe.
+ *
+ * @param <V> The type of the copies.
+ */
+public class VersionedCache<V>
+{
+    private final Map<String, Entry<V>> entries = new HashMap<>();
+
+    /**
+     * Returns the copy of a node if it was stored with the given version.
+     *
+     * @param key The node, normally its path under the user's node.
+     * @param version The node's current version, or null if it has none.
+     * @return The copy, or null if there is none for that version.
+     */
+    public synchronized V get(String key, Long version)
+    {
+        Entry<V> entry = entries.get(key);
+        if (version == null || entry == null || !version.equals(entry.version))
+        {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores the copy of a node, replacing the copy of any other version.
+     * The version must have been read before the node, so the copy is never older than its version.
+     *
+     * @param key The node.
+     * @param version The version read before the node, or null to only drop the previous copy.
+     * @param value The copy.
+     */
+    public synchronized void put(String key, Long version, V value)
+    {
+        if (version == null)
+        {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry<>(version, value));
+    }
+
+    // Drops the copy of a node, for example when the node is deleted
+    public synchronized void invalidate(String key)
+    {
+        entries.remove(key);
+    }
+
+    // Drops every copy, for example when the user signs out
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    private static final class Entry<V>
+    {
+        final Long version;
+        final V value;
+
+        Entry(Long version, V value)
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BufferedWritesTest
+{
+    private static final String USER = "user@example_com";
+
+    private MemoryTree tree;
+    private InMemoryListStore store;
+    private Map<String, Object> journal;
+    private BufferedWrites writes;
+    private String listId;
+    private String itemId;
+
+    // Fails the test on an error; the in-memory store calls back before returning
+    private static class Result<T> implements ListStore.Callback<T>
+    {
+        T value;
+
+        @Override
+        public void onResult(T result)
+        {
+            value = result;
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            fail(message);
+        }
+    }
+
+    // A journal held in a map, like the app's shared preferences
+    private static class MapJournal implements BufferedWrites.Journal
+    {
+        private final Map<String, Object> entries;
+
+        MapJournal(Map<String, Object> entries)
+        {
+            this.entries = entries;
+        }
+
+        @Override
+        public void put(String path, boolean value)
+        {
+            entries.put(path, value);
+        }
+
+        @Override
+        public void remove(List<String> paths)
+        {
+            entries.keySet().removeAll(paths);
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        tree = new MemoryTree();
+        store = new InMemoryListStore(tree, USER);
+        journal = new HashMap<>();
+        writes = new BufferedWrites(new MemoryDatabase(tree), new MapJournal(journal), journal);
+        Result<String> id = new Result<>();
+        store.addList("קניות", Arrays.asList("חלב", "לחם"), id);
+        listId = id.value;
+        Result<List<Item>> items = new Result<>();
+        store.getItems(listId, items);
+        itemId = items.value.get(0).getId();
+    }
+
+    @Test
+    public void writesToThePathAreCoalescedAndSentTogether()
+    {
+        writes.put(store.checkedPath(listId, itemId), true);
+        writes.put(store.checkedPath(listId, itemId), false);
+        writes.put(store.checkedPath(listId, itemId), true);
+        assertEquals(Boolean.FALSE, tree.get(store.checkedPath(listId, itemId)));
+        writes.flush(new Result<>());
+        assertEquals(Boolean.TRUE, tree.get(store.checkedPath(listId, itemId)));
+        assertTrue(journal.isEmpty());
+    }
+
+    /**
+     * An item checked and then deleted before the buffer is sent stays deleted.
+     */
+    @Test
+    public void aDeletedItemIsNotBroughtBackByItsCheckedState()
+    {
+        writes.put(store.checkedPath(listId, itemId), true);
+        writes.drop(store.valuesPath(listId) + "/" + itemId);
+        store.deleteItems(listId, Collections.singletonList(itemId), new Result<>());
+        writes.flush(new Result<>());
+        assertNull(tree.get(store.valuesPath(listId) + "/" + itemId));
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void aDeletedListIsNotBroughtBackByItsCheckedStates()
+    {
+        writes.put(store.checkedPath(listId, itemId), true);
+        writes.drop(store.valuesPath(listId));
+        store.deleteList(listId, new Result<>());
+        writes.flush(new Result<>());
+        assertNull(tree.get(store.valuesPath(listId)));
+    }
+
+    /**
+     * Writes dropped before the process died are not sent again by the next process.
+     */
+    @Test
+    public void droppedWritesAreNotReplayedFromTheJournal()
+    {
+        writes.put(store.checkedPath(listId, itemId), true);
+        writes.drop(store.valuesPath(listId) + "/" + itemId);
+        store.deleteItems(listId, Collections.singletonList(itemId), new Result<>());
+        BufferedWrites restarted = new BufferedWrites(new MemoryDatabase(tree), new MapJournal(journal), journal);
+        assertTrue(restarted.isEmpty());
+        restarted.flush(new Result<>());
+        assertNull(tree.get(store.valuesPath(listId) + "/" + itemId));
+    }
+
+    @Test
+    public void dropLeavesOtherItemsBuffered()
+    {
+        String otherItemId = secondItemId();
+        writes.put(store.checkedPath(listId, itemId), true);
+        writes.put(store.checkedPath(listId, otherItemId), true);
+        // A key that only starts with the dropped key is another item
+        writes.drop(store.valuesPath(listId) + "/" + itemId.substring(0, itemId.length() - 1));
+        writes.drop(store.valuesPath(listId) + "/" + itemId);
+        writes.flush(new Result<>());
+        assertEquals(Boolean.FALSE, tree.get(store.checkedPath(listId, itemId)));
+        assertEquals(Boolean.TRUE, tree.get(store.checkedPath(listId, otherItemId)));
+    }
+
+    private String secondItemId()
+    {
+        Result<List<Item>> items = new Result<>();
+        store.getItems(listId, items);
+        return items.value.get(1).getId();
+    }
+}
@@ -0,0 +1,184 @@
+package RememberList.Core;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Database that counts the round trips made through it and the bytes they carry, as the
+ * Realtime Database would bill them: every read (of a node or of ordered children) is a read,
+ * every listener attached is a listen, and every update is a write. Sizes are those of the JSON
+ * sent or received (PayloadSize), including every value and child a listener receives.
+ */
+class CountingDatabase implements Database
+{
+    private final Database database;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong listens = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    CountingDatabase(Database database)
+    {
+        this.database = database;
+    }
+
+    @Override
+    public void read(String path, ListStore.Callback<Object> callback)
+    {
+        reads.incrementAndGet();
+        database.read(path, counted(callback));
+    }
+
+    @Override
+    public void readFresh(String path, ListStore.Callback<Object> callback)
+    {
+        reads.incrementAndGet();
+        database.readFresh(path, counted(callback));
+    }
+
+    @Override
+    public void readLast(String path, String field, Long beforeValue, String beforeKey, int limit, boolean fresh,
+                         ListStore.Callback<Map<String, Object>> callback)
+    {
+        reads.incrementAndGet();
+        database.readLast(path, field, beforeValue, beforeKey, limit, fresh, counted(callback));
+    }
+
+    @Override
+    public Registration listen(String path, ValueListener listener)
+    {
+        listens.incrementAndGet();
+        return database.listen(path, new ValueListener()
+        {
+            @Override
+            public void onValue(Object value)
+            {
+                bytesRead.addAndGet(PayloadSize.of(value));
+                listener.onValue(value);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public Registration listenToChildren(String path, String field, ChildListener listener)
+    {
+        listens.incrementAndGet();
+        return database.listenToChildren(path, field, new ChildListener()
+        {
+            @Override
+            public void onChildAdded(String key, Object value, String previousKey)
+            {
+                bytesRead.addAndGet(PayloadSize.of(value));
+                listener.onChildAdded(key, value, previousKey);
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value, String previousKey)
+            {
+                bytesRead.addAndGet(PayloadSize.of(value));
+                listener.onChildChanged(key, value, previousKey);
+            }
+
+            @Override
+            public void onChildMoved(String key, Object value, String previousKey)
+            {
+                listener.onChildMoved(key, value, previousKey);
+            }
+
+            @Override
+            public void onChildRemoved(String key)
+            {
+                listener.onChildRemoved(key);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                listener.onError(message);
+            }
+        });
+    }
+
+    @Override
+    public void update(String path, Map<String, Object> children, ListStore.Callback<Void> callback)
+    {
+        writes.incrementAndGet();
+        bytesWritten.addAndGet(PayloadSize.of(children));
+        database.update(path, children, callback);
+    }
+
+    @Override
+    public String newKey()
+    {
+        return database.newKey();
+    }
+
+    @Override
+    public Object timestamp()
+    {
+        return database.timestamp();
+    }
+
+    @Override
+    public Object increment(long delta)
+    {
+        return database.increment(delta);
+    }
+
+    long getReads()
+    {
+        return reads.get();
+    }
+
+    long getListens()
+    {
+        return listens.get();
+    }
+
+    long getWrites()
+    {
+        return writes.get();
+    }
+
+    long getBytes()
+    {
+        return bytesRead.get() + bytesWritten.get();
+    }
+
+    // Starts counting a new flow
+    void reset()
+    {
+        reads.set(0);
+        listens.set(0);
+        writes.set(0);
+        bytesRead.set(0);
+        bytesWritten.set(0);
+    }
+
+    // Counts the size of the data a read returns
+    private <T> ListStore.Callback<T> counted(ListStore.Callback<T> callback)
+    {
+        return new ListStore.Callback<T>()
+        {
+            @Override
+            public void onResult(T result)
+            {
+                bytesRead.addAndGet(PayloadSize.of(result));
+                callback.onResult(result);
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                callback.onError(message);
+            }
+        };
+    }
+}
@@ -0,0 +1,530 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class InMemoryListStoreTest
+{
+    private MemoryTree tree;
+    private InMemoryListStore store;
+
+    // Captures the outcome of a call; the in-memory store calls back before returning
+    private static class Result<T> implements ListStore.Callback<T>
+    {
+        T value;
+        String error;
+        int calls;
+
+        @Override
+        public void onResult(T result)
+        {
+            value = result;
+            calls++;
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            error = message;
+            calls++;
+        }
+
+        T get()
+        {
+            assertEquals("callbacks", 1, calls);
+            assertNull(error);
+            return value;
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        tree = new MemoryTree();
+        store = new InMemoryListStore(tree, "user@example_com");
+    }
+
+    @Test
+    public void addListKeepsItemOrder()
+    {
+        String listId = addList("קניות", "חלב", "לחם", "ביצים");
+        Result<Map<String, String>> lists = new Result<>();
+        store.getUserLists(lists);
+        assertEquals("קניות", lists.get().get(listId));
+        assertEquals(Arrays.asList("חלב", "לחם", "ביצים"), values(listId));
+    }
+
+    @Test
+    public void addedItemsFollowExistingItems()
+    {
+        String listId = addList("קניות", "חלב");
+        store.addItems(listId, Arrays.asList("לחם", "ביצים"), new Result<>());
+        assertEquals(Arrays.asList("חלב", "לחם", "ביצים"), values(listId));
+    }
+
+    @Test
+    public void checkAndDeleteItems()
+    {
+        String listId = addList("קניות", "חלב", "לחם");
+        List<Item> items = items(listId);
+        store.setChecked(listId, items.get(1).getId(), true, new Result<>());
+        assertTrue(items(listId).get(1).isChecked());
+        store.deleteItems(listId, Collections.singletonList(items.get(0).getId()), new Result<>());
+        assertEquals(Collections.singletonList("לחם"), values(listId));
+    }
+
+    @Test
+    public void deleteListRemovesItsItems()
+    {
+        String listId = addList("קניות", "חלב");
+        store.deleteList(listId, new Result<>());
+        Result<Map<String, String>> lists = new Result<>();
+        store.getUserLists(lists);
+        assertTrue(lists.get().isEmpty());
+        assertNull(tree.get("UsersDatabase/user@example_com/values/" + listId));
+    }
+
+    @Test
+    public void deleteCategoriesByName()
+    {
+        store.addCategory("טיולים", new Result<>());
+        store.addCategory("מטבח", new Result<>());
+        store.addCategory("ניקיון", new Result<>());
+        store.deleteCategories(Arrays.asList("טיולים", "ניקיון"), new Result<>());
+        Result<List<String>> categories = new Result<>();
+        store.getCategories(categories);
+        assertEquals(Collections.singletonList("מטבח"), categories.get());
+    }
+
+    @Test
+    public void filterSharedListsByEveryCategory()
+    {
+        String both = addSharedList("קמפינג", Arrays.asList("טיולים", "קיץ"));
+        addSharedList("חורף", Collections.singletonList("טיולים"));
+        addSharedList("ים", Collections.singletonList("קיץ"));
+        Result<List<SharedList>> filtered = new Result<>();
+        store.getFilteredLists(Arrays.asList("טיולים", "קיץ"), null, 20, filtered);
+        assertEquals(1, filtered.get().size());
+        assertEquals(both, filtered.get().get(0).getId());
+    }
+
+    @Test
+    public void categoriesWithReservedCharactersAreIndexed()
+    {
+        String listId = addSharedList("חג", Collections.singletonList("פסח/סוכות 5.0"));
+        Result<List<SharedList>> filtered = new Result<>();
+        store.getFilteredLists(Collections.singletonList("פסח/סוכות 5.0"), null, 20, filtered);
+        assertEquals(listId, filtered.get().get(0).getId());
+    }
+
+    @Test
+    public void filteredListsArePagedBySavesFromTheIndexEntries()
+    {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            ids.add(addSharedList("רשימה " + i, Arrays.asList("טיולים", "קיץ")));
+        }
+        addSharedList("חורף", Collections.singletonList("טיולים"));
+        save(ids.get(3), "a", "b");
+        save(ids.get(1), "a");
+
+        Result<List<SharedList>> first = new Result<>();
+        store.getFilteredLists(Arrays.asList("טיולים", "קיץ"), null, 2, first);
+        assertEquals(Arrays.asList(ids.get(3), ids.get(1)), idsOf(first.get()));
+        // The entries are counted with the list, so a page shows the save counts without reading the lists
+        assertEquals(2, first.get().get(0).getSaves());
+        assertEquals("רשימה 3", first.get().get(0).getName());
+
+        Result<List<SharedList>> second = new Result<>();
+        store.getFilteredLists(Arrays.asList("טיולים", "קיץ"), first.get().get(1), 2, second);
+        Result<List<SharedList>> last = new Result<>();
+        store.getFilteredLists(Arrays.asList("טיולים", "קיץ"), second.get().get(1), 2, last);
+        // Lists saved the same number of times continue in key order, so no list is skipped or repeated
+        assertEquals(Arrays.asList(ids.get(4), ids.get(2)), idsOf(second.get()));
+        assertEquals(Collections.singletonList(ids.get(0)), idsOf(last.get()));
+    }
+
+    /**
+     * Search results are shown from the "names" index, so its entries hold the row of the list and are counted with it.
+     */
+    @Test
+    public void nameIndexEntriesHoldTheRowOfTheList()
+    {
+        String listId = addSharedList("קמפינג", Arrays.asList("טיולים", "קיץ"));
+        save(listId, "a", "b");
+        assertNameEntry(listId, "קמפינג", Arrays.asList("טיולים", "קיץ"), 2);
+
+        // Entries written before they held rows are rebuilt by the migration
+        tree.set("SharedLists/names/" + listId, "קמפינג");
+        tree.set("SharedLists/schemaVersion", 5L);
+        store.migrateSharedLists(new Result<>());
+        assertNameEntry(listId, "קמפינג", Arrays.asList("טיולים", "קיץ"), 2);
+    }
+
+    /**
+     * A migration interrupted before its write, or run by two devices at once, writes the same item IDs again.
+     */
+    @Test
+    public void migratingLegacyItemsTwiceGivesTheSameIds()
+    {
+        Map<String, Object> legacyUser = new HashMap<>();
+        legacyUser.put("lists/0", "קניות");
+        legacyUser.put("values/קניות0/0/value", "חלב");
+        legacyUser.put("values/קניות0/0/isChecked", false);
+        legacyUser.put("values/קניות0/1/value", "לחם");
+        legacyUser.put("values/קניות0/1/isChecked", true);
+        tree.update("UsersDatabase/user@example_com", legacyUser);
+        Object legacyNode = tree.get("UsersDatabase/user@example_com");
+        assertEquals(DataMigrator.migrateUser(legacyNode), DataMigrator.migrateUser(legacyNode));
+
+        store.checkUserData((seedData, templates, listIds) -> fail("The user has data"), new Result<>());
+        List<Item> items = items("0");
+        assertEquals(Arrays.asList(DataMigrator.legacyItemKey("0"), DataMigrator.legacyItemKey("1")),
+                Arrays.asList(items.get(0).getId(), items.get(1).getId()));
+        assertEquals(Arrays.asList("חלב", "לחם"), values("0"));
+        assertTrue(items.get(1).isChecked());
+    }
+
+    @Test
+    public void deleteSharedListsRemovesIndexEntries()
+    {
+        String listId = addSharedList("קמפינג", Collections.singletonList("טיולים"));
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, 100, false, lists);
+        store.deleteSharedLists(lists.get(), new Result<>());
+        assertNull(tree.get("SharedLists/names/" + listId));
+        assertNull(tree.get("SharedLists/byCategory"));
+        Result<List<SharedList>> remaining = new Result<>();
+        store.getSharedListsPage(null, 100, false, remaining);
+        assertTrue(remaining.get().isEmpty());
+    }
+
+    @Test
+    public void sharedListsAreSortedBySaves()
+    {
+        String once = addSharedList("אחת", Collections.singletonList("א"));
+        String twice = addSharedList("שתיים", Collections.singletonList("א"));
+        save(twice, "a", "b");
+        save(once, "a");
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, 100, false, lists);
+        assertEquals(twice, lists.get().get(0).getId());
+        assertEquals(2, lists.get().get(0).getSaves());
+    }
+
+    /**
+     * Two devices of the same user add items to the same list at once.
+     * Every item gets its own key, so none of the 1,000 adds overwrites another.
+     */
+    @Test
+    public void interleavedAddsFromTwoDevicesKeepEveryItem() throws Exception
+    {
+        String listId = addList("קניות");
+        ListStore[] devices = {store, new InMemoryListStore(tree, "user@example_com")};
+        int adds = 1000;
+        runConcurrently(adds, i -> devices[i % 2].addItems(listId, Collections.singletonList("item " + i), new Result<>()));
+        List<String> values = values(listId);
+        assertEquals(adds, values.size());
+        assertEquals(adds, new HashSet<>(values).size());
+    }
+
+    /**
+     * Many users save the same shared list at once, each of them several times.
+     * Each user is counted once, and no save is lost to another one.
+     */
+    @Test
+    public void concurrentSavesCountEachUserOnce() throws Exception
+    {
+        String listId = addSharedList("קמפינג", Collections.singletonList("טיולים"));
+        int users = 50;
+        int savesPerUser = 4;
+        SharedList sharedList = sharedList(listId);
+        runConcurrently(users * savesPerUser, i -> new InMemoryListStore(tree, "user" + (i % users)).saveSharedList(sharedList, new Result<>()));
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, 100, false, lists);
+        assertEquals(users, lists.get().get(0).getSaves());
+        assertEquals(users, ((Map<?, ?>) tree.get("SharedLists/savers/" + listId)).size());
+    }
+
+    @Test
+    public void readsAreNotChangedByLaterWrites()
+    {
+        String listId = addList("קניות", "חלב");
+        Object before = tree.get("UsersDatabase/user@example_com/values/" + listId);
+        store.addItems(listId, Collections.singletonList("לחם"), new Result<>());
+        assertEquals(1, ((Map<?, ?>) before).size());
+        assertFalse(before.equals(tree.get("UsersDatabase/user@example_com/values/" + listId)));
+    }
+
+    /**
+     * An edit of a list whose template copy is rejected reports the failure, and the next edit copies the list again.
+     */
+    @Test
+    public void aRejectedTemplateCopyFailsTheEditAndIsRetried()
+    {
+        Map<String, Object> item = new HashMap<>();
+        item.put("value", "חלב");
+        item.put("isChecked", false);
+        item.put("order", 0);
+        tree.set("Templates/t0/values/i0", item);
+        tree.set("UsersDatabase/user@example_com/lists/L", "קניות");
+        tree.set("UsersDatabase/user@example_com/templates/L", "t0");
+        RejectingDatabase database = new RejectingDatabase(tree);
+        store = new InMemoryListStore(database, "user@example_com");
+
+        database.rejecting = true;
+        Result<Void> rejected = new Result<>();
+        store.setChecked("L", "i0", true, rejected);
+        assertNotNull(rejected.error);
+        assertEquals("t0", tree.get("UsersDatabase/user@example_com/templates/L"));
+        assertNull(tree.get("UsersDatabase/user@example_com/values/L"));
+
+        database.rejecting = false;
+        Result<Void> applied = new Result<>();
+        store.setChecked("L", "i0", true, applied);
+        applied.get();
+        assertNull(tree.get("UsersDatabase/user@example_com/templates/L"));
+        assertTrue(items("L").get(0).isChecked());
+    }
+
+    /**
+     * A new user whose templates cannot be published is not seeded with lists pointing at nothing.
+     */
+    @Test
+    public void aRejectedTemplatePublishFailsTheSeed()
+    {
+        RejectingDatabase database = new RejectingDatabase(tree);
+        store = new InMemoryListStore(database, "user@example_com");
+        database.rejecting = true;
+        Result<Void> seeded = new Result<>();
+        store.checkUserData((seedData, templates, listIds) -> {
+            seedData.put("lists/L", "קניות");
+            seedData.put("templates/L", "t0");
+            templates.put("t0/values/i0/value", "חלב");
+            templates.put("version", "1");
+        }, seeded);
+        assertNotNull(seeded.error);
+        assertNull(tree.get("UsersDatabase/user@example_com"));
+    }
+
+    /**
+     * A default list is streamed from its template, and from its copy once it is first edited:
+     * the switch reports the edited item as changed, without adding or removing the others.
+     */
+    @Test
+    public void streamFollowsTheListFromItsTemplateToItsCopy()
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            Map<String, Object> item = new HashMap<>();
+            item.put("value", i == 0 ? "חלב" : "לחם");
+            item.put("isChecked", false);
+            item.put("order", i);
+            tree.set("Templates/t0/values/i" + i, item);
+        }
+        tree.set("UsersDatabase/user@example_com/lists/L", "קניות");
+        tree.set("UsersDatabase/user@example_com/templates/L", "t0");
+        store = new InMemoryListStore(tree, "user@example_com");
+        List<String> changes = new ArrayList<>();
+        ItemsStream stream = store.listenToItems("L", new ItemsStream.Listener()
+        {
+            @Override
+            public void onAdded(Item item, String previousId)
+            {
+                changes.add("added " + item.getId() + " after " + previousId);
+            }
+
+            @Override
+            public void onChanged(Item item, String previousId)
+            {
+                changes.add("changed " + item.getId() + (item.isChecked() ? " checked" : ""));
+            }
+
+            @Override
+            public void onMoved(Item item, String previousId)
+            {
+                changes.add("moved " + item.getId());
+            }
+
+            @Override
+            public void onRemoved(String itemId)
+            {
+                changes.add("removed " + itemId);
+            }
+
+            @Override
+            public void onLoaded()
+            {
+                changes.add("loaded");
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                changes.add("error " + message);
+            }
+        });
+        assertEquals(Arrays.asList("added i0 after null", "added i1 after i0", "loaded"), changes);
+
+        changes.clear();
+        store.setChecked("L", "i1", true, new Result<>());
+        assertTrue(changes.contains("changed i1 checked"));
+        assertFalse(changes.toString(), changes.toString().contains("added") || changes.toString().contains("removed"));
+
+        changes.clear();
+        store.deleteItems("L", Collections.singletonList("i0"), new Result<>());
+        assertEquals(Collections.singletonList("removed i0"), changes);
+
+        stream.stop();
+        store.addItems("L", Collections.singletonList("ביצים"), new Result<>());
+        assertEquals(Collections.singletonList("removed i0"), changes);
+    }
+
+    // A database that rejects every update while rejecting is set, as the server does when a rule denies it
+    private static class RejectingDatabase extends MemoryDatabase
+    {
+        boolean rejecting;
+
+        RejectingDatabase(MemoryTree tree)
+        {
+            super(tree);
+        }
+
+        @Override
+        public void update(String path, Map<String, Object> children, ListStore.Callback<Void> callback)
+        {
+            if (rejecting)
+            {
+                callback.onError("Permission denied");
+                return;
+            }
+            super.update(path, children, callback);
+        }
+    }
+
+    // One task of a concurrency test
+    private interface Task
+    {
+        void run(int i);
+    }
+
+    // Runs the tasks on several threads, started together so that they interleave
+    private static void runConcurrently(int count, Task task) throws Exception
+    {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < count; i++)
+        {
+            int index = i;
+            threads.execute(() -> {
+                try
+                {
+                    start.await();
+                    task.run(index);
+                }
+                catch (Throwable t)
+                {
+                    failures.add(t);
+                }
+            });
+        }
+        start.countDown();
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    private String addList(String name, String... values)
+    {
+        Result<String> listId = new Result<>();
+        store.addList(name, Arrays.asList(values), listId);
+        return listId.get();
+    }
+
+    private String addSharedList(String name, List<String> categories)
+    {
+        Result<String> listId = new Result<>();
+        store.addSharedList(name, categories, Arrays.asList("א", "ב"), listId);
+        return listId.get();
+    }
+
+    private SharedList sharedList(String listId)
+    {
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, 100, false, lists);
+        for (SharedList sharedList : lists.get())
+        {
+            if (sharedList.getId().equals(listId))
+            {
+                return sharedList;
+            }
+        }
+        throw new AssertionError("No shared list " + listId);
+    }
+
+    // Saves the shared list as each of the given users
+    private void save(String listId, String... users)
+    {
+        SharedList sharedList = sharedList(listId);
+        for (String user : users)
+        {
+            new InMemoryListStore(tree, user).saveSharedList(sharedList, new Result<>());
+        }
+    }
+
+    private void assertNameEntry(String listId, String name, List<String> categories, long saveCount)
+    {
+        Object entry = tree.get("SharedLists/names/" + listId);
+        assertEquals(name, Nodes.child(entry, "Name"));
+        assertEquals(categories, new ArrayList<>(Nodes.children(Nodes.child(entry, "Categories")).values()));
+        assertEquals(saveCount, Nodes.child(entry, "saveCount"));
+    }
+
+    private static List<String> idsOf(List<SharedList> lists)
+    {
+        List<String> ids = new ArrayList<>();
+        for (SharedList sharedList : lists)
+        {
+            ids.add(sharedList.getId());
+        }
+        return ids;
+    }
+
+    private List<Item> items(String listId)
+    {
+        Result<List<Item>> items = new Result<>();
+        store.getItems(listId, items);
+        return items.get();
+    }
+
+    private List<String> values(String listId)
+    {
+        List<String> values = new ArrayList<>();
+        for (Item item : items(listId))
+        {
+            values.add(item.getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,81 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class LegacyValuesKeysTest
+{
+    private static Map<String, String> lists(String... keysAndNames)
+    {
+        Map<String, String> lists = new HashMap<>();
+        for (int i = 0; i < keysAndNames.length; i += 2)
+        {
+            lists.put(keysAndNames[i], keysAndNames[i + 1]);
+        }
+        return lists;
+    }
+
+    private static Set<String> keys(String... keys)
+    {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+
+    @Test
+    public void movesEachListFromItsLegacyKey()
+    {
+        Map<String, String> sources = LegacyValuesKeys.sources(lists("0", "קניות", "1", "טיול"), keys("קניות0", "טיול1"));
+        assertEquals("קניות0", sources.get("0"));
+        assertEquals("טיול1", sources.get("1"));
+        assertEquals(keys("קניות0", "טיול1"), LegacyValuesKeys.removals(sources));
+    }
+
+    @Test
+    public void listsThatSharedALegacyKeyEachGetItsValues()
+    {
+        // "a1" + "1" and "a" + "11" are both "a11"; the older versions showed its values in both lists
+        Map<String, String> sources = LegacyValuesKeys.sources(lists("1", "a1", "11", "a"), keys("a11"));
+        assertEquals("a11", sources.get("1"));
+        assertEquals("a11", sources.get("11"));
+        assertEquals(Collections.singleton("a11"), LegacyValuesKeys.removals(sources));
+    }
+
+    @Test
+    public void aLegacyKeyThatIsTheKeyOfAnotherListIsNotRemoved()
+    {
+        // The list "1" at key "1" stored its values under "11", the key of the list "x"
+        Map<String, String> sources = LegacyValuesKeys.sources(lists("1", "1", "11", "x"), keys("11", "x11"));
+        assertEquals("11", sources.get("1"));
+        assertEquals("x11", sources.get("11"));
+        // "11" is written with the values of the list "x", so removing it would lose them
+        assertEquals(Collections.singleton("x11"), LegacyValuesKeys.removals(sources));
+    }
+
+    @Test
+    public void aListDoesNotReadTheLegacyValuesOfAnotherList()
+    {
+        // The list "x" at key "11" has no values; "11" holds the values of the list "1"
+        Map<String, String> sources = LegacyValuesKeys.sources(lists("1", "1", "11", "x"), keys("11"));
+        assertEquals("11", sources.get("1"));
+        assertNull(sources.get("11"));
+        assertTrue(sources.containsKey("11"));
+        assertTrue(LegacyValuesKeys.removals(sources).isEmpty());
+    }
+
+    @Test
+    public void migratedListsReadTheirOwnKey()
+    {
+        Map<String, String> sources = LegacyValuesKeys.sources(lists("-Nabc", "קניות"), keys("-Nabc"));
+        assertEquals("-Nabc", sources.get("-Nabc"));
+        assertTrue(LegacyValuesKeys.removals(sources).isEmpty());
+    }
+}
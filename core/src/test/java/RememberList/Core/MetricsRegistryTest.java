@@ -0,0 +1,153 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsRegistryTest
+{
+    @Test
+    public void bucketsCoverEveryValueWithinOneSixteenth()
+    {
+        for (long value = 0; value < 1L << 30; value = value * 3 / 2 + 1)
+        {
+            int index = LatencyHistogram.indexOf(value);
+            long lowest = LatencyHistogram.lowestEquivalent(index);
+            long highest = LatencyHistogram.highestEquivalent(index);
+            assertTrue(value + " in [" + lowest + ", " + highest + "]", lowest <= value && value <= highest);
+            assertTrue(value + " width " + (highest - lowest + 1), (highest - lowest + 1) * 16 <= Math.max(16, lowest));
+            assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketPrecision()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++)
+        {
+            // Log-normal, like network latencies: mostly tens of milliseconds, with a long tail
+            long value = (long) Math.exp(10 + random.nextGaussian());
+            values.add(value);
+            histogram.record(value);
+        }
+        Collections.sort(values);
+        for (double percentile : new double[]{50, 90, 99, 100})
+        {
+            long exact = values.get((int) Math.ceil(percentile / 100 * values.size()) - 1);
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + estimate + " vs " + exact, estimate >= exact && estimate <= exact + exact / 16 + 1);
+        }
+        assertEquals(values.get(values.size() - 1).longValue(), histogram.getMax());
+        assertEquals(10000, histogram.getCount());
+    }
+
+    @Test
+    public void callsAreCountedOnce()
+    {
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricsRegistry.Call failed = metrics.start("getValues");
+        failed.fail();
+        failed.succeed();
+        MetricsRegistry.Call read = metrics.start("getValues");
+        read.addBytes(100);
+        read.addBytes(20);
+        read.succeed();
+        OperationStats stats = metrics.stats("getValues");
+        assertEquals(2, stats.getCalls());
+        assertEquals(1, stats.getErrors());
+        assertEquals(120, stats.getBytes());
+        assertEquals(2, stats.getLatency().getCount());
+    }
+
+    @Test
+    public void countersCountEachOutcome()
+    {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.count("localRead");
+        metrics.count("localRead");
+        metrics.count("localReadOffline");
+        assertEquals(2, metrics.getCount("localRead"));
+        assertEquals(1, metrics.getCount("localReadOffline"));
+        assertEquals(0, metrics.getCount("freshRead"));
+        metrics.reset();
+        assertEquals(0, metrics.getCount("localRead"));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception
+    {
+        MetricsRegistry metrics = new MetricsRegistry();
+        int threads = 8;
+        int callsPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++)
+        {
+            int thread = t;
+            executor.execute(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (int i = 0; i < callsPerThread; i++)
+                {
+                    metrics.stats(i % 2 == 0 ? "addValues" : "deleteValues").record(thread * 1000 + i, 1, false);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * callsPerThread / 2, metrics.stats("addValues").getCalls());
+        assertEquals(threads * callsPerThread / 2, metrics.stats("deleteValues").getLatency().getCount());
+        assertEquals((threads - 1) * 1000 + callsPerThread - 1, metrics.stats("deleteValues").getLatency().getMax());
+    }
+
+    @Test
+    public void exportsJson()
+    {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.stats("getSharedLists").record(1500, 2048, false);
+        metrics.stats("addValues").record(3, 10, true);
+        metrics.count("localRead");
+        metrics.count("freshRead");
+        metrics.count("localRead");
+        assertEquals("{\"exportedAt\":7,\"operations\":["
+                        + "{\"name\":\"addValues\",\"calls\":1,\"errors\":1,\"bytes\":10,\"latencyMicros\":{\"count\":1,\"mean\":3,"
+                        + "\"p50\":3,\"p90\":3,\"p99\":3,\"max\":3,\"buckets\":[[3,3,1]]}},"
+                        + "{\"name\":\"getSharedLists\",\"calls\":1,\"errors\":0,\"bytes\":2048,\"latencyMicros\":{\"count\":1,\"mean\":1500,"
+                        + "\"p50\":1500,\"p90\":1500,\"p99\":1500,\"max\":1500,\"buckets\":[[1472,1535,1]]}}],"
+                        + "\"counters\":{\"freshRead\":1,\"localRead\":2}}",
+                metrics.toJson(7));
+    }
+
+    @Test
+    public void payloadSizeIsTheJsonLength()
+    {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("a", "חלב");
+        node.put("b", Arrays.asList(true, 12L));
+        assertEquals("{\"a\":\"חלב\",\"b\":[true,12]}".getBytes(StandardCharsets.UTF_8).length, PayloadSize.of(node));
+    }
+}
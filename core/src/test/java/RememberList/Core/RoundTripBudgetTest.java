@@ -0,0 +1,430 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Round-trip budgets of the user flows. Each flow makes the calls the app's Repository makes for its
+ * screen, on the DatabaseListStore the app runs, against a database holding a few users and shared lists.
+ * A flow fails when it reads, listens, writes or transfers more than its budget, so a flow that starts
+ * reading whole nodes, attaching more listeners or writing row by row breaks its budget.
+ * Raise a budget only together with the change that needs it.
+ */
+public class RoundTripBudgetTest
+{
+    private static final String USER = "user@example_com";
+    private static final int LISTS = 5;
+    private static final int ITEMS = 10;
+    private static final int SHARED_LISTS = 20;
+    private static final int PAGE_SIZE = 20; // The page size of the shared lists screen
+    private static final List<String> CATEGORIES = Arrays.asList("קניות", "טיולים", "קמפינג", "ים", "חורף");
+
+    // Budgets: listeners attached, reads, writes and bytes sent and received, for the fixture below
+    // Login: the user's schema version, the shared lists' schema version, the lists' version stamp and the lists
+    private static final Budget LOGIN = new Budget("login", 4, 0, 350);
+    // First login: also the empty user node and the templates' version (already published), then the seed data
+    private static final Budget FIRST_LOGIN = new Budget("first login", 6, 1, 800);
+    // Login after an update of the app: also the whole user node, and the migration written back
+    private static final Budget MIGRATING_LOGIN = new Budget("migrating login", 5, 1, 7500);
+    // Open list: listeners on the list's template pointer and on its items, and the read that ends the existing items
+    private static final Budget OPEN_LIST = new Budget("open list", 2, 1, 0, 1350);
+    // Add and delete item: the template pointer, then one update
+    private static final Budget ADD_ITEM = new Budget("add item", 1, 1, 200);
+    private static final Budget DELETE_ITEM = new Budget("delete item", 1, 1, 150);
+    // Save shared list: its items, the new list, the user's saver entry and the counted save
+    private static final Budget SAVE_SHARED_LIST = new Budget("save shared list", 2, 2, 1750);
+    private static final Budget FILTER_SHARED_LISTS = new Budget("filter shared lists", 1, 0, 1000);
+    // Admin delete: a page of lists, then one update
+    private static final Budget ADMIN_DELETE = new Budget("admin delete", 1, 1, 3600);
+
+    private CountingDatabase database;
+    private DatabaseListStore store;
+    private String listId;
+    private List<SharedList> sharedLists;
+
+    /**
+     * The largest number of listeners, reads, writes and bytes a flow may use.
+     */
+    private static class Budget
+    {
+        final String flow;
+        final long listens;
+        final long reads;
+        final long writes;
+        final long bytes;
+
+        // A flow that attaches no listeners
+        Budget(String flow, long reads, long writes, long bytes)
+        {
+            this(flow, 0, reads, writes, bytes);
+        }
+
+        Budget(String flow, long listens, long reads, long writes, long bytes)
+        {
+            this.flow = flow;
+            this.listens = listens;
+            this.reads = reads;
+            this.writes = writes;
+            this.bytes = bytes;
+        }
+
+        boolean allows(CountingDatabase database)
+        {
+            return database.getListens() <= listens && database.getReads() <= reads && database.getWrites() <= writes
+                    && database.getBytes() <= bytes;
+        }
+
+        void check(CountingDatabase database)
+        {
+            if (!allows(database))
+            {
+                fail(flow + ": " + database.getListens() + " listens, " + database.getReads() + " reads, " + database.getWrites()
+                        + " writes, " + database.getBytes() + " bytes; budget " + listens + " listens, " + reads + " reads, "
+                        + writes + " writes, " + bytes + " bytes");
+            }
+        }
+    }
+
+    // Collects the items a stream reports until it stops; the in-memory database calls back before returning
+    private static class StreamedItems implements ItemsStream.Listener
+    {
+        final List<String> ids = new ArrayList<>();
+        boolean loaded;
+
+        @Override
+        public void onAdded(Item item, String previousId)
+        {
+            ids.add(ids.indexOf(previousId) + 1, item.getId());
+        }
+
+        @Override
+        public void onChanged(Item item, String previousId)
+        {
+        }
+
+        @Override
+        public void onMoved(Item item, String previousId)
+        {
+        }
+
+        @Override
+        public void onRemoved(String itemId)
+        {
+            ids.remove(itemId);
+        }
+
+        @Override
+        public void onLoaded()
+        {
+            loaded = true;
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            fail(message);
+        }
+    }
+
+    // Captures the result of a call; the in-memory store calls back before returning
+    private static class Result<T> implements ListStore.Callback<T>
+    {
+        T value;
+
+        @Override
+        public void onResult(T result)
+        {
+            value = result;
+        }
+
+        @Override
+        public void onError(String message)
+        {
+            fail(message);
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        database = new CountingDatabase(new MemoryDatabase(new MemoryTree()));
+        store = new InMemoryListStore(database, USER);
+        // The user, another user, and shared lists by both of them, all written by the current version of the app
+        for (String user : Arrays.asList(USER, "other@example_com"))
+        {
+            DatabaseListStore userStore = new InMemoryListStore(database, user);
+            userStore.checkUserData(RoundTripBudgetTest::seed, new Result<>());
+            userStore.migrateSharedLists(new Result<>());
+            for (int i = 0; i < LISTS; i++)
+            {
+                Result<String> id = new Result<>();
+                userStore.addList("רשימה " + i, values(ITEMS), id);
+                listId = user.equals(USER) ? id.value : listId;
+            }
+            for (String category : CATEGORIES)
+            {
+                userStore.addCategory(category, new Result<>());
+            }
+            for (int i = 0; i < SHARED_LISTS / 2; i++)
+            {
+                List<String> categories = Arrays.asList(CATEGORIES.get(i % CATEGORIES.size()), CATEGORIES.get((i + 1) % CATEGORIES.size()));
+                userStore.addSharedList("משותפת " + i, categories, values(ITEMS), new Result<>());
+            }
+        }
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, PAGE_SIZE, false, lists);
+        sharedLists = lists.value;
+        database.reset();
+    }
+
+    /**
+     * A returning user opens the app: Repository.checkAndLoadData, then getUserLists for the lists screen.
+     */
+    @Test
+    public void login()
+    {
+        login(store);
+        LOGIN.check(database);
+    }
+
+    @Test
+    public void firstLogin()
+    {
+        login(new InMemoryListStore(database, "new@example_com"));
+        FIRST_LOGIN.check(database);
+    }
+
+    /**
+     * A user whose data was written before the schema version opens the app, which migrates it in one write.
+     */
+    @Test
+    public void migratingLogin()
+    {
+        Map<String, Object> legacyItems = new HashMap<>();
+        for (int i = 0; i < ITEMS; i++)
+        {
+            Map<String, Object> item = new HashMap<>();
+            item.put("value", "פריט " + i);
+            item.put("isChecked", false);
+            legacyItems.put(String.valueOf(i), item);
+        }
+        Map<String, Object> legacyUser = new HashMap<>();
+        for (int i = 0; i < LISTS; i++)
+        {
+            legacyUser.put("lists/" + i, "רשימה " + i);
+            legacyUser.put("values/רשימה " + i + i, legacyItems);
+        }
+        database.update("UsersDatabase/legacy@example_com", legacyUser, new Result<>());
+        database.reset();
+
+        Map<String, String> lists = login(new InMemoryListStore(database, "legacy@example_com"));
+        assertEquals(LISTS, lists.size());
+        MIGRATING_LOGIN.check(database);
+    }
+
+    /**
+     * Repository.listenToValues for the list screen: the list's items are streamed from the user's own copy.
+     */
+    @Test
+    public void openList()
+    {
+        assertEquals(ITEMS, openAndClose(listId).size());
+        OPEN_LIST.check(database);
+    }
+
+    /**
+     * A default list of a new user is streamed from its shared template.
+     */
+    @Test
+    public void openDefaultList()
+    {
+        Result<Map<String, String>> lists = new Result<>();
+        store.getUserLists(lists);
+        String defaultListId = null;
+        for (Map.Entry<String, String> list : lists.value.entrySet())
+        {
+            defaultListId = list.getValue().equals("תבנית 0") ? list.getKey() : defaultListId;
+        }
+        database.reset();
+        assertEquals(ITEMS, openAndClose(defaultListId).size());
+        OPEN_LIST.check(database);
+    }
+
+    @Test
+    public void addItem()
+    {
+        store.addItems(listId, Collections.singletonList("חלב"), new Result<>());
+        ADD_ITEM.check(database);
+    }
+
+    @Test
+    public void deleteItem()
+    {
+        String itemId = firstItemId();
+        store.deleteItems(listId, Collections.singletonList(itemId), new Result<>());
+        DELETE_ITEM.check(database);
+    }
+
+    /**
+     * The shared list screen: Repository.getValues of the shared list, then addList and updateListSaves.
+     */
+    @Test
+    public void saveSharedList()
+    {
+        SharedList sharedList = sharedLists.get(0);
+        Result<List<Item>> items = new Result<>();
+        store.getSharedItems(sharedList.getId(), items);
+        List<String> values = new ArrayList<>();
+        for (Item item : items.value)
+        {
+            values.add(item.getValue());
+        }
+        store.addList(sharedList.getName(), values, new Result<>());
+        store.saveSharedList(sharedList, new Result<>());
+        SAVE_SHARED_LIST.check(database);
+    }
+
+    @Test
+    public void filterSharedLists()
+    {
+        Result<List<SharedList>> filtered = new Result<>();
+        store.getFilteredLists(CATEGORIES.subList(0, 2), null, PAGE_SIZE, filtered);
+        assertEquals(4, filtered.value.size());
+        FILTER_SHARED_LISTS.check(database);
+    }
+
+    @Test
+    public void adminDelete()
+    {
+        Result<List<SharedList>> lists = new Result<>();
+        store.getSharedListsPage(null, PAGE_SIZE, true, lists);
+        store.deleteSharedLists(lists.value.subList(0, 2), new Result<>());
+        ADMIN_DELETE.check(database);
+    }
+
+    /**
+     * Checking a returning user's data by reading the whole user node, as the app once did,
+     * is caught by the login budget.
+     */
+    @Test
+    public void readingTheUserNodeAtLoginBreaksTheBudget()
+    {
+        Result<Object> userNode = new Result<>();
+        database.read("UsersDatabase/" + USER, userNode);
+        assertNotNull(userNode.value);
+        assertFalse(LOGIN.allows(database));
+    }
+
+    /**
+     * Adding an item as addValues once did, reading the whole list to find the next index before
+     * writing the row, is caught by the add item budget.
+     */
+    @Test
+    public void readBeforeAddBreaksTheBudget()
+    {
+        String path = "UsersDatabase/" + USER + "/values/" + listId;
+        Result<Object> values = new Result<>();
+        database.read(path, values);
+        int next = ((Map<?, ?>) values.value).size();
+        database.update(path, Collections.<String, Object>singletonMap(String.valueOf(next), "חלב"), new Result<>());
+        assertFalse(ADD_ITEM.allows(database));
+        database.reset();
+        store.addItems(listId, Collections.singletonList("חלב"), new Result<>());
+        assertTrue(ADD_ITEM.allows(database));
+    }
+
+    /**
+     * Filtering by reading every shared list, as the app once did, is caught by the filter budget.
+     */
+    @Test
+    public void fullScanFilterBreaksTheBudget()
+    {
+        Result<Object> lists = new Result<>();
+        database.read("SharedLists/lists", lists);
+        assertEquals(SHARED_LISTS, ((Map<?, ?>) lists.value).size());
+        assertFalse(FILTER_SHARED_LISTS.allows(database));
+    }
+
+    // Makes the calls of the login: the user's data is checked, then the lists screen gets the lists
+    private static Map<String, String> login(DatabaseListStore userStore)
+    {
+        userStore.checkUserData(RoundTripBudgetTest::seed, new Result<>());
+        userStore.migrateSharedLists(new Result<>());
+        Result<Map<String, String>> lists = new Result<>();
+        userStore.getUserLists(lists);
+        return lists.value;
+    }
+
+    // The data of a new user, like the app's template pack: default lists pointing at shared templates, and categories
+    private static void seed(Map<String, Object> seedData, Map<String, Object> templates, List<String> listIds)
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            String id = Keys.push();
+            listIds.add(id);
+            seedData.put("lists/" + id, "תבנית " + i);
+            seedData.put("templates/" + id, "t" + i);
+            templates.put("t" + i + "/name", "תבנית " + i);
+            Map<String, Object> templateValues = new HashMap<>();
+            for (int j = 0; j < ITEMS; j++)
+            {
+                Map<String, Object> item = new HashMap<>();
+                item.put("value", "פריט " + j);
+                item.put("isChecked", false);
+                item.put("order", j);
+                templateValues.put("i" + j, item);
+            }
+            templates.put("t" + i + "/values", templateValues);
+        }
+        templates.put("version", "1");
+        seedData.put("Categories/0", "כל הקטגוריות");
+        seedData.put("Categories/1", "טיולים");
+    }
+
+    // Streams a list until its existing items are reported, then stops, like the list screen opened and closed
+    private List<String> openAndClose(String id)
+    {
+        StreamedItems items = new StreamedItems();
+        ItemsStream stream = store.listenToItems(id, items);
+        assertTrue(items.loaded);
+        stream.stop();
+        return items.ids;
+    }
+
+    private List<Item> items(String id)
+    {
+        Result<List<Item>> items = new Result<>();
+        store.getItems(id, items);
+        return items.value;
+    }
+
+    private String firstItemId()
+    {
+        String itemId = items(listId).get(0).getId();
+        database.reset();
+        return itemId;
+    }
+
+    private static List<String> values(int count)
+    {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            values.add("פריט " + i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package RememberList.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class VersionedCacheTest
+{
+    @Test
+    public void returnsTheCopyOnlyForItsVersion()
+    {
+        VersionedCache<String> cache = new VersionedCache<>();
+        cache.put("lists", 100L, "a");
+        assertEquals("a", cache.get("lists", 100L));
+        assertNull(cache.get("lists", 101L));
+        assertNull(cache.get("Categories", 100L));
+    }
+
+    @Test
+    public void aNewVersionReplacesTheCopy()
+    {
+        VersionedCache<String> cache = new VersionedCache<>();
+        cache.put("lists", 100L, "a");
+        cache.put("lists", 200L, "b");
+        assertNull(cache.get("lists", 100L));
+        assertEquals("b", cache.get("lists", 200L));
+    }
+
+    @Test
+    public void unversionedNodesAreNeverCached()
+    {
+        VersionedCache<String> cache = new VersionedCache<>();
+        cache.put("values/a", 100L, "a");
+        cache.put("values/a", null, "b");
+        assertNull(cache.get("values/a", 100L));
+        assertNull(cache.get("values/a", null));
+    }
+
+    @Test
+    public void invalidateAndClearDropCopies()
+    {
+        VersionedCache<String> cache = new VersionedCache<>();
+        cache.put("values/a", 100L, "a");
+        cache.put("values/b", 100L, "b");
+        cache.invalidate("values/a");
+        assertNull(cache.get("values/a", 100L));
+        assertEquals("b", cache.get("values/b", 100L));
+        cache.clear();
+        assertNull(cache.get("values/b", 100L));
+    }
+}